@@ -0,0 +1,56 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BitQueue;
+import com.seapip.thomas.huffman.huffman.BitWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures queueing bits one at a time in a {@code BitQueue}, compared with writing them to a {@code BitWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BitQueueBenchmark {
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private boolean[] bits;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        bits = new boolean[size];
+        for (int i = 0; i < size; i++) bits[i] = random.nextBoolean();
+    }
+
+    @Benchmark
+    public BitQueue offer() {
+        BitQueue queue = new BitQueue();
+        for (boolean bit : bits) queue.offer(bit);
+        return queue;
+    }
+
+    @Benchmark
+    public int offerPoll() {
+        BitQueue queue = new BitQueue();
+        for (boolean bit : bits) queue.offer(bit);
+        int count = 0;
+        Boolean bit;
+        while ((bit = queue.poll()) != null) if (bit) count++;
+        return count;
+    }
+
+    @Benchmark
+    public void bitWriter() throws IOException {
+        BitWriter writer = new BitWriter(new NullOutputStream());
+        for (boolean bit : bits) writer.write(bit ? 1 : 0, 1);
+        writer.finish();
+    }
+}
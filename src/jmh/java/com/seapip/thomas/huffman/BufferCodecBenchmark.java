@@ -0,0 +1,87 @@
+package com.seapip.thomas.huffman;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures compressing and decompressing messages held in direct buffers with a reused {@code HuffmanEncoder} and
+ * {@code HuffmanDecoder}, against copying them to the heap and back to use the stream methods of {@code Huffman}.
+ * Run with {@code -prof gc} to compare the allocation per message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BufferCodecBenchmark {
+    @Param({"ENGLISH", "LOGS", "RANDOM"})
+    public Corpus corpus;
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    private final Options options = new Options().setBinary(true).setBlockSize(64 * 1024);
+    private HuffmanEncoder encoder;
+    private HuffmanDecoder decoder;
+    private ByteBuffer message;
+    private ByteBuffer compressed;
+    private ByteBuffer encoded;
+    private ByteBuffer output;
+
+    @Setup
+    public void setup() throws Exception {
+        encoder = new HuffmanEncoder(options);
+        decoder = new HuffmanDecoder();
+        message = ByteBuffer.allocateDirect(size);
+        message.put(corpus.generate(size, 42)).flip();
+        compressed = ByteBuffer.allocateDirect(size + 1024);
+        encoded = ByteBuffer.allocateDirect(size + 1024);
+        output = ByteBuffer.allocateDirect(size + 1024);
+        encoder.encode(message.duplicate(), compressed, true);
+        compressed.flip();
+    }
+
+    @Benchmark
+    public ByteBuffer encode() throws Exception {
+        encoder.reset();
+        encoded.clear();
+        encoder.encode(message.duplicate(), encoded, true);
+        return encoded;
+    }
+
+    @Benchmark
+    public ByteBuffer decode() throws Exception {
+        decoder.reset();
+        output.clear();
+        decoder.decode(compressed.duplicate(), output);
+        return output;
+    }
+
+    @Benchmark
+    public ByteBuffer encodeStream() throws Exception {
+        //Copy the message to the heap, compress it and copy the compressed data back
+        byte[] bytes = new byte[size];
+        message.duplicate().get(bytes);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(size);
+        Huffman.compress(new ByteArrayInputStream(bytes), byteArrayOutputStream, options);
+        output.clear();
+        output.put(byteArrayOutputStream.toByteArray());
+        return output;
+    }
+
+    @Benchmark
+    public ByteBuffer decodeStream() throws Exception {
+        byte[] bytes = new byte[compressed.remaining()];
+        compressed.duplicate().get(bytes);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(size);
+        Huffman.decompress(new ByteArrayInputStream(bytes), byteArrayOutputStream);
+        output.clear();
+        output.put(byteArrayOutputStream.toByteArray());
+        return output;
+    }
+}
@@ -0,0 +1,82 @@
+package com.seapip.thomas.huffman;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures compress and decompress throughput of each format over each corpus. The {@code bytes} counter is the
+ * number of uncompressed bytes per microsecond, which equals MB/s. Run with {@code -prof gc} to report the
+ * allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CodecBenchmark {
+    @Param({"ENGLISH", "SOURCE", "LOGS", "RANDOM", "REPEATED"})
+    public Corpus corpus;
+
+    @Param({"1024", "1048576", "67108864", "1073741824"})
+    public int size;
+
+    @Param({"default", "checked", "blocks", "binary"})
+    public String format;
+
+    private Path path;
+    private byte[] compressed;
+    private Options options;
+
+    @Setup
+    public void setup() throws Exception {
+        options = new Options();
+        if ("checked".equals(format)) options.setChecked(true);
+        if ("blocks".equals(format)) options.setBlockSize(1024 * 1024);
+        if ("binary".equals(format)) options.setBinary(true);
+
+        //Compress from a file so the text formats don't spill the stream to a temporary file
+        path = Files.createTempFile("huffman", ".corpus");
+        Files.write(path, corpus.generate(size, 42));
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        Huffman.compress(path, byteArrayOutputStream, options);
+        compressed = byteArrayOutputStream.toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(path);
+    }
+
+    @Benchmark
+    public void compress(Bytes bytes) throws Exception {
+        Huffman.compress(path, new NullOutputStream(), options);
+        bytes.bytes += size;
+    }
+
+    @Benchmark
+    public void decompress(Bytes bytes) throws Exception {
+        Huffman.decompress(new ByteArrayInputStream(compressed), new NullOutputStream());
+        bytes.bytes += size;
+    }
+
+    /**
+     * Counts the uncompressed bytes processed per benchmark thread.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.seapip.thomas.huffman;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Generated corpora used by the benchmarks, the same size and seed always generate the same bytes.
+ */
+public enum Corpus {
+    /**
+     * English like sentences built from the most common English words.
+     */
+    ENGLISH {
+        @Override
+        public byte[] generate(int size, long seed) {
+            return text(size, seed, this::append);
+        }
+
+        private void append(StringBuilder stringBuilder, Random random) {
+            for (int i = 0, words = 4 + random.nextInt(16); i < words; i++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                if (i == 0) word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                stringBuilder.append(word).append(i == words - 1 ? "." : random.nextInt(10) == 0 ? ", " : " ");
+            }
+            stringBuilder.append(random.nextInt(6) == 0 ? "\n\n" : " ");
+        }
+    },
+
+    /**
+     * Java like source code with indentation, keywords and identifiers.
+     */
+    SOURCE {
+        @Override
+        public byte[] generate(int size, long seed) {
+            return text(size, seed, this::append);
+        }
+
+        private void append(StringBuilder stringBuilder, Random random) {
+            String name = IDENTIFIERS[random.nextInt(IDENTIFIERS.length)];
+            String type = TYPES[random.nextInt(TYPES.length)];
+            stringBuilder.append("    public ").append(type).append(' ').append(name).append("(").append(type)
+                    .append(" value) {\n");
+            for (int i = 0, lines = 1 + random.nextInt(6); i < lines; i++) {
+                String other = IDENTIFIERS[random.nextInt(IDENTIFIERS.length)];
+                switch (random.nextInt(4)) {
+                    case 0:
+                        stringBuilder.append("        if (").append(other).append(" == null) return ").append(name)
+                                .append(";\n");
+                        break;
+                    case 1:
+                        stringBuilder.append("        for (int i = 0; i < ").append(other).append(".length; i++) ")
+                                .append(name).append(" += ").append(other).append("[i];\n");
+                        break;
+                    case 2:
+                        stringBuilder.append("        //Update the ").append(other).append(" of the ").append(name)
+                                .append("\n        this.").append(other).append(" = value;\n");
+                        break;
+                    default:
+                        stringBuilder.append("        ").append(type).append(' ').append(other).append(" = ")
+                                .append(name).append('(').append(random.nextInt(1000)).append(");\n");
+                        break;
+                }
+            }
+            stringBuilder.append("        return value;\n    }\n\n");
+        }
+    },
+
+    /**
+     * Application log lines with timestamps, levels, thread names and numbers.
+     */
+    LOGS {
+        @Override
+        public byte[] generate(int size, long seed) {
+            return text(size, seed, this::append);
+        }
+
+        private void append(StringBuilder stringBuilder, Random random) {
+            int second = random.nextInt(86400);
+            stringBuilder.append(String.format("2017-11-%02d %02d:%02d:%02d.%03d %-5s [worker-%d] %s - ",
+                    1 + random.nextInt(30), second / 3600, second / 60 % 60, second % 60, random.nextInt(1000),
+                    LEVELS[random.nextInt(LEVELS.length)], random.nextInt(16),
+                    LOGGERS[random.nextInt(LOGGERS.length)]));
+            stringBuilder.append(MESSAGES[random.nextInt(MESSAGES.length)]).append(' ')
+                    .append(random.nextInt(100000)).append(" completed in ").append(random.nextInt(2000))
+                    .append("ms status=").append(random.nextInt(8) == 0 ? 500 : 200).append('\n');
+        }
+    },
+
+    /**
+     * Uniformly distributed random bytes, the worst case for a Huffman code.
+     */
+    RANDOM {
+        @Override
+        public byte[] generate(int size, long seed) {
+            byte[] bytes = new byte[size];
+            new Random(seed).nextBytes(bytes);
+            return bytes;
+        }
+    },
+
+    /**
+     * A single repeated character, the best case for a Huffman code.
+     */
+    REPEATED {
+        @Override
+        public byte[] generate(int size, long seed) {
+            byte[] bytes = new byte[size];
+            Arrays.fill(bytes, (byte) 'a');
+            return bytes;
+        }
+    };
+
+    private static final String[] WORDS = {"the", "of", "and", "to", "in", "a", "is", "that", "for", "it", "as",
+            "was", "with", "be", "by", "on", "not", "he", "this", "are", "or", "his", "from", "at", "which", "but",
+            "have", "an", "had", "they", "you", "were", "their", "one", "all", "we", "can", "her", "has", "there",
+            "been", "if", "more", "when", "will", "would", "who", "so", "no", "eerie", "eyes", "seen", "near", "lake"};
+    private static final String[] IDENTIFIERS = {"node", "value", "length", "offset", "buffer", "count", "size",
+            "characters", "frequencies", "position", "reader", "writer", "table", "index", "code", "bits"};
+    private static final String[] TYPES = {"int", "long", "String", "Node", "byte[]", "char[]", "boolean"};
+    private static final String[] LEVELS = {"INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR"};
+    private static final String[] LOGGERS = {"c.s.t.h.Huffman", "c.s.t.h.Main", "o.e.j.s.Server", "c.z.h.HikariPool"};
+    private static final String[] MESSAGES = {"Request", "Job", "Upload", "Query", "Session"};
+
+    /**
+     * Generates the given number of bytes of this corpus, text corpora only hold ASCII characters.
+     *
+     * @param size The number of bytes
+     * @param seed The seed of the random generator
+     * @return The generated bytes
+     */
+    public abstract byte[] generate(int size, long seed);
+
+    private static byte[] text(int size, long seed, BiConsumer<StringBuilder, Random> append) {
+        //Generate text in chunks so large corpora don't need a copy as string
+        Random random = new Random(seed);
+        byte[] bytes = new byte[size];
+        StringBuilder stringBuilder = new StringBuilder();
+        int position = 0;
+        while (position < size) {
+            stringBuilder.setLength(0);
+            while (stringBuilder.length() < 64 * 1024) append.accept(stringBuilder, random);
+            int length = Math.min(stringBuilder.length(), size - position);
+            for (int i = 0; i < length; i++) bytes[position++] = (byte) stringBuilder.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,91 @@
+package com.seapip.thomas.huffman;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the latency of compressing a file by launching the command line for it, by launching the thin client
+ * that sends it to a running daemon and by sending it to the daemon from this process, which is what's left once
+ * the cost of starting a runtime is taken away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DaemonBenchmark {
+    @Param({"4096", "1048576"})
+    public int size;
+
+    private final PrintStream nullStream = new PrintStream(new NullOutputStream());
+    private Path directory;
+    private Path socket;
+    private ServerSocketChannel server;
+    private Thread thread;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("huffman");
+        socket = directory.resolve("huffman.sock");
+        Files.write(directory.resolve("input.txt"), Corpus.LOGS.generate(size, 42));
+        server = Daemon.bind(socket);
+        thread = new Thread(() -> {
+            try {
+                Daemon.serve(server);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        server.close();
+        thread.join();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.delete(path);
+        }
+    }
+
+    @Benchmark
+    public int cold() throws IOException, InterruptedException {
+        return launch("compress", "input.txt", "cold.compressed");
+    }
+
+    @Benchmark
+    public int client() throws IOException, InterruptedException {
+        return launch("client", "--socket", socket.toString(), "compress", "input.txt", "client.compressed");
+    }
+
+    @Benchmark
+    public int request() throws IOException {
+        return Daemon.request(socket, directory, new String[]{"compress", "input.txt", "request.compressed"},
+                nullStream, nullStream);
+    }
+
+    private int launch(String... args) throws IOException, InterruptedException {
+        //Start a new runtime with the classpath of this one, like a script running the jar would
+        String[] command = new String[args.length + 4];
+        command[0] = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        command[1] = "-cp";
+        command[2] = System.getProperty("java.class.path");
+        command[3] = Main.class.getName();
+        System.arraycopy(args, 0, command, 4, args.length);
+        Process process = new ProcessBuilder(command).directory(directory.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        int status = process.waitFor();
+        if (status != 0) throw new IllegalStateException("Command failed with status " + status + ".");
+        return status;
+    }
+}
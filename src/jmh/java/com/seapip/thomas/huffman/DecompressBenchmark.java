@@ -0,0 +1,85 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BitReader;
+import com.seapip.thomas.huffman.huffman.CharNode;
+import com.seapip.thomas.huffman.huffman.DecodeTable;
+import com.seapip.thomas.huffman.huffman.Node;
+import com.seapip.thomas.huffman.huffman.TreeNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a payload bit by bit through the Huffman tree with decoding it through a {@code DecodeTable}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DecompressBenchmark {
+    @Param({"1024", "1048576", "16777216"})
+    public int size;
+
+    private byte[] compressed;
+    private byte[] payload;
+    private TreeNode tree;
+    private long length;
+    private char[] buffer;
+
+    @Setup
+    public void setup() throws Exception {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        Huffman.compress(new ByteArrayInputStream(Corpus.ENGLISH.generate(size, 42)), byteArrayOutputStream);
+        compressed = byteArrayOutputStream.toByteArray();
+
+        //Split header from payload
+        DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(compressed));
+        tree = TreeNode.read(dataInputStream);
+        length = dataInputStream.readLong();
+        payload = new byte[dataInputStream.readInt()];
+        dataInputStream.readFully(payload);
+        buffer = new char[(int) length];
+    }
+
+    @Benchmark
+    public char[] tree() {
+        Node node = tree;
+        int offset = 0;
+        for (byte b : payload) {
+            for (int mask = 1; mask != 256; mask <<= 1) {
+                if (offset >= length) break;
+                if (node instanceof CharNode) {
+                    buffer[offset++] = ((CharNode) node).getCharacter();
+                    node = tree;
+                }
+                node = ((b & mask) != 0) ? ((TreeNode) node).getRightNode() : ((TreeNode) node).getLeftNode();
+            }
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public char[] table() throws IOException {
+        DecodeTable table = DecodeTable.create(tree);
+        table.decode(new BitReader(new ByteArrayInputStream(payload), payload.length), buffer, 0, (int) length);
+        return buffer;
+    }
+
+    @Benchmark
+    public void decompress() throws Huffman.CompressionException {
+        Huffman.decompress(new ByteArrayInputStream(compressed), new OutputStream() {
+            @Override
+            public void write(int b) {
+                //Discard
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                //Discard
+            }
+        });
+    }
+}
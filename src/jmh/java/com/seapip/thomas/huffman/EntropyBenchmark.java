@@ -0,0 +1,86 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.AnsCoder;
+import com.seapip.thomas.huffman.huffman.BitReader;
+import com.seapip.thomas.huffman.huffman.BitWriter;
+import com.seapip.thomas.huffman.huffman.EntropyCoder;
+import com.seapip.thomas.huffman.huffman.Histogram;
+import com.seapip.thomas.huffman.huffman.HuffmanCoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and decoding a single block of bytes with the Huffman coder against the tANS coder,
+ * including creating the code and reading it back. Throughput is in blocks per second, the {@code compressedBytes}
+ * counter is the compressed size of the block with each coder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EntropyBenchmark {
+    @Param({"ENGLISH", "SOURCE", "LOGS"})
+    public Corpus corpus;
+
+    @Param({"HUFFMAN", "ANS"})
+    public String coder;
+
+    private ByteBuffer input;
+    private long[] frequencies;
+    private EntropyCoder entropyCoder;
+    private BitWriter writer;
+    private ByteBuffer block;
+    private byte[] bytes;
+    private long compressedBytes;
+
+    @Setup
+    public void setup() throws Exception {
+        input = ByteBuffer.wrap(corpus.generate(1024 * 1024, 42));
+        frequencies = new long[256];
+        new Histogram().count(input, frequencies);
+        entropyCoder = coder.equals("ANS") ? new AnsCoder() : new HuffmanCoder();
+        writer = new BitWriter(new NullOutputStream());
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        BitWriter blockWriter = new BitWriter(byteArrayOutputStream);
+        entropyCoder.create(frequencies, 24);
+        entropyCoder.encode(input);
+        entropyCoder.write(blockWriter);
+        blockWriter.finish();
+        block = ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
+        bytes = new byte[input.remaining()];
+        compressedBytes = block.remaining();
+    }
+
+    @Benchmark
+    public long encode(CompressedSize size) throws Exception {
+        size.compressedBytes = compressedBytes;
+        writer.reset();
+        entropyCoder.create(frequencies, 24);
+        long bitCount = entropyCoder.encode(input);
+        entropyCoder.write(writer);
+        writer.finish();
+        return bitCount;
+    }
+
+    @Benchmark
+    public byte[] decode(CompressedSize size) throws Exception {
+        size.compressedBytes = compressedBytes;
+        entropyCoder.decode(new BitReader(block), bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Reports the compressed size of the block per benchmark thread.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CompressedSize {
+        public long compressedBytes;
+    }
+}
@@ -0,0 +1,106 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.Histogram;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures counting symbol frequencies with the boxed {@code HashMap} the Huffman tree was built from originally,
+ * a single {@code long[]} table and the interleaved tables of {@code Histogram}, on a single thread and on every
+ * available processor. The {@code bytes} counter is the number of counted bytes per microsecond, which equals MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HistogramBenchmark {
+    @Param({"ENGLISH", "RANDOM", "REPEATED"})
+    public Corpus corpus;
+
+    @Param({"65536", "67108864"})
+    public int size;
+
+    private byte[] bytes;
+    private char[] characters;
+    private String content;
+    private final Histogram histogram = new Histogram();
+
+    @Setup
+    public void setup() {
+        bytes = corpus.generate(size, 42);
+        content = new String(bytes, StandardCharsets.ISO_8859_1);
+        characters = content.toCharArray();
+    }
+
+    @Benchmark
+    public Map<Character, Integer> hashMap(Bytes counter) {
+        Map<Character, Integer> map = new HashMap<>();
+        for (int i = 0; i < content.length(); i++) {
+            char character = content.charAt(i);
+            map.put(character, map.getOrDefault(character, 0) + 1);
+        }
+        counter.bytes += size;
+        return map;
+    }
+
+    @Benchmark
+    public long[] charactersArray(Bytes counter) {
+        long[] frequencies = new long[Character.MAX_VALUE + 1];
+        for (char character : characters) frequencies[character]++;
+        counter.bytes += size;
+        return frequencies;
+    }
+
+    @Benchmark
+    public long[] charactersInterleaved(Bytes counter) {
+        long[] frequencies = new long[Character.MAX_VALUE + 1];
+        histogram.count(characters, 0, characters.length, frequencies);
+        counter.bytes += size;
+        return frequencies;
+    }
+
+    @Benchmark
+    public long[] bytesArray(Bytes counter) {
+        long[] frequencies = new long[256];
+        for (byte b : bytes) frequencies[b & 0xFF]++;
+        counter.bytes += size;
+        return frequencies;
+    }
+
+    @Benchmark
+    public long[] bytesInterleaved(Bytes counter) {
+        long[] frequencies = new long[256];
+        histogram.count(ByteBuffer.wrap(bytes), frequencies);
+        counter.bytes += size;
+        return frequencies;
+    }
+
+    @Benchmark
+    public long[] bytesParallel(Bytes counter) throws Exception {
+        long[] frequencies = new long[256];
+        Histogram.count(ByteBuffer.wrap(bytes), frequencies, Runtime.getRuntime().availableProcessors());
+        counter.bytes += size;
+        return frequencies;
+    }
+
+    /**
+     * Counts the counted bytes per benchmark thread.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BlockDecoder;
+import com.seapip.thomas.huffman.huffman.BlockEncoder;
+import com.seapip.thomas.huffman.huffman.VarInt;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding a single block of bytes from a single bit stream against four interleaved bit streams,
+ * the block is held in memory so only the decode loop is measured. Throughput is in blocks per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InterleavedBenchmark {
+    @Param({"ENGLISH", "SOURCE", "RANDOM"})
+    public Corpus corpus;
+
+    @Param({"65536", "1048576"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean interleaved;
+
+    private ByteBuffer block;
+    private int length;
+    private byte[] bytes;
+    private BlockDecoder decoder;
+
+    @Setup
+    public void setup() throws Exception {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        new BlockEncoder(24, interleaved).encode(ByteBuffer.wrap(corpus.generate(size, 42)), byteArrayOutputStream);
+        block = ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
+        length = (int) VarInt.read(block.duplicate());
+        bytes = new byte[length];
+        decoder = new BlockDecoder(true);
+    }
+
+    @Benchmark
+    public byte[] decode() throws Exception {
+        ByteBuffer buffer = block.duplicate();
+        VarInt.read(buffer);
+        decoder.decode(buffer, bytes, 0, length);
+        return bytes;
+    }
+}
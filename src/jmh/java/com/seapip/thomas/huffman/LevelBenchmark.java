@@ -0,0 +1,68 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BlockEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding a single block of bytes with a code built from exact counts against a code built from
+ * a sample of the block. Throughput is in blocks per second, the {@code compressedBytes} counter is the compressed
+ * size of the block at each level.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LevelBenchmark {
+    @Param({"ENGLISH", "SOURCE", "LOGS", "RANDOM"})
+    public Corpus corpus;
+
+    @Param({"MAX", "FAST"})
+    public Options.Level level;
+
+    private ByteBuffer block;
+    private BlockEncoder encoder;
+    private CountingOutputStream countingOutputStream;
+
+    @Setup
+    public void setup() throws Exception {
+        block = ByteBuffer.wrap(corpus.generate(1024 * 1024, 42));
+        encoder = new BlockEncoder(24, false, false, -1, level == Options.Level.FAST);
+        countingOutputStream = new CountingOutputStream();
+    }
+
+    @Benchmark
+    public ByteBuffer encode(CompressedSize size) throws Exception {
+        countingOutputStream.count = 0;
+        encoder.encode(block, countingOutputStream);
+        size.compressedBytes = countingOutputStream.count;
+        return block;
+    }
+
+    /**
+     * Reports the compressed size of the block per benchmark thread.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CompressedSize {
+        public long compressedBytes;
+    }
+
+    private static final class CountingOutputStream extends NullOutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
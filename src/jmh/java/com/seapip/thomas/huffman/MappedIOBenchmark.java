@@ -0,0 +1,79 @@
+package com.seapip.thomas.huffman;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares compressing and decompressing files through memory mapped buffers with the stream path,
+ * the output is discarded. Files of 1GB and more are written to the temporary directory during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx512m")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class MappedIOBenchmark {
+    private static final int CHUNK_SIZE = 64 * 1024 * 1024;
+
+    @Param({"1073741824", "2147483648"})
+    public long size;
+
+    @Param({"false", "true"})
+    public boolean blocks;
+
+    private Path text;
+    private Path compressed;
+    private Options options;
+
+    @Setup
+    public void setup() throws Exception {
+        //Write English like text in chunks
+        text = Files.createTempFile("huffman", ".txt");
+        try (OutputStream outputStream = Files.newOutputStream(text)) {
+            for (long length = 0, seed = 0; length < size; length += CHUNK_SIZE, seed++) {
+                outputStream.write(Corpus.ENGLISH.generate((int) Math.min(CHUNK_SIZE, size - length), seed));
+            }
+        }
+
+        options = new Options().setBlockSize(blocks ? 1024 * 1024 : 0);
+        compressed = Files.createTempFile("huffman", ".compressed");
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(compressed))) {
+            Huffman.compress(text, outputStream, options);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(text);
+        Files.delete(compressed);
+    }
+
+    @Benchmark
+    public void compressMapped() throws Exception {
+        Huffman.compress(text, new NullOutputStream(), options);
+    }
+
+    @Benchmark
+    public void compressStream() throws Exception {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(text))) {
+            Huffman.compress(inputStream, new NullOutputStream(), options);
+        }
+    }
+
+    @Benchmark
+    public void decompressMapped() throws Exception {
+        Huffman.decompress(compressed, new NullOutputStream(), new Options());
+    }
+
+    @Benchmark
+    public void decompressStream() throws Exception {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(compressed))) {
+            Huffman.decompress(inputStream, new NullOutputStream());
+        }
+    }
+}
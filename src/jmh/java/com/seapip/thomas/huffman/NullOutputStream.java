@@ -0,0 +1,18 @@
+package com.seapip.thomas.huffman;
+
+import java.io.OutputStream;
+
+/**
+ * An output stream that discards everything written to it, so benchmarks only measure the codec.
+ */
+public class NullOutputStream extends OutputStream {
+    @Override
+    public void write(int b) {
+        //Discard output
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        //Discard output
+    }
+}
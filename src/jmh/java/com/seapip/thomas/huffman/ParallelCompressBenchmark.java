@@ -0,0 +1,37 @@
+package com.seapip.thomas.huffman;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how block compression scales with the number of threads, the output is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParallelCompressBenchmark {
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int threads;
+
+    @Param({"67108864"})
+    public int size;
+
+    private byte[] content;
+    private Options options;
+
+    @Setup
+    public void setup() throws Exception {
+        content = Corpus.ENGLISH.generate(size, 42);
+        options = new Options().setThreads(threads).setBlockSize(1024 * 1024);
+    }
+
+    @Benchmark
+    public void compress() throws Exception {
+        Huffman.compress(new ByteArrayInputStream(content), new NullOutputStream(), options);
+    }
+}
@@ -0,0 +1,91 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+import com.seapip.thomas.huffman.huffman.HuffmanTree;
+import com.seapip.thomas.huffman.huffman.PackageMerge;
+import com.seapip.thomas.huffman.huffman.TreeNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the Huffman tree from text or frequencies and writing and reading the tree header,
+ * with the node graph and with the array based {@code HuffmanTree} that compression uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TreeNodeBenchmark {
+    @Param({"ENGLISH", "SOURCE", "LOGS", "RANDOM", "REPEATED"})
+    public Corpus corpus;
+
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private String content;
+    private long[] frequencies;
+    private TreeNode tree;
+    private byte[] header;
+    private long[] codes;
+    private int[] lengths;
+
+    @Setup
+    public void setup() throws IOException {
+        content = new String(corpus.generate(size, 42), StandardCharsets.UTF_8);
+        frequencies = new long[Character.MAX_VALUE + 1];
+        for (int i = 0; i < content.length(); i++) frequencies[content.charAt(i)]++;
+        tree = new TreeNode(frequencies);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        tree.write(byteArrayOutputStream);
+        header = byteArrayOutputStream.toByteArray();
+        lengths = PackageMerge.lengths(frequencies, 24);
+        codes = new CanonicalCode(lengths).getCodes();
+    }
+
+    @Benchmark
+    public TreeNode buildFromContent() {
+        return new TreeNode(content);
+    }
+
+    @Benchmark
+    public TreeNode buildFromFrequencies() {
+        return new TreeNode(frequencies);
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        tree.write(new NullOutputStream());
+    }
+
+    @Benchmark
+    public TreeNode read() throws IOException {
+        return TreeNode.read(new ByteArrayInputStream(header));
+    }
+
+    @Benchmark
+    public HuffmanTree buildArray() {
+        return HuffmanTree.create(frequencies);
+    }
+
+    @Benchmark
+    public int[] lengths() {
+        return PackageMerge.lengths(frequencies, 24);
+    }
+
+    @Benchmark
+    public void writeCodes() throws IOException {
+        HuffmanTree.write(codes, lengths, new NullOutputStream());
+    }
+
+    @Benchmark
+    public HuffmanTree readArray() throws IOException {
+        return HuffmanTree.read(new ByteArrayInputStream(header));
+    }
+}
@@ -0,0 +1,164 @@
+package com.seapip.thomas.huffman;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The {@code Batch} class consists exclusively of static methods to compress many files on a fixed pool of threads.
+ * Each file is compressed by a single thread which reuses its buffers and tables for the next file, so small files
+ * don't pay for setting up a compression each time. A file that can't be compressed doesn't stop the batch,
+ * its error is reported in the result.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class Batch {
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private Batch() {
+    }
+
+    /**
+     * Returns the files to compress for the given argument, which is either a list file prefixed with {@code @}
+     * holding a path on every line, a directory of which all regular files are returned except already compressed
+     * files, a single file or a glob pattern like {@code logs/**.log}.
+     *
+     * @param argument The list file, directory, file or glob pattern
+     * @return The files in a stable order
+     * @throws Huffman.CompressionException Exception thrown when the list file or directories can't be read
+     */
+    public static List<Path> find(String argument) throws Huffman.CompressionException {
+        return find(argument, Paths.get(""));
+    }
+
+    /**
+     * Returns the files to compress for the given argument with relative paths resolved against the given directory,
+     * including the paths in a list file.
+     */
+    static List<Path> find(String argument, Path directory) throws Huffman.CompressionException {
+        try {
+            if (argument.startsWith("@")) {
+                //Read a path from every non empty line
+                try (Stream<String> lines = Files.lines(directory.resolve(argument.substring(1)), Charset.defaultCharset())) {
+                    return lines.map(String::trim).filter(line -> !line.isEmpty()).map(directory::resolve)
+                            .collect(Collectors.toList());
+                }
+            }
+            Path path = Paths.get(argument);
+            Path resolved = directory.resolve(path);
+            if (Files.isDirectory(resolved)) {
+                return walk(resolved, file -> !file.toString().endsWith(".compressed"));
+            }
+            if (Files.exists(resolved)) {
+                List<Path> files = new ArrayList<>();
+                files.add(resolved);
+                return files;
+            }
+
+            //Walk the directory before the first path element with a glob character, the pattern matches relative paths
+            Path base = Paths.get("");
+            for (Path element : path) {
+                if (element.toString().chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) != -1)) break;
+                base = base.resolve(element);
+            }
+            if (path.isAbsolute()) base = path.getRoot().resolve(base);
+            if (!Files.isDirectory(directory.resolve(base))) return new ArrayList<>();
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + argument);
+            return walk(directory.resolve(base), file -> matcher.matches(path.isAbsolute() ? file : directory.relativize(file)));
+        } catch (IOException | RuntimeException e) {
+            throw new Huffman.CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Compresses each of the given files to the file returned for it, files are compressed on the thread count of
+     * the given options with a single thread per file. The listener of the options is called from those threads.
+     * The compressed file of a file that can't be compressed is removed.
+     *
+     * @param files   The files to compress
+     * @param targets The function returning the file to write the compressed data of a file to
+     * @param options The compression options
+     * @return The sizes, time and failures of the batch
+     * @throws Huffman.CompressionException Exception thrown when the batch is interrupted
+     */
+    public static BatchResult compress(List<Path> files, Function<Path, Path> targets, Options options)
+            throws Huffman.CompressionException {
+        int threads = options.getThreads();
+        Options fileOptions = options.copy().setThreads(1);
+        long start = System.nanoTime();
+        long inputBytes = 0;
+        long outputBytes = 0;
+        int compressed = 0;
+        List<BatchResult.Failure> failures = new ArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            //Compress files in parallel and collect them in order, at most two files per thread are pending
+            Queue<Future<long[]>> pending = new ArrayDeque<>();
+            Queue<Path> pendingFiles = new ArrayDeque<>();
+            int next = 0;
+            while (next < files.size() || !pending.isEmpty()) {
+                if (next < files.size()) {
+                    Path file = files.get(next++);
+                    pending.add(executor.submit(() -> compress(file, targets.apply(file), fileOptions)));
+                    pendingFiles.add(file);
+                }
+                while (!pending.isEmpty() && (next == files.size() || pending.size() >= threads * 2)) {
+                    Path file = pendingFiles.poll();
+                    try {
+                        long[] sizes = pending.poll().get();
+                        inputBytes += sizes[0];
+                        outputBytes += sizes[1];
+                        compressed++;
+                    } catch (ExecutionException e) {
+                        failures.add(new BatchResult.Failure(file, e.getCause()));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Huffman.CompressionException("Compression was interrupted.");
+        } finally {
+            executor.shutdownNow();
+        }
+        return new BatchResult(compressed, inputBytes, outputBytes, System.nanoTime() - start, failures);
+    }
+
+    private static long[] compress(Path file, Path target, Options options) throws IOException, Huffman.CompressionException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(target))) {
+            Huffman.compress(file, outputStream, options);
+        } catch (IOException | Huffman.CompressionException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        return new long[]{Files.size(file), Files.size(target)};
+    }
+
+    private static List<Path> walk(Path directory, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.seapip.thomas.huffman;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The {@code BatchResult} class holds the combined sizes and time of a batch of compressed files,
+ * together with the error of each file that couldn't be compressed.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class BatchResult {
+    private final int files;
+    private final long inputBytes;
+    private final long outputBytes;
+    private final long nanos;
+    private final List<Failure> failures;
+
+    BatchResult(int files, long inputBytes, long outputBytes, long nanos, List<Failure> failures) {
+        this.files = files;
+        this.inputBytes = inputBytes;
+        this.outputBytes = outputBytes;
+        this.nanos = nanos;
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Returns the number of files that are compressed, failed files aren't included.
+     *
+     * @return The number of compressed files
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Returns the input bytes of the compressed files divided by the time of the whole batch.
+     *
+     * @return The throughput in megabytes per second
+     */
+    public double getThroughput() {
+        return nanos == 0 ? 0 : inputBytes * 1e3 / nanos;
+    }
+
+    /**
+     * Returns the files that couldn't be compressed in the order they were given.
+     *
+     * @return The failed files and their errors
+     */
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "Files: %d compressed, %d failed%n"
+                        + "Input: %d bytes, output: %d bytes, ratio %.3f%n"
+                        + "Time: %.3fms, throughput: %.1f MB/s",
+                files, failures.size(), inputBytes, outputBytes, outputBytes == 0 ? 0 : (double) inputBytes / outputBytes,
+                nanos / 1e6, getThroughput());
+    }
+
+    /**
+     * A file that couldn't be compressed and the error that stopped it.
+     */
+    public static final class Failure {
+        private final Path path;
+        private final Throwable error;
+
+        Failure(Path path, Throwable error) {
+            this.path = path;
+            this.error = error;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            //Compression exceptions only hold a message, other exceptions like a missing file need their type
+            String message = error instanceof Huffman.CompressionException ? error.getMessage() : error.toString();
+            return path + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BlockIndex;
+import com.seapip.thomas.huffman.huffman.VarInt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+
+/**
+ * The {@code Blocks} class consists exclusively of static methods to compress and decompress data as independent
+ * blocks on a pool of threads, blocks are written and returned in their original order.
+ * <p>
+ * Block compressed data starts with the magic bytes, the version and the block size, followed by the blocks, a zero
+ * byte that marks the end of the blocks, the block index and the position of the block index as an 8 byte long.
+ * Each block and the block index are followed by their CRC32C checksum, so corrupt data is detected before it's
+ * decoded. Data written before checksums existed has no magic bytes and no checksums.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+final class Blocks {
+    static final byte[] MAGIC = {(byte) 0x89, 'H', 'U', 'F'};
+    static final int CHECKSUM_SIZE = 4;
+
+    private Blocks() {
+    }
+
+    /**
+     * Compresses the blocks returned by the given source.
+     *
+     * @param version      The version written before the block size
+     * @param source       The source of the blocks
+     * @param outputStream The data stream to write the compressed data too
+     * @param options      The options holding the block size and thread count
+     * @throws IOException                 Exception thrown when reading or writing fails
+     * @throws Huffman.CompressionException Exception thrown when the source is empty or a block can't be compressed
+     */
+    static void compress(int version, Source source, OutputStream outputStream, Options options)
+            throws IOException, Huffman.CompressionException {
+        int threads = options.getThreads();
+        int blockSize = options.getEffectiveBlockSize();
+
+        //Throw compression exception if content length is zero
+        Block block = source.read(blockSize);
+        if (block == null) throw new Huffman.CompressionException("Content length needs to be larger than zero.");
+
+        //Write magic bytes, version and block size
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.write(MAGIC);
+        header.write(version);
+        VarInt.write(header, blockSize);
+        header.writeTo(outputStream);
+        long position = header.size();
+
+        //A single thread compresses the blocks itself instead of starting a pool for every call
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            //Compress blocks in parallel and write them in order, at most two blocks per thread are pending
+            Queue<Future<byte[]>> blocks = new ArrayDeque<>();
+            Queue<Integer> lengths = new ArrayDeque<>();
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            CRC32C checksum = new CRC32C();
+            int blockCount = 0;
+            long blockPosition = 0;
+            while (block != null || !blocks.isEmpty()) {
+                if (block != null) {
+                    Encoder encoder = block.encoder;
+                    blocks.add(executor != null ? executor.submit(encoder::encode)
+                            : CompletableFuture.completedFuture(encoder.encode()));
+                    lengths.add(block.length);
+                    block = source.read(blockSize);
+                }
+                while (!blocks.isEmpty() && (block == null || blocks.size() >= threads * 2)) {
+                    //Write block and its checksum and add its position relative to the previous block and its length to the index
+                    byte[] data = blocks.poll().get();
+                    checksum.reset();
+                    checksum.update(data, 0, data.length);
+                    outputStream.write(data);
+                    outputStream.write(ByteBuffer.allocate(CHECKSUM_SIZE).putInt((int) checksum.getValue()).array());
+                    VarInt.write(index, position - blockPosition);
+                    VarInt.write(index, lengths.poll());
+                    blockPosition = position;
+                    position += data.length + CHECKSUM_SIZE;
+                    blockCount++;
+                }
+            }
+
+            //Write end of blocks followed by the block index, its checksum and its position
+            outputStream.write(0);
+            long indexPosition = position + 1;
+            ByteArrayOutputStream entries = new ByteArrayOutputStream(index.size() + 10);
+            VarInt.write(entries, blockCount);
+            index.writeTo(entries);
+            checksum.reset();
+            checksum.update(entries.toByteArray(), 0, entries.size());
+            entries.writeTo(outputStream);
+            outputStream.write(ByteBuffer.allocate(CHECKSUM_SIZE + 8).putInt((int) checksum.getValue()).putLong(indexPosition).array());
+        } catch (ExecutionException e) {
+            throw failure(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Huffman.CompressionException("Compression was interrupted.");
+        } finally {
+            if (executor != null) executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Decompresses the given range of the data in the given channel, only the blocks holding the range are decoded.
+     *
+     * @param channel  The channel holding the compressed data
+     * @param start    The position of the compressed data in the channel
+     * @param index    The block index of the compressed data
+     * @param checked  True when each block is followed by its checksum
+     * @param from     The offset of the first decompressed character or byte, inclusive
+     * @param to       The offset of the last decompressed character or byte, exclusive
+     * @param threads  The number of threads used to decode blocks
+     * @param decoding The decoding of a single block
+     * @param output   The output the decoded blocks are written to in order
+     * @param <T>      The type of a decoded block
+     * @throws IOException                 Exception thrown when reading or writing fails
+     * @throws Huffman.CompressionException Exception thrown when a block can't be decompressed
+     */
+    static <T> void decompress(FileChannel channel, long start, BlockIndex index, boolean checked, long from, long to,
+                               int threads, Decoding<T> decoding, Output<T> output)
+            throws IOException, Huffman.CompressionException {
+        to = Math.min(to, index.getLength());
+        if (from >= to) return;
+        int first = index.find(from);
+        int last = index.find(to - 1) + 1;
+        if (threads == 1) {
+            for (int block = first; block < last; block++) {
+                write(index, block, from, to, decode(channel, start, index, checked, block, decoding), output);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            //Decode blocks in parallel and write them in order, at most two blocks per thread are pending
+            Queue<Future<T>> blocks = new ArrayDeque<>();
+            int block = first;
+            int written = first;
+            while (block < last || !blocks.isEmpty()) {
+                if (block < last) {
+                    int next = block++;
+                    blocks.add(executor.submit(() -> decode(channel, start, index, checked, next, decoding)));
+                }
+                while (!blocks.isEmpty() && (block == last || blocks.size() >= threads * 2)) {
+                    write(index, written++, from, to, blocks.poll().get(), output);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw failure(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Huffman.CompressionException("Decompression was interrupted.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifies the checksum of each block of checked data without decoding the blocks.
+     *
+     * @param channel The channel holding the compressed data
+     * @param start   The position of the compressed data in the channel
+     * @param index   The block index of the compressed data
+     * @throws IOException Exception thrown when reading fails or a block is corrupt
+     */
+    static void verify(FileChannel channel, long start, BlockIndex index) throws IOException {
+        CRC32C checksum = new CRC32C();
+        for (int block = 0; block < index.getBlockCount(); block++) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start + index.getPosition(block), index.getSize(block));
+            if (VarInt.read(buffer) != index.getLength(block)) throw new IOException("Invalid block index.");
+            buffer.rewind();
+            check(buffer, checksum, block);
+        }
+    }
+
+    /**
+     * Wraps the failure of a block task, keeping its cause.
+     *
+     * @param e Exception thrown by the block task
+     * @return Exception with the message of the cause, or its description when it has no message
+     */
+    private static Huffman.CompressionException failure(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return new Huffman.CompressionException(cause.getMessage() != null ? cause.getMessage() : cause.toString(), cause);
+    }
+
+    private static <T> T decode(FileChannel channel, long start, BlockIndex index, boolean checked, int block,
+                                Decoding<T> decoding) throws IOException {
+        //Map the block, mapped regions can be read from many threads at once
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start + index.getPosition(block), index.getSize(block));
+        if (checked) check(buffer, new CRC32C(), block);
+        int length = index.getLength(block);
+        if (VarInt.read(buffer) != length) throw new IOException("Invalid block index.");
+        return decoding.decode(buffer, length);
+    }
+
+    private static void check(ByteBuffer buffer, CRC32C checksum, int block) throws IOException {
+        //Compare the checksum of the block with the checksum after it and leave the checksum out of the buffer
+        if (buffer.remaining() < CHECKSUM_SIZE) throw new IOException("Invalid block index.");
+        int end = buffer.limit() - CHECKSUM_SIZE;
+        ByteBuffer data = buffer.duplicate();
+        data.limit(end);
+        checksum.reset();
+        checksum.update(data);
+        if ((int) checksum.getValue() != buffer.getInt(end)) throw new IOException("Checksum mismatch in block " + block + ".");
+        buffer.limit(end);
+    }
+
+    private static <T> void write(BlockIndex index, int block, long from, long to, T data, Output<T> output)
+            throws IOException {
+        //Trim the first and last block to the range
+        long offset = index.getOffset(block);
+        int begin = (int) Math.max(0, from - offset);
+        int end = (int) Math.min(index.getLength(block), to - offset);
+        output.write(data, begin, end - begin);
+    }
+
+    /**
+     * A source of blocks, each block holds its length and the task that compresses it.
+     */
+    interface Source {
+        Block read(int blockSize) throws IOException;
+    }
+
+    /**
+     * The compression of a block into its compressed bytes.
+     */
+    interface Encoder {
+        byte[] encode() throws IOException;
+    }
+
+    /**
+     * The decoding of a block after its length into a character or byte array.
+     *
+     * @param <T> The type of a decoded block
+     */
+    interface Decoding<T> {
+        T decode(ByteBuffer buffer, int length) throws IOException;
+    }
+
+    /**
+     * The output of a range of a decoded block.
+     *
+     * @param <T> The type of a decoded block
+     */
+    interface Output<T> {
+        void write(T block, int offset, int length) throws IOException;
+    }
+
+    static final class Block {
+        private final int length;
+        private final Encoder encoder;
+
+        Block(int length, Encoder encoder) {
+            this.length = length;
+            this.encoder = encoder;
+        }
+    }
+}
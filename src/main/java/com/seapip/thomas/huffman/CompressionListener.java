@@ -0,0 +1,25 @@
+package com.seapip.thomas.huffman;
+
+/**
+ * A {@code CompressionListener} receives the measurements of every compression done with the options it's set on.
+ * The listener is called on the thread that called {@code Huffman.compress} once the compressed data is written.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+@FunctionalInterface
+public interface CompressionListener {
+    /**
+     * The default listener, nothing is measured when it's set.
+     */
+    CompressionListener NONE = stats -> {
+    };
+
+    /**
+     * Called after a compression is done.
+     *
+     * @param stats The measurements of the compression
+     */
+    void compressed(CompressionStats stats);
+}
@@ -0,0 +1,135 @@
+package com.seapip.thomas.huffman;
+
+import java.util.Locale;
+
+/**
+ * The {@code CompressionStats} class holds the measurements of a single compression. Symbols are the characters
+ * or bytes that are encoded, the entropy and mean code length are averaged over every code table used.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class CompressionStats {
+    private final long inputBytes;
+    private final long outputBytes;
+    private final long symbols;
+    private final int distinctSymbols;
+    private final long[] phases;
+    private final long totalNanos;
+    private final double entropyBits;
+    private final long codeBits;
+    private final long allocatedBytes;
+
+    CompressionStats(long inputBytes, long outputBytes, long symbols, int distinctSymbols, long[] phases,
+                     long totalNanos, double entropyBits, long codeBits, long allocatedBytes) {
+        this.inputBytes = inputBytes;
+        this.outputBytes = outputBytes;
+        this.symbols = symbols;
+        this.distinctSymbols = distinctSymbols;
+        this.phases = phases;
+        this.totalNanos = totalNanos;
+        this.entropyBits = entropyBits;
+        this.codeBits = codeBits;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public long getSymbols() {
+        return symbols;
+    }
+
+    public int getDistinctSymbols() {
+        return distinctSymbols;
+    }
+
+    /**
+     * Returns the time spent in the given phase. Block compression adds up the phases of its blocks, which can
+     * exceed the total time when blocks are compressed on several threads. Adaptive and dictionary compression count,
+     * build codes and encode at once so their time is reported as encode time.
+     *
+     * @param phase The phase
+     * @return The time in nanoseconds
+     */
+    public long getNanos(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns the input size divided by the compressed size.
+     *
+     * @return The compression ratio
+     */
+    public double getRatio() {
+        return outputBytes == 0 ? 0 : (double) inputBytes / outputBytes;
+    }
+
+    /**
+     * Returns the order-0 entropy of the symbols in bits per symbol, the lower bound of the mean code length.
+     *
+     * @return The entropy in bits per symbol
+     */
+    public double getEntropy() {
+        return symbols == 0 ? 0 : entropyBits / symbols;
+    }
+
+    /**
+     * Returns the mean code length in bits per symbol, without code tables. Adaptive compression has no fixed
+     * code table so its compressed size is used instead.
+     *
+     * @return The mean code length in bits per symbol
+     */
+    public double getMeanCodeLength() {
+        return symbols == 0 ? 0 : (double) codeBits / symbols;
+    }
+
+    /**
+     * Returns the bytes allocated by the calling thread and the threads compressing blocks.
+     *
+     * @return The allocated bytes or -1 when the JVM can't measure allocations
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "Input: %d bytes, %d symbols, %d distinct%n"
+                        + "Output: %d bytes, ratio %.3f%n"
+                        + "Entropy: %.4f bits/symbol, mean code length %.4f bits/symbol%n"
+                        + "Count: %.3fms, code: %.3fms, encode: %.3fms, total: %.3fms%n"
+                        + "Allocated: %d bytes",
+                inputBytes, symbols, distinctSymbols, outputBytes, getRatio(), getEntropy(), getMeanCodeLength(),
+                getNanos(Phase.COUNT) / 1e6, getNanos(Phase.CODE) / 1e6, getNanos(Phase.ENCODE) / 1e6,
+                totalNanos / 1e6, allocatedBytes);
+    }
+
+    /**
+     * The phases of a compression.
+     */
+    public enum Phase {
+        /**
+         * Reading and counting the input.
+         */
+        COUNT,
+        /**
+         * Calculating code lengths and assigning codes.
+         */
+        CODE,
+        /**
+         * Encoding and writing the compressed data.
+         */
+        ENCODE
+    }
+}
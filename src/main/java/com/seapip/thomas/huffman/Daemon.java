@@ -0,0 +1,221 @@
+package com.seapip.thomas.huffman;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The {@code Daemon} class consists exclusively of static methods to run commands in a resident process that listens
+ * on a Unix domain socket, and to send commands to it. A command sent to the daemon runs exactly like it does on
+ * the command line, with its relative paths resolved against the working directory of the client, but it doesn't
+ * pay for starting a runtime and warming up the compression code each time.
+ * <p>
+ * Each connection carries a single command, which is handled on its own virtual thread when the runtime has them
+ * and otherwise on a cached thread. A request holds the working directory and arguments of the command, the response
+ * holds its exit status followed by what it wrote to standard output and standard error.
+ * <p>
+ * Commands run with the rights of the user that started the daemon, so only that user can reach it. The socket
+ * is only created in a directory that just that user can access and only the user can read and write it, and the
+ * client refuses to send a command to a socket owned by another user.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class Daemon {
+
+    private Daemon() {
+    }
+
+    /**
+     * Returns the socket that the daemon listens on and the client connects to when no socket is given.
+     *
+     * @return The {@code huffman.sock} file in the runtime directory of the user, or in the {@code .huffman}
+     * directory in the home directory of the user when there's no runtime directory
+     */
+    public static Path defaultSocket() {
+        String runtimeDirectory = System.getenv("XDG_RUNTIME_DIR");
+        if (runtimeDirectory != null && !runtimeDirectory.isEmpty() && Files.isDirectory(Paths.get(runtimeDirectory))) {
+            return Paths.get(runtimeDirectory, "huffman.sock");
+        }
+        return Paths.get(System.getProperty("user.home"), ".huffman", "huffman.sock");
+    }
+
+    /**
+     * Binds a server channel to the given socket, a socket file left behind by a daemon that's no longer running
+     * is replaced. A missing directory of the socket is created, on POSIX file systems the directory needs to be
+     * owned by the current user and only be accessible by that user, so no other user can connect to the socket
+     * before its permissions are restricted to the current user.
+     *
+     * @param socket The socket file to listen on
+     * @return The bound server channel
+     * @throws IOException Exception thrown when another daemon listens on the socket, the directory of the socket
+     *                     is accessible by other users or binding fails
+     */
+    public static ServerSocketChannel bind(Path socket) throws IOException {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socket);
+        Path directory = socket.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) {
+            if (posix(directory.getRoot())) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        if (posix(directory) && (!Files.getOwner(directory).equals(currentUser(directory))
+                || !PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)).endsWith("------"))) {
+            throw new IOException("The socket directory is accessible by other users.");
+        }
+        if (Files.exists(socket)) {
+            if (listening(address)) throw new IOException("A daemon is already listening on the socket.");
+            Files.delete(socket);
+        }
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(address);
+            if (posix(socket)) Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        return server;
+    }
+
+    /**
+     * Accepts connections and runs their commands until the server channel is closed, the commands that are still
+     * running when it's closed are finished first.
+     *
+     * @param server The bound server channel
+     * @throws IOException Exception thrown when accepting a connection fails
+     */
+    public static void serve(ServerSocketChannel server) throws IOException {
+        ExecutorService executor = executor();
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();
+                executor.execute(() -> handle(channel));
+            }
+        } catch (AsynchronousCloseException e) {
+            //The server channel was closed to stop the daemon
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Runs a command on the daemon listening on the given socket and writes its output to the given streams.
+     *
+     * @param socket    The socket file the daemon listens on
+     * @param directory The directory that relative paths of the command are resolved against
+     * @param args      The command line arguments of the command
+     * @param out       The stream to write the standard output of the command to
+     * @param err       The stream to write the standard error of the command to
+     * @return The exit status of the command
+     * @throws IOException Exception thrown when no daemon listens on the socket, the socket is owned by another user
+     *                     or the connection fails
+     */
+    public static int request(Path socket, Path directory, String[] args, PrintStream out, PrintStream err)
+            throws IOException {
+        //Paths and arguments are only sent to a daemon of the current user
+        if (!Files.exists(socket)) throw new IOException("No daemon is listening on the socket.");
+        if (!Files.getOwner(socket).equals(currentUser(socket))) throw new IOException("The socket is owned by another user.");
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            request.writeUTF(directory.toString());
+            request.writeInt(args.length);
+            for (String arg : args) request.writeUTF(arg);
+            request.flush();
+
+            DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            int status = response.readInt();
+            out.write(readBytes(response));
+            err.write(readBytes(response));
+            out.flush();
+            err.flush();
+            return status;
+        }
+    }
+
+    private static void handle(SocketChannel channel) {
+        try (SocketChannel socketChannel = channel) {
+            DataInputStream request = new DataInputStream(new BufferedInputStream(Channels.newInputStream(socketChannel)));
+            Path directory = Paths.get(request.readUTF());
+            String[] args = new String[request.readInt()];
+            for (int i = 0; i < args.length; i++) args[i] = request.readUTF();
+
+            //Collect the output of the command, invalid arguments are reported like failed commands
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            int status;
+            try (PrintStream outStream = new PrintStream(out, true); PrintStream errStream = new PrintStream(err, true)) {
+                try {
+                    status = Main.run(args, directory, outStream, errStream);
+                } catch (RuntimeException e) {
+                    errStream.println(e);
+                    status = 1;
+                }
+            }
+
+            DataOutputStream response = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(socketChannel)));
+            response.writeInt(status);
+            response.writeInt(out.size());
+            out.writeTo(response);
+            response.writeInt(err.size());
+            err.writeTo(response);
+            response.flush();
+        } catch (IOException e) {
+            //The client closed the connection or sent an incomplete request, there's nobody to report it to
+        }
+    }
+
+    private static boolean listening(UnixDomainSocketAddress address) {
+        //Only connecting tells a live daemon from a socket file left behind
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static UserPrincipal currentUser(Path path) throws IOException {
+        return path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+    }
+
+    private static boolean posix(Path path) throws IOException {
+        return Files.getFileStore(path).supportsFileAttributeView("posix");
+    }
+
+    private static byte[] readBytes(DataInputStream inputStream) throws IOException {
+        byte[] bytes = new byte[inputStream.readInt()];
+        inputStream.readFully(bytes);
+        return bytes;
+    }
+
+    private static ExecutorService executor() {
+        //Virtual threads are only available on newer runtimes, so they're looked up instead of linked
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BitReader;
+import com.seapip.thomas.huffman.huffman.BitWriter;
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+import com.seapip.thomas.huffman.huffman.DecodeTable;
+import com.seapip.thomas.huffman.huffman.Histogram;
+import com.seapip.thomas.huffman.huffman.PackageMerge;
+import com.seapip.thomas.huffman.huffman.VarInt;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code Dictionary} class holds a code table trained once from a sample corpus, data compressed with
+ * a dictionary only stores the dictionary id instead of its own code table. This makes small similar messages
+ * like log lines or JSON records a lot smaller.
+ * <p>
+ * Every character or byte gets a code, characters that don't occur in the sample get long codes.
+ * The encode and decode tables are built once when the dictionary is created, dictionaries are registered
+ * by id so compressed data can be decompressed by looking up its dictionary.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class Dictionary {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAP_SIZE = 1024 * 1024 * 1024;
+    private static final Map<Integer, Dictionary> DICTIONARIES = new ConcurrentHashMap<>();
+
+    private final int id;
+    private final boolean binary;
+    private final CanonicalCode canonicalCode;
+    private final DecodeTable table;
+
+    private Dictionary(int id, boolean binary, CanonicalCode canonicalCode) throws IOException {
+        this.id = id;
+        this.binary = binary;
+        this.canonicalCode = canonicalCode;
+        this.table = canonicalCode.createDecodeTable();
+    }
+
+    /**
+     * Trains a dictionary from the text or bytes in the given sample, the dictionary is registered.
+     *
+     * @param id          The id stored in compressed data, zero or larger
+     * @param inputStream The sample to train the dictionary from
+     * @param options     The options holding the maximum code length and whether the sample is binary
+     * @return The trained dictionary
+     * @throws Huffman.CompressionException Exception thrown when the sample can't be read
+     */
+    public static Dictionary train(int id, InputStream inputStream, Options options) throws Huffman.CompressionException {
+        if (id < 0) throw new IllegalArgumentException("Dictionary id can't be negative.");
+        try {
+            //Count characters or bytes of the sample
+            long[] counts = new long[options.isBinary() ? 256 : Character.MAX_VALUE + 1];
+            Histogram histogram = new Histogram();
+            if (options.isBinary()) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) histogram.count(ByteBuffer.wrap(buffer, 0, read), counts);
+            } else {
+                Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+                char[] buffer = new char[BUFFER_SIZE];
+                int read;
+                while ((read = reader.read(buffer)) != -1) histogram.count(buffer, 0, read, counts);
+            }
+            return train(id, counts, options);
+        } catch (IOException e) {
+            throw new Huffman.CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Trains a dictionary from the text or bytes in the given file, the dictionary is registered. Bytes are
+     * counted from memory mapped buffers on the thread count of the given options.
+     *
+     * @param id      The id stored in compressed data, zero or larger
+     * @param sample  The file to train the dictionary from
+     * @param options The options holding the maximum code length, thread count and whether the sample is binary
+     * @return The trained dictionary
+     * @throws Huffman.CompressionException Exception thrown when the sample can't be read
+     */
+    public static Dictionary train(int id, Path sample, Options options) throws Huffman.CompressionException {
+        if (id < 0) throw new IllegalArgumentException("Dictionary id can't be negative.");
+        if (!options.isBinary()) {
+            try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(sample))) {
+                return train(id, inputStream, options);
+            } catch (IOException e) {
+                throw new Huffman.CompressionException(e.getMessage());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(sample, StandardOpenOption.READ)) {
+            //Map the file in regions of at most 1GB
+            long[] counts = new long[256];
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_SIZE) {
+                ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_SIZE, size - position));
+                Histogram.count(region, counts, options.getThreads());
+            }
+            return train(id, counts, options);
+        } catch (IOException e) {
+            throw new Huffman.CompressionException(e.getMessage());
+        }
+    }
+
+    private static Dictionary train(int id, long[] counts, Options options) throws IOException {
+        //Scale counts so every symbol that doesn't occur in the sample gets a weight of one and a long code
+        long max = 0;
+        for (long count : counts) max = Math.max(max, count);
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(max) - 30);
+        long[] frequencies = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            long count = counts[i] >>> shift;
+            frequencies[i] = counts[i] > 0 ? Math.max(1, count) << 16 : 1;
+        }
+        int[] lengths = PackageMerge.lengths(frequencies, options.getMaxCodeLength());
+        return register(new Dictionary(id, options.isBinary(), new CanonicalCode(lengths)));
+    }
+
+    /**
+     * Returns the registered dictionary with the given id.
+     *
+     * @param id The dictionary id
+     * @return The dictionary or null when no dictionary with the id is registered
+     */
+    public static Dictionary get(int id) {
+        return DICTIONARIES.get(id);
+    }
+
+    /**
+     * Registers the given dictionary, replacing a registered dictionary with the same id.
+     *
+     * @param dictionary The dictionary to register
+     * @return The given dictionary
+     */
+    public static Dictionary register(Dictionary dictionary) {
+        DICTIONARIES.put(dictionary.id, dictionary);
+        return dictionary;
+    }
+
+    /**
+     * Reads a dictionary from the given file and registers it, a dictionary that's already registered
+     * with the same id and code table is returned instead so its tables are only built once.
+     *
+     * @param path The file to read the dictionary from
+     * @return The registered dictionary
+     * @throws Huffman.CompressionException Exception thrown when the file can't be read or isn't a dictionary
+     */
+    public static Dictionary load(Path path) throws Huffman.CompressionException {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(path))) {
+            //Read binary flag, id and code lengths
+            int binary = inputStream.read();
+            if (binary != 0 && binary != 1) throw new IOException("Invalid dictionary.");
+            long id = VarInt.read(inputStream);
+            if (id > Integer.MAX_VALUE) throw new IOException("Invalid dictionary.");
+            CanonicalCode canonicalCode = CanonicalCode.read(new BitReader(inputStream, VarInt.read(inputStream)));
+            if (binary == 1 && canonicalCode.getLengths().length > 256) throw new IOException("Invalid dictionary.");
+
+            Dictionary registered = get((int) id);
+            if (registered != null && registered.binary == (binary == 1)
+                    && Arrays.equals(registered.canonicalCode.getLengths(), canonicalCode.getLengths())) {
+                return registered;
+            }
+            return register(new Dictionary((int) id, binary == 1, canonicalCode));
+        } catch (IOException e) {
+            throw new Huffman.CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Writes this dictionary to the given file.
+     *
+     * @param path The file to write the dictionary to
+     * @throws Huffman.CompressionException Exception thrown when the file can't be written
+     */
+    public void save(Path path) throws Huffman.CompressionException {
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(path))) {
+            //Write binary flag, id, code lengths size in bytes and code lengths
+            outputStream.write(binary ? 1 : 0);
+            VarInt.write(outputStream, id);
+            VarInt.write(outputStream, (canonicalCode.getHeaderSize() + 7) / 8);
+            BitWriter writer = new BitWriter(outputStream);
+            canonicalCode.write(writer);
+            writer.finish();
+        } catch (IOException e) {
+            throw new Huffman.CompressionException(e.getMessage());
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    long[] getCodes() {
+        return canonicalCode.getCodes();
+    }
+
+    int[] getLengths() {
+        return canonicalCode.getLengths();
+    }
+
+    DecodeTable getTable() {
+        return table;
+    }
+}
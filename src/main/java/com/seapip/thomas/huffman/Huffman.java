@@ -1,16 +1,31 @@
 package com.seapip.thomas.huffman;
 
-import com.seapip.thomas.huffman.huffman.BitQueue;
-import com.seapip.thomas.huffman.huffman.CharNode;
-import com.seapip.thomas.huffman.huffman.Node;
-import com.seapip.thomas.huffman.huffman.TreeNode;
+import com.seapip.thomas.huffman.huffman.AdaptiveDecoder;
+import com.seapip.thomas.huffman.huffman.AdaptiveEncoder;
+import com.seapip.thomas.huffman.huffman.BitReader;
+import com.seapip.thomas.huffman.huffman.BitWriter;
+import com.seapip.thomas.huffman.huffman.BlockDecoder;
+import com.seapip.thomas.huffman.huffman.BlockEncoder;
+import com.seapip.thomas.huffman.huffman.BlockIndex;
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+import com.seapip.thomas.huffman.huffman.DecodeTable;
+import com.seapip.thomas.huffman.huffman.Histogram;
+import com.seapip.thomas.huffman.huffman.HuffmanTree;
+import com.seapip.thomas.huffman.huffman.MappedReader;
+import com.seapip.thomas.huffman.huffman.PackageMerge;
+import com.seapip.thomas.huffman.huffman.VarInt;
 
 import java.io.*;
 import java.nio.ByteBuffer;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
 
 /**
  * The {@code Huffman} class consists exclusively of static methods to compress and decompress
@@ -21,78 +36,402 @@ import java.util.Scanner;
  * @since 1.8
  */
 public final class Huffman {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int VERSION_TREE = 0;
+    private static final int VERSION_CANONICAL = 1;
+    private static final int VERSION_BLOCKS = 2;
+    private static final int VERSION_BYTES = 3;
+    private static final int VERSION_DICTIONARY = 4;
+    static final int VERSION_ADAPTIVE = 5;
+    private static final int VERSION_TYPED_BLOCKS = 6;
+    private static final int VERSION_TYPED_BYTES = 7;
+    private static final int VERSION_CHECKED_BLOCKS = 8;
+    static final int VERSION_CHECKED_BYTES = 9;
+    private static final int MESSAGE_BUFFER_SIZE = 4 * 1024;
+
     private Huffman() {
     }
 
     /**
      * Returns a byte array of compressed data for the given text input
+     * <p>
+     * File streams are read twice through their channel, any other stream is spilled to a
+     * temporary file while it's read so the content is never held in memory as a whole.
      *
      * @param inputStream  The data stream to read and compress
      * @param outputStream The data stream to write the compressed data too
      * @throws CompressionException Exception thrown when compressions fails
      */
     public static void compress(InputStream inputStream, OutputStream outputStream) throws CompressionException {
-        try {
-            //Start time
-            long startTime = System.currentTimeMillis();
+        compress(inputStream, outputStream, new Options());
+    }
 
-            //Read text from input stream
-            String content = "";
-            Scanner scanner = new Scanner(inputStream).useDelimiter("\\A");
-            if (scanner.hasNext()) content = scanner.next();
+    /**
+     * Compresses the text from the given stream using the given options.
+     *
+     * @param inputStream  The data stream to read and compress
+     * @param outputStream The data stream to write the compressed data too
+     * @param options      The compression options
+     * @throws CompressionException Exception thrown when compressions fails
+     */
+    public static void compress(InputStream inputStream, OutputStream outputStream, Options options) throws CompressionException {
+        Metrics metrics = new Metrics(options);
+        compress(inputStream, metrics.output(outputStream), options, metrics);
+        metrics.finish();
+    }
 
-            //Throw compression exception if content length is zero
-            if (content.length() == 0) throw new CompressionException("Content length needs to be larger than zero.");
+    private static void compress(InputStream inputStream, OutputStream outputStream, Options options, Metrics metrics)
+            throws CompressionException {
+        if (options.getDictionary() != null) {
+            compressDictionary(metrics.input(inputStream), outputStream, options.getDictionary(), metrics);
+            return;
+        }
+        if (options.isAdaptive()) {
+            compressAdaptive(metrics.input(inputStream), outputStream, options, metrics);
+            return;
+        }
+        if (options.isBinary()) {
+            compressBlocks(VERSION_CHECKED_BYTES, byteSource(metrics.input(inputStream), options, metrics), outputStream, options);
+            return;
+        }
+        if (options.isBlocks()) {
+            Reader reader = new InputStreamReader(metrics.input(inputStream), StandardCharsets.UTF_8);
+            compressBlocks(VERSION_CHECKED_BLOCKS, characterSource(reader, options, metrics), outputStream, options);
+            return;
+        }
+        if (inputStream instanceof FileInputStream) {
+            compress(((FileInputStream) inputStream).getChannel(), outputStream, options, metrics);
+            return;
+        }
+        try {
+            //Create temporary file that is removed again once the channel is closed
+            Path spill = Files.createTempFile("huffman", ".spill");
+            try (FileChannel channel = FileChannel.open(spill, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE)) {
 
-            //Output read time to console
-            long readTime = System.currentTimeMillis();
-            System.out.println("Read time: " + (readTime - startTime) + "ms"); //NOSONAR
+                //Count characters while copying the input stream to the temporary file
+                long[] frequencies = Workspace.get().getFrequencies();
+                InputStream spillInputStream = new SpillInputStream(inputStream, Channels.newOutputStream(channel));
+                long length = count(new InputStreamReader(spillInputStream, StandardCharsets.UTF_8), frequencies);
+                metrics.setInputBytes(channel.size());
 
-            //Create Huffman tree
-            TreeNode tree = new TreeNode(content);
+                //Encode characters from temporary file
+                encode(new MappedReader(channel, 0, StandardCharsets.UTF_8), frequencies, length, outputStream, options, metrics);
+            }
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
 
-            //Convert Huffman tree to map
-            Map<Character, Collection<Boolean>> map = new HashMap<>();
-            tree.toMap(map, new BitQueue());
+    /**
+     * Compresses the text in the given file, the file is read twice so only a fixed size buffer
+     * and the code table are kept in memory.
+     *
+     * @param path         The file to read and compress
+     * @param outputStream The data stream to write the compressed data too
+     * @throws CompressionException Exception thrown when compressions fails
+     */
+    public static void compress(Path path, OutputStream outputStream) throws CompressionException {
+        compress(path, outputStream, new Options());
+    }
+
+    /**
+     * Compresses the text in the given file using the given options.
+     *
+     * @param path         The file to read and compress
+     * @param outputStream The data stream to write the compressed data too
+     * @param options      The compression options
+     * @throws CompressionException Exception thrown when compressions fails
+     */
+    public static void compress(Path path, OutputStream outputStream, Options options) throws CompressionException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            compress(channel, outputStream, options);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
 
-            //Encode characters using map
-            BitQueue bits = new BitQueue();
-            for (char character : content.toCharArray()) bits.addAll(map.get(character));
+    /**
+     * Compresses the text from the current position of the given channel till the end, the channel
+     * is read twice so only a fixed size buffer and the code table are kept in memory.
+     *
+     * @param channel      The seekable channel to read and compress
+     * @param outputStream The data stream to write the compressed data too
+     * @throws CompressionException Exception thrown when compressions fails
+     */
+    public static void compress(FileChannel channel, OutputStream outputStream) throws CompressionException {
+        compress(channel, outputStream, new Options());
+    }
 
-            //Convert encoded data to byte array
-            byte[] data = bits.toByteArray();
+    /**
+     * Compresses the text from the current position of the given channel using the given options.
+     *
+     * @param channel      The seekable channel to read and compress
+     * @param outputStream The data stream to write the compressed data too
+     * @param options      The compression options
+     * @throws CompressionException Exception thrown when compressions fails
+     */
+    public static void compress(FileChannel channel, OutputStream outputStream, Options options) throws CompressionException {
+        Metrics metrics = new Metrics(options);
+        compress(channel, metrics.output(outputStream), options, metrics);
+        metrics.finish();
+    }
 
+    private static void compress(FileChannel channel, OutputStream outputStream, Options options, Metrics metrics)
+            throws CompressionException {
+        if (options.getDictionary() != null) {
+            compressDictionary(metrics.input(Channels.newInputStream(channel)), outputStream, options.getDictionary(), metrics);
+            return;
+        }
+        if (options.isAdaptive()) {
+            InputStream inputStream = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+            compressAdaptive(metrics.input(inputStream), outputStream, options, metrics);
+            return;
+        }
+        try {
+            metrics.setInputBytes(channel.size() - channel.position());
+            if (options.isBinary()) {
+                compressBlocks(VERSION_CHECKED_BYTES, byteSource(channel, options, metrics), outputStream, options);
+                return;
+            }
+            if (options.isBlocks()) {
+                Reader reader = new MappedReader(channel, channel.position(), StandardCharsets.UTF_8);
+                compressBlocks(VERSION_CHECKED_BLOCKS, characterSource(reader, options, metrics), outputStream, options);
+                return;
+            }
 
-            //Output compression time to console
-            long compressionTime = System.currentTimeMillis();
-            System.out.println("Compression time: " + (compressionTime - readTime) + "ms"); //NOSONAR
+            //Count characters
+            long position = channel.position();
+            long[] frequencies = Workspace.get().getFrequencies();
+            long length = count(new MappedReader(channel, position, StandardCharsets.UTF_8), frequencies);
 
-            //Write Huffman tree
-            tree.write(outputStream);
+            //Encode characters
+            encode(new MappedReader(channel, position, StandardCharsets.UTF_8), frequencies, length, outputStream, options, metrics);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
 
-            //Write character count
-            outputStream.write(ByteBuffer.allocate(8).putLong(content.length()).array());
+    private static void compressDictionary(InputStream inputStream, OutputStream outputStream, Dictionary dictionary,
+                                           Metrics metrics) throws CompressionException {
+        try {
+            //Encode in memory first since the character count and compressed data size are written before the data
+            long[] codes = dictionary.getCodes();
+            int[] lengths = dictionary.getLengths();
+            long[] frequencies = metrics.isEnabled() ? new long[lengths.length] : null;
+            Histogram histogram = new Histogram();
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            BitWriter writer = new BitWriter(data, MESSAGE_BUFFER_SIZE);
+            long length = 0;
+            int read;
+            if (dictionary.isBinary()) {
+                byte[] buffer = new byte[MESSAGE_BUFFER_SIZE];
+                while ((read = inputStream.read(buffer)) != -1) {
+                    writer.write(ByteBuffer.wrap(buffer, 0, read), codes, lengths);
+                    if (frequencies != null) histogram.count(ByteBuffer.wrap(buffer, 0, read), frequencies);
+                    length += read;
+                }
+            } else {
+                Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+                char[] buffer = new char[MESSAGE_BUFFER_SIZE];
+                while ((read = reader.read(buffer)) != -1) {
+                    for (int i = 0; i < read; i++) writer.write(codes[buffer[i]], lengths[buffer[i]]);
+                    if (frequencies != null) histogram.count(buffer, 0, read, frequencies);
+                    length += read;
+                }
+            }
+            writer.finish();
 
-            //Write compressed data size in bytes
-            outputStream.write(ByteBuffer.allocate(4).putInt(data.length).array());
+            //Throw compression exception if content length is zero
+            if (length == 0) throw new CompressionException("Content length needs to be larger than zero.");
 
-            //Write compressed data
-            outputStream.write(data);
+            //Write version, dictionary id, character count and compressed data size in bytes followed by the data
+            outputStream.write(VERSION_DICTIONARY);
+            VarInt.write(outputStream, dictionary.getId());
+            VarInt.write(outputStream, length);
+            VarInt.write(outputStream, data.size());
+            data.writeTo(outputStream);
+            if (frequencies != null) metrics.code(frequencies, lengths);
+            metrics.end(CompressionStats.Phase.ENCODE);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
 
-            //Output write time to console
-            long writeTime = System.currentTimeMillis();
-            System.out.println("Write time: " + (writeTime - compressionTime) + "ms"); //NOSONAR
+    private static void compressAdaptive(InputStream inputStream, OutputStream outputStream, Options options,
+                                         Metrics metrics) throws CompressionException {
+        try {
+            //Throw compression exception if content length is zero
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read = inputStream.read(buffer);
+            if (read == -1) throw new CompressionException("Content length needs to be larger than zero.");
 
-            //Output total time to console
-            System.out.println("Total time: " + (writeTime - startTime) + "ms"); //NOSONAR
+            //Encode bytes as they're read, flush whenever no more input is available yet so output isn't held back
+            outputStream.write(VERSION_ADAPTIVE);
+            AdaptiveEncoder encoder = new AdaptiveEncoder(outputStream, options.getAdaptiveInterval(), options.getMaxCodeLength());
+            long[] frequencies = metrics.isEnabled() ? new long[256] : null;
+            Histogram histogram = new Histogram();
+            while (read != -1) {
+                encoder.write(buffer, 0, read);
+                if (frequencies != null) histogram.count(ByteBuffer.wrap(buffer, 0, read), frequencies);
+                if (inputStream.available() == 0) encoder.flush();
+                read = inputStream.read(buffer);
+            }
+            encoder.finish();
+            if (frequencies != null) metrics.code(frequencies, metrics.getOutputBytes() * 8);
+            metrics.end(CompressionStats.Phase.ENCODE);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
 
-            //Output Huffman tree to console
-            System.out.println(tree.toString()); //NOSONAR
+    private static void compressBlocks(int version, Blocks.Source source, OutputStream outputStream, Options options)
+            throws CompressionException {
+        try {
+            //The phases are the times of the blocks, reported by the threads compressing them
+            Blocks.compress(version, source, outputStream, options);
         } catch (IOException e) {
             throw new CompressionException(e.getMessage());
         }
     }
 
+    private static Blocks.Source characterSource(Reader reader, Options options, Metrics metrics) {
+        return blockSize -> {
+            char[] characters = new char[blockSize];
+            int length = read(reader, characters);
+            if (length == 0) return null;
+            return new Blocks.Block(length, () -> {
+                long allocation = metrics.allocation();
+                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(length);
+                BlockEncoder encoder = Workspace.get().getEncoder(options);
+                encoder.encode(characters, 0, length, byteArrayOutputStream);
+                long[] frequencies = encoder.getFrequencies();
+                if (metrics.isEnabled() && encoder.isEstimated()) {
+                    //Stats hold the exact counts, a sampled block is only counted again when they're measured
+                    frequencies = new long[Character.MAX_VALUE + 1];
+                    new Histogram().count(characters, 0, length, frequencies);
+                }
+                metrics.code(frequencies, encoder.getLengths());
+                metrics.block(encoder.getCountNanos(), encoder.getCodeNanos(), encoder.getEncodeNanos());
+                metrics.allocated(allocation);
+                return byteArrayOutputStream.toByteArray();
+            });
+        };
+    }
+
+    private static Blocks.Source byteSource(InputStream inputStream, Options options, Metrics metrics) {
+        return blockSize -> {
+            byte[] bytes = new byte[blockSize];
+            int length = 0;
+            int read;
+            while (length < bytes.length && (read = inputStream.read(bytes, length, bytes.length - length)) != -1) {
+                length += read;
+            }
+            return length == 0 ? null : byteBlock(ByteBuffer.wrap(bytes, 0, length), options, metrics);
+        };
+    }
+
+    private static Blocks.Source byteSource(FileChannel channel, Options options, Metrics metrics) throws IOException {
+        long size = channel.size();
+        long start = channel.position();
+        return new Blocks.Source() {
+            private long position = start;
+
+            @Override
+            public Blocks.Block read(int blockSize) throws IOException {
+                //Map each block, the bytes are compressed directly from the mapped file
+                long length = Math.min(blockSize, size - position);
+                if (length <= 0) return null;
+                ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                position += length;
+                return byteBlock(bytes, options, metrics);
+            }
+        };
+    }
+
+    private static Blocks.Block byteBlock(ByteBuffer bytes, Options options, Metrics metrics) {
+        return new Blocks.Block(bytes.remaining(), () -> {
+            long allocation = metrics.allocation();
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(bytes.remaining());
+            BlockEncoder encoder = Workspace.get().getEncoder(options);
+            encoder.encode(bytes, byteArrayOutputStream);
+            long[] frequencies = encoder.getFrequencies();
+            if (metrics.isEnabled() && encoder.isEstimated()) {
+                //Stats hold the exact counts, a sampled block is only counted again when they're measured
+                frequencies = new long[256];
+                new Histogram().count(bytes.duplicate(), frequencies);
+            }
+            metrics.code(frequencies, encoder.getLengths());
+            metrics.block(encoder.getCountNanos(), encoder.getCodeNanos(), encoder.getEncodeNanos());
+            metrics.allocated(allocation);
+            return byteArrayOutputStream.toByteArray();
+        });
+    }
+
+    private static int read(Reader reader, char[] buffer) throws IOException {
+        //Read until the buffer is full or the reader ends
+        int count = 0;
+        int read;
+        while (count < buffer.length && (read = reader.read(buffer, count, buffer.length - count)) != -1) count += read;
+        return count;
+    }
+
+    private static long count(Reader reader, long[] frequencies) throws IOException {
+        //Read text in fixed size chunks, the reader isn't closed since it doesn't own the stream
+        char[] buffer = Workspace.get().getCharacters();
+        Histogram histogram = new Histogram();
+        long length = 0;
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            histogram.count(buffer, 0, read, frequencies);
+            length += read;
+        }
+        return length;
+    }
+
+    private static void encode(Reader reader, long[] frequencies, long length, OutputStream outputStream,
+                               Options options, Metrics metrics) throws IOException, CompressionException {
+        //Throw compression exception if content length is zero
+        if (length == 0) throw new CompressionException("Content length needs to be larger than zero.");
+        metrics.end(CompressionStats.Phase.COUNT);
+
+        //Only characters up to the last one that occurs get a code, so small text doesn't pay for the whole alphabet
+        int symbols = frequencies.length;
+        while (symbols > 1 && frequencies[symbols - 1] == 0) symbols--;
+        frequencies = Arrays.copyOf(frequencies, symbols);
+
+        //Calculate code lengths limited to the maximum code length and assign canonical codes
+        int[] lengths = PackageMerge.lengths(frequencies, options.getMaxCodeLength());
+        CanonicalCode canonicalCode = new CanonicalCode(lengths);
+        long[] codes = canonicalCode.getCodes();
+        metrics.end(CompressionStats.Phase.CODE);
+
+        //Calculate compressed data size in bits
+        long bitCount = 0;
+        for (int i = 0; i < lengths.length; i++) bitCount += frequencies[i] * lengths[i];
+
+        //Write version, character count and compressed data size in bytes including the code lengths
+        BitWriter writer = new BitWriter(outputStream);
+        outputStream.write(VERSION_CANONICAL);
+        VarInt.write(outputStream, length);
+        VarInt.write(outputStream, (canonicalCode.getHeaderSize() + bitCount + 7) / 8);
+
+        //Write code lengths
+        canonicalCode.write(writer);
+
+        //Encode characters using code table
+        char[] buffer = Workspace.get().getCharacters();
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) writer.write(codes[buffer[i]], lengths[buffer[i]]);
+        }
+
+        //Write remaining bits
+        writer.finish();
+        metrics.end(CompressionStats.Phase.ENCODE);
+        metrics.code(frequencies, lengths);
+    }
+
     /**
      * Returns the original decompressed text for a given compressed data byte array
      *
@@ -102,35 +441,179 @@ public final class Huffman {
      */
     public static void decompress(InputStream inputStream, OutputStream outputStream) throws CompressionException {
         try {
-            //Read Huffman tree
-            TreeNode tree = TreeNode.read(inputStream);
-
-            DataInputStream dataInputStream = new DataInputStream(inputStream);
-            byte[] data = new byte[8];
-
-            //Read character count
-            dataInputStream.readFully(data, 0, 8);
-            long length = ByteBuffer.wrap(data).getLong();
-
-            //Read compressed data size in bytes
-            dataInputStream.readFully(data, 0, 4);
-            int size = ByteBuffer.wrap(data).getInt();
-
-            //Decode compressed data using Huffman tree
-            Node node = tree;
-            int offset = 0;
-            try (PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8")), true)) {
-                for (int i = 0; i < size; i++) {
-                    byte b = dataInputStream.readByte();
-                    for (int mask = 1; mask != 256; mask <<= 1) {
-                        if (offset >= length) break;
-                        if (node instanceof CharNode) {
-                            writer.print(((CharNode) node).getCharacter());
-                            node = tree;
-                            offset++;
-                        }
-                        node = ((b & mask) != 0) ? ((TreeNode) node).getRightNode() : ((TreeNode) node).getLeftNode();
-                    }
+            //Binary data is written without decoding it as text
+            PushbackInputStream pushbackInputStream = new PushbackInputStream(inputStream);
+            int version = readVersion(pushbackInputStream);
+            if (version == VERSION_DICTIONARY) {
+                Dictionary dictionary = readDictionary(pushbackInputStream);
+                if (dictionary.isBinary()) {
+                    decompressDictionary(pushbackInputStream, dictionary, outputStream);
+                    return;
+                }
+                try (PrintWriter writer = createWriter(outputStream)) {
+                    decompressDictionary(pushbackInputStream, dictionary, writer);
+                }
+                return;
+            }
+            if (version == VERSION_ADAPTIVE) {
+                decompressAdaptive(pushbackInputStream, outputStream);
+                return;
+            }
+            if (version == VERSION_BYTES || version == VERSION_TYPED_BYTES || version == VERSION_CHECKED_BYTES) {
+                decompressBytes(pushbackInputStream, version, outputStream);
+                return;
+            }
+            try (PrintWriter writer = createWriter(outputStream)) {
+                decompress(pushbackInputStream, version, writer);
+            }
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Decompresses the given file, block compressed data is decoded in parallel using the thread count of the given options.
+     *
+     * @param path         The file to read and decompress
+     * @param outputStream The data stream to write the decompressed data too
+     * @param options      The options holding the thread count
+     * @throws CompressionException Exception thrown when decompression fails
+     */
+    public static void decompress(Path path, OutputStream outputStream, Options options) throws CompressionException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            decompress(channel, outputStream, options);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Decompresses the data from the current position of the given channel till the end, the compressed data is
+     * read from memory mapped buffers. Block compressed data is decoded in parallel using the thread count
+     * of the given options.
+     *
+     * @param channel      The seekable channel to read and decompress
+     * @param outputStream The data stream to write the decompressed data too
+     * @param options      The options holding the thread count
+     * @throws CompressionException Exception thrown when decompression fails
+     */
+    public static void decompress(FileChannel channel, OutputStream outputStream, Options options) throws CompressionException {
+        decompress(channel, outputStream, 0, Long.MAX_VALUE, options.getThreads());
+    }
+
+    /**
+     * Decompresses the characters from the start offset till the end offset of the given file, block compressed
+     * data only decodes the blocks holding these characters. Offsets count UTF-16 characters, or bytes for
+     * binary data.
+     *
+     * @param path         The file to read and decompress
+     * @param outputStream The data stream to write the decompressed characters too
+     * @param start        The offset of the first character, inclusive
+     * @param end          The offset of the last character, exclusive
+     * @throws CompressionException Exception thrown when decompression fails
+     */
+    public static void decompress(Path path, OutputStream outputStream, long start, long end) throws CompressionException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            decompress(channel, outputStream, start, end);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Decompresses the characters from the start offset till the end offset of the data from the current position
+     * of the given channel, block compressed data only decodes the blocks holding these characters.
+     * Offsets count UTF-16 characters, or bytes for binary data.
+     *
+     * @param channel      The seekable channel to read and decompress
+     * @param outputStream The data stream to write the decompressed characters too
+     * @param start        The offset of the first character, inclusive
+     * @param end          The offset of the last character, exclusive
+     * @throws CompressionException Exception thrown when decompression fails
+     */
+    public static void decompress(FileChannel channel, OutputStream outputStream, long start, long end) throws CompressionException {
+        if (start < 0 || end < start) throw new IllegalArgumentException("Character range is invalid.");
+        decompress(channel, outputStream, start, end, 1);
+    }
+
+    /**
+     * Verifies the checksums of the compressed data in the given file without decoding it, which is about as fast
+     * as reading the file. Only block compressed data written with magic bytes holds checksums.
+     *
+     * @param path The file to verify
+     * @throws CompressionException Exception thrown when the data is corrupt, has no checksums or can't be read
+     */
+    public static void verify(Path path) throws CompressionException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            verify(channel);
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Verifies the checksums of the compressed data from the current position of the given channel till the end
+     * without decoding it, the block index is read first and each block is read from a memory mapped buffer.
+     *
+     * @param channel The seekable channel to verify
+     * @throws CompressionException Exception thrown when the data is corrupt, has no checksums or can't be read
+     */
+    public static void verify(FileChannel channel) throws CompressionException {
+        try {
+            long start = channel.position();
+            int version = readVersion(channel, start);
+            if (version != VERSION_CHECKED_BLOCKS && version != VERSION_CHECKED_BYTES) {
+                throw new CompressionException("Compressed data version " + version + " has no checksums.");
+            }
+            Blocks.verify(channel, start, BlockIndex.read(channel, start, true));
+        } catch (IOException e) {
+            throw new CompressionException(e.getMessage());
+        }
+    }
+
+    private static void decompress(FileChannel channel, OutputStream outputStream, long from, long to, int threads)
+            throws CompressionException {
+        try {
+            long start = channel.position();
+            long size = channel.size() - start;
+            int version = readVersion(channel, start);
+            if ((version == VERSION_DICTIONARY || version == VERSION_ADAPTIVE) && from == 0 && to == Long.MAX_VALUE) {
+                //Dictionary and adaptive compressed data are read as a stream
+                decompress(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE), outputStream);
+                return;
+            }
+            boolean checked = version == VERSION_CHECKED_BLOCKS || version == VERSION_CHECKED_BYTES;
+            boolean typed = checked || version == VERSION_TYPED_BLOCKS || version == VERSION_TYPED_BYTES;
+            if (version == VERSION_BYTES || version == VERSION_TYPED_BYTES || version == VERSION_CHECKED_BYTES) {
+                BlockIndex index = BlockIndex.read(channel, start, checked);
+                Blocks.decompress(channel, start, index, checked, from, to, threads, (buffer, length) -> {
+                    byte[] bytes = new byte[length];
+                    new BlockDecoder(typed).decode(buffer, bytes, 0, length);
+                    return bytes;
+                }, outputStream::write);
+                outputStream.flush();
+                return;
+            }
+            try (PrintWriter writer = createWriter(outputStream)) {
+                if (version == VERSION_BLOCKS || version == VERSION_TYPED_BLOCKS || version == VERSION_CHECKED_BLOCKS) {
+                    BlockIndex index = BlockIndex.read(channel, start, checked);
+                    Blocks.decompress(channel, start, index, checked, from, to, threads, (buffer, length) -> {
+                        char[] characters = new char[length];
+                        new BlockDecoder(typed).decode(buffer, characters, 0, length);
+                        return characters;
+                    }, writer::write);
+                    return;
+                }
+
+                //Other versions have no block index and are decoded from the start
+                Writer rangeWriter = from == 0 && to == Long.MAX_VALUE ? writer : new RangeWriter(writer, from, to - from);
+                if (version == VERSION_CANONICAL && size <= Integer.MAX_VALUE) {
+                    //Decode the single block directly from the mapped file
+                    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start + 1, size - 1);
+                    new BlockDecoder().decode(buffer, VarInt.read(buffer), rangeWriter);
+                } else {
+                    //The tree format and files of 2GB or more are read as a stream
+                    decompress(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE), rangeWriter);
                 }
             }
         } catch (IOException e) {
@@ -138,9 +621,287 @@ public final class Huffman {
         }
     }
 
+    private static PrintWriter createWriter(OutputStream outputStream) {
+        //Closing the writer flushes the caller's stream without closing it
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(new UnclosedOutputStream(outputStream), StandardCharsets.UTF_8)), true);
+    }
+
+    private static int readVersion(FileChannel channel, long position) throws IOException, CompressionException {
+        //Checked data starts with the magic bytes followed by the version
+        ByteBuffer buffer = ByteBuffer.allocate(Blocks.MAGIC.length + 1);
+        buffer.limit(1);
+        BlockIndex.read(channel, buffer, position);
+        if (buffer.get(0) != Blocks.MAGIC[0]) return buffer.get(0) & 0xFF;
+        buffer.limit(buffer.capacity());
+        BlockIndex.read(channel, buffer, position + 1);
+        return readVersion(buffer.array());
+    }
+
+    private static int readVersion(InputStream inputStream) throws IOException, CompressionException {
+        int version = inputStream.read();
+        if (version == -1) throw new EOFException("Unexpected end of compressed data.");
+        if (version != (Blocks.MAGIC[0] & 0xFF)) return version;
+        byte[] header = new byte[Blocks.MAGIC.length + 1];
+        header[0] = (byte) version;
+        new DataInputStream(inputStream).readFully(header, 1, Blocks.MAGIC.length);
+        return readVersion(header);
+    }
+
+    private static int readVersion(byte[] header) throws CompressionException {
+        for (int i = 0; i < Blocks.MAGIC.length; i++) {
+            if (header[i] != Blocks.MAGIC[i]) throw new CompressionException("Invalid compressed data header.");
+        }
+        int version = header[Blocks.MAGIC.length] & 0xFF;
+        if (version != VERSION_CHECKED_BLOCKS && version != VERSION_CHECKED_BYTES) {
+            throw new CompressionException("Unknown compressed data version " + version + ".");
+        }
+        return version;
+    }
+
+    private static void decompress(InputStream inputStream, Writer writer) throws IOException, CompressionException {
+        PushbackInputStream pushbackInputStream = new PushbackInputStream(inputStream);
+        decompress(pushbackInputStream, readVersion(pushbackInputStream), writer);
+    }
+
+    private static void decompress(PushbackInputStream pushbackInputStream, int version, Writer writer)
+            throws IOException, CompressionException {
+        //Files without version start with the Huffman tree which always starts with a zero byte
+        if (version == VERSION_TREE) pushbackInputStream.unread(version);
+
+        switch (version) {
+            case VERSION_TREE:
+                decompressTree(pushbackInputStream, writer);
+                break;
+            case VERSION_CANONICAL:
+                new BlockDecoder().decode(pushbackInputStream, VarInt.read(pushbackInputStream), writer);
+                break;
+            case VERSION_BLOCKS:
+            case VERSION_TYPED_BLOCKS:
+            case VERSION_CHECKED_BLOCKS:
+                BlockDecoder decoder = new BlockDecoder(version != VERSION_BLOCKS);
+                decompressBlocks(pushbackInputStream, version == VERSION_CHECKED_BLOCKS,
+                        (blockInputStream, length) -> decoder.decode(blockInputStream, length, writer));
+                break;
+            case VERSION_DICTIONARY:
+                Dictionary dictionary = readDictionary(pushbackInputStream);
+                if (dictionary.isBinary()) throw new CompressionException("Binary data can't be decompressed as text.");
+                decompressDictionary(pushbackInputStream, dictionary, writer);
+                break;
+            case VERSION_BYTES:
+            case VERSION_ADAPTIVE:
+            case VERSION_TYPED_BYTES:
+            case VERSION_CHECKED_BYTES:
+                throw new CompressionException("Binary data can't be decompressed as text.");
+            default:
+                throw new CompressionException("Unknown compressed data version " + version + ".");
+        }
+    }
+
+    private static void decompressTree(InputStream inputStream, Writer writer) throws IOException {
+        //Read Huffman tree
+        HuffmanTree tree = HuffmanTree.read(inputStream);
+
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        byte[] data = new byte[8];
+
+        //Read character count
+        dataInputStream.readFully(data, 0, 8);
+        long length = ByteBuffer.wrap(data).getLong();
+
+        //Read compressed data size in bytes
+        dataInputStream.readFully(data, 0, 4);
+        int size = ByteBuffer.wrap(data).getInt();
+
+        //Decode compressed data using decode table, or Huffman tree when it's too deep for a table
+        DecodeTable table = tree.createDecodeTable();
+        if (table != null) decode(table, new BitReader(inputStream, size), length, writer);
+        else decode(tree, dataInputStream, length, size, writer);
+    }
+
+    private static void decompressBlocks(InputStream inputStream, boolean checked, BlockDecoding decoding) throws IOException {
+        //Read block size
+        VarInt.read(inputStream);
+
+        //Decode blocks till the end of blocks, the block index isn't needed to decode all blocks in order.
+        //The checksum after a block is compared once the block is decoded
+        CRC32C checksum = new CRC32C();
+        InputStream blockInputStream = checked ? new CheckedInputStream(inputStream, checksum) : inputStream;
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        long length;
+        for (int block = 0; (length = VarInt.read(blockInputStream)) != 0; block++) {
+            decoding.decode(blockInputStream, length);
+            if (checked && dataInputStream.readInt() != (int) checksum.getValue()) {
+                throw new IOException("Checksum mismatch in block " + block + ".");
+            }
+            checksum.reset();
+        }
+    }
+
+    private static void decompressBytes(InputStream inputStream, int version, OutputStream outputStream) throws IOException {
+        BlockDecoder decoder = new BlockDecoder(version != VERSION_BYTES);
+        decompressBlocks(inputStream, version == VERSION_CHECKED_BYTES,
+                (blockInputStream, length) -> decoder.decode(blockInputStream, length, outputStream));
+        outputStream.flush();
+    }
+
+    private static void decompressAdaptive(InputStream inputStream, OutputStream outputStream) throws IOException {
+        //Decoding stops at a flush, which is passed on so the output isn't held back
+        AdaptiveDecoder decoder = new AdaptiveDecoder(inputStream);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = decoder.read(buffer, 0, buffer.length)) != -1) {
+            outputStream.write(buffer, 0, read);
+            if (read < buffer.length) outputStream.flush();
+        }
+        outputStream.flush();
+    }
+
+    private static Dictionary readDictionary(InputStream inputStream) throws IOException, CompressionException {
+        long id = VarInt.read(inputStream);
+        Dictionary dictionary = id > Integer.MAX_VALUE ? null : Dictionary.get((int) id);
+        if (dictionary == null) throw new CompressionException("Unknown dictionary " + id + ".");
+        return dictionary;
+    }
+
+    private static void decompressDictionary(InputStream inputStream, Dictionary dictionary, Writer writer) throws IOException {
+        //Read character count and compressed data size in bytes
+        long length = VarInt.read(inputStream);
+        BitReader reader = new BitReader(inputStream, VarInt.read(inputStream));
+        decode(dictionary.getTable(), reader, length, writer);
+        reader.finish();
+    }
+
+    private static void decompressDictionary(InputStream inputStream, Dictionary dictionary, OutputStream outputStream)
+            throws IOException {
+        //Read byte count and compressed data size in bytes
+        long length = VarInt.read(inputStream);
+        BitReader reader = new BitReader(inputStream, VarInt.read(inputStream));
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, length)];
+        for (long offset = 0; offset < length; ) {
+            int count = (int) Math.min(buffer.length, length - offset);
+            dictionary.getTable().decode(reader, buffer, 0, count);
+            outputStream.write(buffer, 0, count);
+            offset += count;
+        }
+        reader.finish();
+        outputStream.flush();
+    }
+
+    private static void decode(DecodeTable table, BitReader reader, long length, Writer writer) throws IOException {
+        char[] buffer = new char[(int) Math.min(BUFFER_SIZE, length)];
+        for (long offset = 0; offset < length; ) {
+            int count = (int) Math.min(buffer.length, length - offset);
+            table.decode(reader, buffer, 0, count);
+            writer.write(buffer, 0, count);
+            offset += count;
+        }
+    }
+
+    private static void decode(HuffmanTree tree, DataInputStream dataInputStream, long length, int size,
+                               Writer writer) throws IOException {
+        int root = tree.getRoot();
+        if (root == HuffmanTree.NONE) throw new IOException("Invalid Huffman tree.");
+        int node = root;
+        long offset = 0;
+        for (int i = 0; i < size; i++) {
+            byte b = dataInputStream.readByte();
+            for (int mask = 1; mask != 256 && offset < length; mask <<= 1) {
+                //Follow the bits from the root until a character is reached
+                node = tree.getChild(node, (b & mask) != 0);
+                if (node == HuffmanTree.NONE) throw new IOException("Invalid compressed data.");
+                if (node < 0) {
+                    writer.write(~node);
+                    node = root;
+                    offset++;
+                }
+            }
+        }
+    }
+
+    /**
+     * The decoding of a block after its length from a stream.
+     */
+    private interface BlockDecoding {
+        void decode(InputStream inputStream, long length) throws IOException;
+    }
+
+    private static class RangeWriter extends FilterWriter {
+        private long skip;
+        private long remaining;
+
+        RangeWriter(Writer writer, long skip, long length) {
+            super(writer);
+            this.skip = skip;
+            this.remaining = length;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            write(new char[]{(char) c}, 0, 1);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            //Skip characters before the range and drop characters after it
+            int skipped = (int) Math.min(skip, len);
+            skip -= skipped;
+            int count = (int) Math.min(remaining, len - skipped);
+            if (count > 0) out.write(cbuf, off + skipped, count);
+            remaining -= count;
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            write(str.toCharArray(), off, len);
+        }
+    }
+
+    private static class UnclosedOutputStream extends FilterOutputStream {
+        UnclosedOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private static class SpillInputStream extends FilterInputStream {
+        private final OutputStream spill;
+
+        SpillInputStream(InputStream inputStream, OutputStream spill) {
+            super(inputStream);
+            this.spill = spill;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) spill.write(b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) spill.write(b, off, read);
+            return read;
+        }
+    }
+
     public static class CompressionException extends Exception {
         public CompressionException(String message) {
             super(message);
         }
+
+        public CompressionException(String message, Throwable cause) {
+            super(message, cause);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BlockDecoder;
+import com.seapip.thomas.huffman.huffman.VarInt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * The {@code HuffmanDecoder} class decompresses binary data in the checksummed block format from a buffer into
+ * a buffer, as written by a {@code HuffmanEncoder} or by {@code Huffman.compress}. Heap and direct buffers are both
+ * read directly.
+ * <p>
+ * A block that's complete in the input buffer is decoded straight from it, a block that's split over several calls
+ * is collected first. Blocks are decoded straight into an output buffer that has room for the whole block, heap
+ * buffers through their array and direct buffers by index, otherwise they're decoded into a block buffer that's moved
+ * to the output buffer as it gets room. The checksum
+ * of each block is compared before it's decoded. The buffers are kept between calls and after a reset,
+ * so a decoder that's reused for many messages doesn't allocate buffers for each of them. A decoder isn't
+ * thread safe.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class HuffmanDecoder {
+    private static final int MAX_VARINT_SIZE = 10;
+
+    private final BlockDecoder decoder = new BlockDecoder(true);
+    private final CRC32C checksum = new CRC32C();
+    private ByteBuffer input = ByteBuffer.allocate(64);
+    private byte[] block = new byte[0];
+    private int blockOffset;
+    private int blockEnd;
+    private State state = State.HEADER;
+    private long blockSize;
+    private long length;
+    private int type;
+    private long size;
+    private long entries;
+    private long position;
+    private long indexPosition;
+
+    private enum State {
+        HEADER, BLOCK_SIZE, BLOCK_LENGTH, BLOCK_HEADER, BLOCK, INDEX_COUNT, INDEX, TRAILER, DONE
+    }
+
+    /**
+     * Decompresses the remaining compressed data of the source buffer into the destination buffer.
+     *
+     * @param src The compressed data, the position is moved past the consumed bytes and never past the end of
+     *            the compressed data
+     * @param dst The buffer to write the decompressed bytes to, the position is moved past the written bytes
+     * @return True when the end of the compressed data is reached and all decompressed bytes are written, false
+     * when this needs to be called again with more compressed data or room in the destination
+     * @throws IOException Exception thrown when the compressed data is invalid or corrupt
+     */
+    public boolean decode(ByteBuffer src, ByteBuffer dst) throws IOException {
+        while (true) {
+            //Move the rest of the last decoded block to the destination first
+            int count = Math.min(blockEnd - blockOffset, dst.remaining());
+            dst.put(block, blockOffset, count);
+            blockOffset += count;
+            if (blockOffset < blockEnd) return false;
+
+            ByteBuffer buffer;
+            switch (state) {
+                case HEADER:
+                    if ((buffer = read(src, Blocks.MAGIC.length + 1)) == null) return false;
+                    for (byte b : Blocks.MAGIC) if (buffer.get() != b) throw new IOException("Invalid compressed data header.");
+                    int version = buffer.get() & 0xFF;
+                    if (version != Huffman.VERSION_CHECKED_BYTES) throw new IOException("Unsupported compressed data version " + version + ".");
+                    consumed(buffer, buffer.position() - Blocks.MAGIC.length - 1);
+                    state = State.BLOCK_SIZE;
+                    break;
+                case BLOCK_SIZE:
+                    if ((buffer = readVarInt(src, 0)) == null) return false;
+                    int start = buffer.position();
+                    blockSize = VarInt.read(buffer);
+                    consumed(buffer, start);
+                    state = State.BLOCK_LENGTH;
+                    break;
+                case BLOCK_LENGTH:
+                    //The checksum of a block starts at its length, a zero length marks the end of blocks
+                    if ((buffer = readVarInt(src, 0)) == null) return false;
+                    checksum.reset();
+                    start = buffer.position();
+                    length = VarInt.read(buffer);
+                    if (length > blockSize) throw new IOException("Invalid block length.");
+                    consumed(buffer, start);
+                    if (length == 0) {
+                        indexPosition = position;
+                        checksum.reset();
+                    }
+                    state = length == 0 ? State.INDEX_COUNT : State.BLOCK_HEADER;
+                    break;
+                case BLOCK_HEADER:
+                    if ((buffer = readVarInt(src, 1)) == null) return false;
+                    start = buffer.position();
+                    type = buffer.get() & 0xFF;
+                    size = VarInt.read(buffer);
+                    if (size > Integer.MAX_VALUE - 8 - Blocks.CHECKSUM_SIZE) throw new IOException("Invalid block size.");
+                    consumed(buffer, start);
+                    state = State.BLOCK;
+                    break;
+                case BLOCK:
+                    if ((buffer = read(src, (int) size + Blocks.CHECKSUM_SIZE)) == null) return false;
+                    decodeBlock(buffer, dst);
+                    state = State.BLOCK_LENGTH;
+                    break;
+                case INDEX_COUNT:
+                    if ((buffer = readVarInt(src, 0)) == null) return false;
+                    start = buffer.position();
+                    entries = VarInt.read(buffer) * 2;
+                    consumed(buffer, start);
+                    state = State.INDEX;
+                    break;
+                case INDEX:
+                    //The index isn't needed to decode the blocks in order, only its checksum is compared
+                    for (; entries > 0; entries--) {
+                        if ((buffer = readVarInt(src, 0)) == null) return false;
+                        start = buffer.position();
+                        VarInt.read(buffer);
+                        consumed(buffer, start);
+                    }
+                    state = State.TRAILER;
+                    break;
+                case TRAILER:
+                    if ((buffer = read(src, Blocks.CHECKSUM_SIZE + 8)) == null) return false;
+                    if (buffer.getInt() != (int) checksum.getValue()) throw new IOException("Checksum mismatch in block index.");
+                    if (buffer.getLong() != indexPosition) throw new IOException("Invalid block index.");
+                    input.clear();
+                    state = State.DONE;
+                    break;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * Resets the decoder so it starts reading new compressed data, pending input and output are dropped.
+     */
+    public void reset() {
+        input.clear();
+        blockOffset = 0;
+        blockEnd = 0;
+        state = State.HEADER;
+        position = 0;
+    }
+
+    private void decodeBlock(ByteBuffer buffer, ByteBuffer dst) throws IOException {
+        //Compare the checksum after the block with the checksum of the block including its header
+        int start = buffer.position();
+        int end = start + (int) size;
+        int limit = buffer.limit();
+        buffer.limit(end);
+        checksum.update(buffer);
+        buffer.limit(limit);
+        if (buffer.getInt(end) != (int) checksum.getValue()) throw new IOException("Checksum mismatch in block.");
+
+        //Decode straight into the destination when it has room for the block, through its array when it has one.
+        //The buffer itself is limited to the block instead of a view of it, so no buffer is created per block
+        buffer.limit(end).position(start);
+        try {
+            if (dst.remaining() >= length) {
+                if (dst.hasArray()) decoder.decode(type, buffer, dst.array(), dst.arrayOffset() + dst.position(), (int) length);
+                else decoder.decode(type, buffer, dst, dst.position(), (int) length);
+                dst.position(dst.position() + (int) length);
+            } else {
+                if (block.length < length) block = new byte[(int) length];
+                decoder.decode(type, buffer, block, 0, (int) length);
+                blockOffset = 0;
+                blockEnd = (int) length;
+            }
+        } finally {
+            buffer.limit(limit);
+        }
+        buffer.position(end + Blocks.CHECKSUM_SIZE);
+        position += size + Blocks.CHECKSUM_SIZE;
+        input.clear();
+    }
+
+    /**
+     * Returns a buffer holding at least the given number of bytes at its position, the source itself when it holds
+     * them and nothing is collected yet, otherwise the collected bytes.
+     *
+     * @return The buffer or null when the source doesn't hold enough bytes yet, which are collected till the next call
+     */
+    private ByteBuffer read(ByteBuffer src, int count) {
+        if (input.position() == 0 && src.remaining() >= count) return src;
+        if (input.capacity() < count) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(count, input.capacity() * 2));
+            input.flip();
+            input = grown.put(input);
+        }
+        int copied = Math.min(count - input.position(), src.remaining());
+        int limit = src.limit();
+        src.limit(src.position() + copied);
+        input.put(src);
+        src.limit(limit);
+        if (input.position() < count) return null;
+        input.flip();
+        return input;
+    }
+
+    /**
+     * Returns a buffer holding the given number of bytes followed by a whole variable length number at its position.
+     */
+    private ByteBuffer readVarInt(ByteBuffer src, int prefix) {
+        if (input.position() == 0) {
+            for (int i = src.position() + prefix; i < src.limit() && i < src.position() + prefix + MAX_VARINT_SIZE; i++) {
+                if ((src.get(i) & 0x80) == 0) return src;
+            }
+        }
+
+        //Collect the number a byte at a time until its last byte
+        while (src.hasRemaining()) {
+            byte b = src.get();
+            input.put(b);
+            if (input.position() > prefix && (b & 0x80) == 0 || input.position() == prefix + MAX_VARINT_SIZE) {
+                input.flip();
+                return input;
+            }
+        }
+        return null;
+    }
+
+    private void consumed(ByteBuffer buffer, int start) {
+        //Add the bytes since the given position to the checksum and position, the collected bytes are used up
+        int end = buffer.position();
+        int limit = buffer.limit();
+        buffer.limit(end).position(start);
+        checksum.update(buffer);
+        buffer.limit(limit);
+        position += end - start;
+        if (buffer == input) input.clear();
+    }
+}
@@ -0,0 +1,254 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BlockEncoder;
+import com.seapip.thomas.huffman.huffman.VarInt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * The {@code HuffmanEncoder} class compresses bytes from a buffer into a buffer in the same checksummed block format
+ * as binary data compressed with {@code Huffman.compress}, so the output can be decompressed with either
+ * {@code Huffman.decompress} or a {@code HuffmanDecoder}. Heap and direct buffers are both read and written
+ * directly.
+ * <p>
+ * Input is consumed a block at a time, a block that's complete in the input buffer is compressed straight from it
+ * and a block that's split over several calls is collected first. Compressed data is written straight to the output
+ * buffer when it has room for the whole block, otherwise it's kept until the next call. The buffers are kept
+ * between calls and after a reset, so an encoder that's reused for many messages doesn't allocate buffers for
+ * each of them. An encoder isn't thread safe.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class HuffmanEncoder {
+    //A stored block is never larger than its bytes plus its header and checksum
+    private static final int MAX_OVERHEAD = 64;
+
+    private final BlockEncoder encoder;
+    private final int blockSize;
+    private final CRC32C checksum = new CRC32C();
+    private final Output output = new Output();
+    private final Output index = new Output();
+    private final ByteBuffer trailer = ByteBuffer.allocate(Blocks.CHECKSUM_SIZE + 8);
+    private ByteBuffer block;
+    private boolean started;
+    private boolean finished;
+    private long blockPosition;
+    private int blockCount;
+
+    /**
+     * Creates an encoder with the default options.
+     */
+    public HuffmanEncoder() {
+        this(new Options());
+    }
+
+    /**
+     * Creates an encoder that uses the block size, maximum code length, interleaving, contexts, profile and
+     * level of the given options.
+     *
+     * @param options The compression options
+     */
+    public HuffmanEncoder(Options options) {
+        this.encoder = new BlockEncoder(options.getMaxCodeLength(), options.isInterleaved(), options.isContexts(),
+                options.getAnsGain(), options.isSampled());
+        this.blockSize = options.getEffectiveBlockSize();
+    }
+
+    /**
+     * Compresses the remaining bytes of the source buffer into the destination buffer. The compressed data is complete
+     * once this returns true for a call with the end of input set, afterwards the encoder needs to be reset before
+     * it's used again.
+     *
+     * @param src        The bytes to compress, the position is moved past the consumed bytes
+     * @param dst        The buffer to write the compressed data to, the position is moved past the written bytes
+     * @param endOfInput True when the source holds the last bytes to compress
+     * @return True when every byte of the source is consumed and all compressed data so far is written, false when
+     * the destination is full and this needs to be called again with room in the destination
+     * @throws IOException Exception thrown when the encoder is already finished
+     */
+    public boolean encode(ByteBuffer src, ByteBuffer dst, boolean endOfInput) throws IOException {
+        if (!output.drain(dst)) return false;
+        if (finished) {
+            if (src.hasRemaining()) throw new IOException("Encoder is finished, reset it to encode more data.");
+            return true;
+        }
+        if (!started) {
+            //Write magic bytes, version and block size
+            started = true;
+            output.start(dst, MAX_OVERHEAD);
+            output.write(Blocks.MAGIC);
+            output.write(Huffman.VERSION_CHECKED_BYTES);
+            VarInt.write(output, blockSize);
+            if (!output.drain(dst)) return false;
+        }
+
+        while (true) {
+            if (block != null && block.position() > 0 || src.remaining() < blockSize && !endOfInput) {
+                //Collect a block that's split over several calls
+                if (block == null) block = ByteBuffer.allocate(blockSize);
+                int count = Math.min(block.remaining(), src.remaining());
+                int limit = src.limit();
+                src.limit(src.position() + count);
+                block.put(src);
+                src.limit(limit);
+                if (block.hasRemaining() && !endOfInput) return true;
+                block.flip();
+                if (block.hasRemaining()) writeBlock(block, dst);
+                block.clear();
+            } else if (src.hasRemaining()) {
+                //Compress a block straight from the source
+                int count = Math.min(blockSize, src.remaining());
+                int limit = src.limit();
+                src.limit(src.position() + count);
+                writeBlock(src, dst);
+                src.limit(limit).position(src.position() + count);
+            } else {
+                if (endOfInput) writeIndex(dst);
+                return output.drain(dst);
+            }
+            if (!output.drain(dst)) return false;
+        }
+    }
+
+    /**
+     * Resets the encoder so it starts new compressed data, pending input and output are dropped.
+     */
+    public void reset() {
+        output.reset();
+        index.reset();
+        if (block != null) block.clear();
+        started = false;
+        finished = false;
+        blockPosition = 0;
+        blockCount = 0;
+    }
+
+    private void writeBlock(ByteBuffer bytes, ByteBuffer dst) throws IOException {
+        //Write block and its checksum and add its position relative to the previous block and its length to the index
+        int length = bytes.remaining();
+        long position = output.getWritten();
+        int start = output.start(dst, (long) length + MAX_OVERHEAD);
+        encoder.encode(bytes, output);
+        output.checksum(checksum, start);
+        output.write(trailer.putInt(0, (int) checksum.getValue()).array(), 0, Blocks.CHECKSUM_SIZE);
+        VarInt.write(index, position - blockPosition);
+        VarInt.write(index, length);
+        blockPosition = position;
+        blockCount++;
+    }
+
+    private void writeIndex(ByteBuffer dst) throws IOException {
+        //Write end of blocks followed by the block index, its checksum and its position
+        output.start(dst, (long) index.size() + MAX_OVERHEAD);
+        output.write(0);
+        long indexPosition = output.getWritten();
+        int start = output.mark();
+        VarInt.write(output, blockCount);
+        output.write(index.data, 0, index.size());
+        output.checksum(checksum, start);
+        output.write(trailer.putInt(0, (int) checksum.getValue()).putLong(Blocks.CHECKSUM_SIZE, indexPosition).array());
+        finished = true;
+    }
+
+    /**
+     * The output of the encoder, which writes straight to the destination buffer or keeps the data until there's
+     * room in the destination buffer.
+     */
+    private static final class Output extends OutputStream {
+        private ByteBuffer buffer;
+        private byte[] data = new byte[256];
+        private int size;
+        private int drained;
+        private long written;
+
+        /**
+         * Starts writing the given number of bytes at most, straight to the destination buffer when nothing is kept
+         * and the destination has room for all of them.
+         *
+         * @return The position that the written bytes start at
+         */
+        int start(ByteBuffer dst, long maxSize) {
+            buffer = size == 0 && dst.remaining() >= maxSize ? dst : null;
+            return mark();
+        }
+
+        int mark() {
+            return buffer != null ? buffer.position() : size;
+        }
+
+        /**
+         * Updates the checksum with the bytes written since the given position.
+         */
+        void checksum(CRC32C checksum, int start) {
+            checksum.reset();
+            if (buffer == null) {
+                checksum.update(data, start, size - start);
+                return;
+            }
+            int position = buffer.position();
+            int limit = buffer.limit();
+            buffer.limit(position).position(start);
+            checksum.update(buffer);
+            buffer.limit(limit);
+        }
+
+        /**
+         * Moves the kept bytes to the destination buffer.
+         *
+         * @return True when no bytes are kept anymore
+         */
+        boolean drain(ByteBuffer dst) {
+            int count = Math.min(size - drained, dst.remaining());
+            dst.put(data, drained, count);
+            drained += count;
+            if (drained < size) return false;
+            size = 0;
+            drained = 0;
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long getWritten() {
+            return written;
+        }
+
+        void reset() {
+            buffer = null;
+            size = 0;
+            drained = 0;
+            written = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            if (buffer != null) {
+                buffer.put((byte) b);
+            } else {
+                if (size == data.length) data = Arrays.copyOf(data, size * 2);
+                data[size++] = (byte) b;
+            }
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (buffer != null) {
+                buffer.put(b, off, len);
+            } else {
+                if (size + len > data.length) data = Arrays.copyOf(data, Math.max(size + len, data.length * 2));
+                System.arraycopy(b, off, data, size, len);
+                size += len;
+            }
+            written += len;
+        }
+    }
+}
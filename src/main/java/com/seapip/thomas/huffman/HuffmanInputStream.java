@@ -0,0 +1,84 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.AdaptiveDecoder;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The {@code HuffmanInputStream} class decompresses data in the adaptive format written by a
+ * {@code HuffmanOutputStream} or by {@code Huffman.compress} with an adaptive interval. Bulk reads are decoded
+ * straight into the caller's buffer and return at a flush, so data is passed on as soon as it was flushed.
+ * <p>
+ * The stream reads ahead of the end of the compressed data in the underlying stream.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class HuffmanInputStream extends FilterInputStream {
+    private final AdaptiveDecoder decoder;
+    private final byte[] single = new byte[1];
+
+    /**
+     * Creates a stream and reads the header of the compressed data.
+     *
+     * @param inputStream The stream to read the compressed data from
+     * @throws IOException Exception thrown when the header can't be read or the data isn't in the adaptive format
+     */
+    public HuffmanInputStream(InputStream inputStream) throws IOException {
+        super(inputStream);
+        int version = inputStream.read();
+        if (version == -1) throw new EOFException("Unexpected end of compressed data.");
+        if (version != Huffman.VERSION_ADAPTIVE) throw new IOException("Unsupported compressed data version " + version + ".");
+        decoder = new AdaptiveDecoder(inputStream);
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+        if (len == 0) return 0;
+        return decoder.read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(8192, Math.max(0, n))];
+        long skipped = 0;
+        int read;
+        while (skipped < n && (read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) != -1) skipped += read;
+        return skipped;
+    }
+
+    /**
+     * Returns 0 once the end of the compressed data is reached and 1 before, like {@code InflaterInputStream}.
+     *
+     * @return 0 at the end of the data, otherwise 1
+     */
+    @Override
+    public int available() {
+        return decoder.isEnded() ? 0 : 1;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        //Mark isn't supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("Mark isn't supported.");
+    }
+}
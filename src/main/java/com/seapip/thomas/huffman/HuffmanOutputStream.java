@@ -0,0 +1,101 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.AdaptiveEncoder;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The {@code HuffmanOutputStream} class compresses the bytes written to it in the adaptive format, bytes are
+ * encoded as they're written so only the bit buffer is kept in memory. The compressed data can be read with
+ * a {@code HuffmanInputStream} or decompressed with {@code Huffman.decompress}.
+ * <p>
+ * Flushing writes everything written so far to the underlying stream at a byte boundary. Closing the stream
+ * finishes the compressed data and closes the underlying stream, use {@link #finish()} to keep it open.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class HuffmanOutputStream extends FilterOutputStream {
+    private final AdaptiveEncoder encoder;
+    private boolean finished;
+
+    /**
+     * Creates a stream with the default options.
+     *
+     * @param outputStream The stream to write the compressed data to
+     * @throws IOException Exception thrown when the header can't be written
+     */
+    public HuffmanOutputStream(OutputStream outputStream) throws IOException {
+        this(outputStream, new Options());
+    }
+
+    /**
+     * Creates a stream that rebuilds its code table after the adaptive interval of the given options,
+     * 64KB when no interval is set.
+     *
+     * @param outputStream The stream to write the compressed data to
+     * @param options      The options holding the adaptive interval and maximum code length
+     * @throws IOException Exception thrown when the header can't be written
+     */
+    public HuffmanOutputStream(OutputStream outputStream, Options options) throws IOException {
+        super(outputStream);
+        outputStream.write(Huffman.VERSION_ADAPTIVE);
+        encoder = new AdaptiveEncoder(outputStream, options.getEffectiveAdaptiveInterval(), options.getMaxCodeLength());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        encoder.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+        ensureOpen();
+        encoder.write(b, off, len);
+    }
+
+    /**
+     * Writes everything written so far to the underlying stream and flushes it, the data written so far can be
+     * decompressed without the data written after it.
+     *
+     * @throws IOException Exception thrown when writing fails
+     */
+    @Override
+    public void flush() throws IOException {
+        if (finished) {
+            out.flush();
+            return;
+        }
+        encoder.flush();
+    }
+
+    /**
+     * Finishes the compressed data without closing the underlying stream, nothing can be written afterwards.
+     *
+     * @throws IOException Exception thrown when writing fails
+     */
+    public void finish() throws IOException {
+        if (finished) return;
+        finished = true;
+        encoder.finish();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) throw new IOException("Stream is finished.");
+    }
+}
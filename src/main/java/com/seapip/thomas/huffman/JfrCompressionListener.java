@@ -0,0 +1,91 @@
+package com.seapip.thomas.huffman;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The {@code JfrCompressionListener} class commits a Java Flight Recorder event for every compression,
+ * events are only created while a recording with the {@code com.seapip.thomas.huffman.Compression} event
+ * enabled is running.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class JfrCompressionListener implements CompressionListener {
+
+    @Override
+    public void compressed(CompressionStats stats) {
+        CompressionEvent event = new CompressionEvent();
+        if (!event.shouldCommit()) return;
+        event.inputBytes = stats.getInputBytes();
+        event.outputBytes = stats.getOutputBytes();
+        event.symbols = stats.getSymbols();
+        event.distinctSymbols = stats.getDistinctSymbols();
+        event.ratio = stats.getRatio();
+        event.entropy = stats.getEntropy();
+        event.meanCodeLength = stats.getMeanCodeLength();
+        event.countTime = stats.getNanos(CompressionStats.Phase.COUNT);
+        event.codeTime = stats.getNanos(CompressionStats.Phase.CODE);
+        event.encodeTime = stats.getNanos(CompressionStats.Phase.ENCODE);
+        event.totalTime = stats.getTotalNanos();
+        event.allocatedBytes = stats.getAllocatedBytes();
+        event.commit();
+    }
+
+    @Name("com.seapip.thomas.huffman.Compression")
+    @Label("Huffman Compression")
+    @Category("Huffman")
+    @Description("Measurements of a single compression")
+    static final class CompressionEvent extends Event {
+        @Label("Input Size")
+        @DataAmount
+        long inputBytes;
+
+        @Label("Output Size")
+        @DataAmount
+        long outputBytes;
+
+        @Label("Symbols")
+        long symbols;
+
+        @Label("Distinct Symbols")
+        int distinctSymbols;
+
+        @Label("Ratio")
+        double ratio;
+
+        @Label("Entropy")
+        @Description("Bits per symbol")
+        double entropy;
+
+        @Label("Mean Code Length")
+        @Description("Bits per symbol")
+        double meanCodeLength;
+
+        @Label("Count Time")
+        @Timespan
+        long countTime;
+
+        @Label("Code Time")
+        @Timespan
+        long codeTime;
+
+        @Label("Encode Time")
+        @Timespan
+        long encodeTime;
+
+        @Label("Total Time")
+        @Timespan
+        long totalTime;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+    }
+}
@@ -1,14 +1,130 @@
 package com.seapip.thomas.huffman;
 
 import java.io.*;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
 public class Main {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: huffman [options] compress|decompress|verify|train <input> [output]",
+            "       huffman [options] batch <directory|glob|list> [output directory]",
+            "       huffman daemon|client [--socket <path>] [arguments]",
+            "Options: --binary, --checked, --threads <count>, --block-size <characters>, --adaptive <KB>,",
+            "         --dictionary <file>, --id <dictionary id>, --interleaved, --contexts,",
+            "         --profile speed|balanced|size, --level fast|max, --stats");
 
     public static void main(String[] args) {
-        if (args.length > 1) {
-            File input = new File(args[1]);
-            try (FileInputStream fileInputStream = new FileInputStream(input)) {
-                BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream);
+        //The daemon and its client are started before anything else is loaded, so the client stays small
+        if (args.length > 0 && (args[0].equalsIgnoreCase("daemon") || args[0].equalsIgnoreCase("client"))) {
+            System.exit(daemon(args));
+        }
+        int status = run(args, Paths.get(""), System.out, System.err); //NOSONAR
+        if (status != 0) System.exit(status);
+    }
+
+    /**
+     * Runs a command with file arguments relative to the given directory, which is how the daemon runs the commands
+     * of its clients.
+     *
+     * @return The exit status
+     */
+    static int run(String[] args, Path base, PrintStream out, PrintStream err) {
+        //Read options, the remaining arguments are the method, input and output
+        Options options = new Options();
+        List<String> arguments = new ArrayList<>();
+        String dictionary = null;
+        int id = 0;
+        boolean threads = false;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            try {
+                switch (option.toLowerCase()) {
+                    case "--threads":
+                    case "-t":
+                        options.setThreads(Integer.parseInt(value(args, ++i)));
+                        threads = true;
+                        break;
+                    case "--binary":
+                        options.setBinary(true);
+                        break;
+                    case "--checked":
+                        options.setChecked(true);
+                        break;
+                    case "--block-size":
+                    case "-b":
+                        options.setBlockSize(Integer.parseInt(value(args, ++i)));
+                        break;
+                    case "--dictionary":
+                        dictionary = value(args, ++i);
+                        break;
+                    case "--adaptive":
+                    case "-a":
+                        options.setAdaptiveInterval(Math.multiplyExact(Integer.parseInt(value(args, ++i)), 1024));
+                        break;
+                    case "--interleaved":
+                        options.setInterleaved(true);
+                        break;
+                    case "--contexts":
+                        options.setContexts(true);
+                        break;
+                    case "--level":
+                        options.setLevel(choice(Options.Level.class, value(args, ++i)));
+                        break;
+                    case "--profile":
+                        options.setProfile(choice(Options.Profile.class, value(args, ++i)));
+                        break;
+                    case "--stats":
+                        options.setListener(err::println);
+                        break;
+                    case "--id":
+                        id = Integer.parseInt(value(args, ++i));
+                        break;
+                    default:
+                        arguments.add(option);
+                        break;
+                }
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                //Invalid values, including numbers that can't be parsed, are reported with the usage
+                err.println(option + ": " + e.getMessage());
+                err.println(USAGE);
+                return 1;
+            }
+        }
+        args = arguments.toArray(new String[0]);
+        if (args.length < 2) {
+            err.println(USAGE);
+            return 1;
+        }
+
+        if (args[0].equalsIgnoreCase("batch")) {
+            //Compress every file of a directory, glob pattern or list file, by default on every processor
+            if (!threads) options.setThreads(Runtime.getRuntime().availableProcessors());
+            Path directory = args.length > 2 ? base.resolve(args[2]) : null;
+            try {
+                if (dictionary != null) options.setDictionary(Dictionary.load(base.resolve(dictionary)));
+                BatchResult result = Batch.compress(Batch.find(args[1], base), file -> target(file, base, directory), options);
+                for (BatchResult.Failure failure : result.getFailures()) err.println(failure);
+                err.println(result);
+                if (!result.getFailures().isEmpty()) return 1;
+            } catch (Huffman.CompressionException e) {
+                err.println(args[1] + ": " + e.getMessage());
+                return 1;
+            }
+        } else {
+            File input = base.resolve(args[1]).toFile();
+            try {
+                //Regular files are read through memory mapped buffers, other files like pipes as a stream
+                if (!input.exists()) throw new FileNotFoundException("File not found.");
+                boolean mapped = input.isFile();
+
+                //Load dictionary so it's used to compress and registered to decompress
+                if (dictionary != null) options.setDictionary(Dictionary.load(base.resolve(dictionary)));
+
                 switch (args[0].toLowerCase()) {
                     case "compress":
                     case "encode":
@@ -17,10 +133,16 @@ public class Main {
                     case "-e":
                     case "c":
                     case "e":
-                        try (FileOutputStream fileOutputStream = new FileOutputStream(new File(args.length > 2 ? args[2] : input.toPath() + ".compressed"));
+                        try (FileOutputStream fileOutputStream = new FileOutputStream(args.length > 2 ? base.resolve(args[2]).toFile() : new File(input.toPath() + ".compressed"));
                              BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream);) {
 
-                            Huffman.compress(bufferedInputStream, bufferedOutputStream);
+                            if (mapped) {
+                                Huffman.compress(input.toPath(), bufferedOutputStream, options);
+                            } else {
+                                try (InputStream inputStream = new FileInputStream(input)) {
+                                    Huffman.compress(new BufferedInputStream(inputStream), bufferedOutputStream, options);
+                                }
+                            }
                             bufferedOutputStream.flush();
                         }
                         break;
@@ -31,20 +153,104 @@ public class Main {
                     case "d":
                         String path = input.toPath().toString();
                         path = (path.endsWith(".compressed") ? path.substring(0, path.length() - 11) : path);
-                        try (FileOutputStream fileOutputStream = new FileOutputStream(new File(args.length > 2 ? args[2] : path + ".decompressed"));
+                        try (FileOutputStream fileOutputStream = new FileOutputStream(args.length > 2 ? base.resolve(args[2]).toFile() : new File(path + ".decompressed"));
                              BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream);) {
 
-                            Huffman.decompress(bufferedInputStream, bufferedOutputStream);
+                            if (mapped) {
+                                Huffman.decompress(input.toPath(), bufferedOutputStream, options);
+                            } else {
+                                try (InputStream inputStream = new FileInputStream(input)) {
+                                    Huffman.decompress(new BufferedInputStream(inputStream), bufferedOutputStream);
+                                }
+                            }
                             bufferedOutputStream.flush();
                         }
                         break;
-                    default:
-                        //Incorrect method parameter
+                    case "verify":
+                    case "-v":
+                    case "v":
+                        //Checksums are read from memory mapped buffers, so only files can be verified
+                        if (!mapped) throw new IOException("Only files can be verified.");
+                        Huffman.verify(input.toPath());
+                        out.println(input + ": OK");
+                        break;
+                    case "train":
+                    case "-r":
+                        File output = args.length > 2 ? base.resolve(args[2]).toFile() : new File(input.toPath() + ".dictionary");
+                        if (mapped) {
+                            Dictionary.train(id, input.toPath(), options).save(output.toPath());
+                        } else {
+                            try (InputStream inputStream = new BufferedInputStream(new FileInputStream(input))) {
+                                Dictionary.train(id, inputStream, options).save(output.toPath());
+                            }
+                        }
                         break;
+                    default:
+                        err.println(args[0] + ": Unknown command.");
+                        err.println(USAGE);
+                        return 1;
                 }
-            } catch (IOException | Huffman.CompressionException ignored) {
+            } catch (IOException | Huffman.CompressionException e) {
                 //Files could not be read and/or written
+                err.println(input + ": " + e.getMessage());
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException("Missing value.");
+        return args[i];
+    }
+
+    private static <T extends Enum<T>> T choice(Class<T> type, String value) {
+        for (T constant : type.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value)) return constant;
+        }
+        throw new IllegalArgumentException("Expected one of "
+                + Arrays.toString(type.getEnumConstants()).toLowerCase(Locale.ROOT) + ".");
+    }
+
+    private static int daemon(String[] args) {
+        //Both modes take the socket path as an option, the client sends the remaining arguments to the daemon
+        Path socket = Daemon.defaultSocket();
+        List<String> arguments = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("--socket")) {
+                if (i + 1 == args.length) {
+                    System.err.println(args[i] + ": Missing value."); //NOSONAR
+                    System.err.println(USAGE); //NOSONAR
+                    return 1;
+                }
+                socket = Paths.get(args[++i]);
+            } else {
+                arguments.add(args[i]);
             }
         }
+        try {
+            if (args[0].equalsIgnoreCase("client")) {
+                return Daemon.request(socket, Paths.get("").toAbsolutePath(), arguments.toArray(new String[0]),
+                        System.out, System.err); //NOSONAR
+            }
+            Path path = socket;
+            try (ServerSocketChannel server = Daemon.bind(socket)) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> path.toFile().delete()));
+                Daemon.serve(server);
+            }
+            return 0;
+        } catch (IOException e) {
+            System.err.println(socket + ": " + e.getMessage()); //NOSONAR
+            return 1;
+        }
+    }
+
+    private static Path target(Path file, Path base, Path directory) {
+        //Without a directory the compressed file is written next to the file, otherwise its path is kept inside it
+        if (directory == null) return Paths.get(file + ".compressed");
+        Path absolute = file.toAbsolutePath().normalize();
+        Path current = base.toAbsolutePath();
+        Path relative = absolute.startsWith(current) ? current.relativize(absolute) : absolute.getRoot().relativize(absolute);
+        return directory.resolve(relative + ".compressed");
     }
 }
@@ -0,0 +1,211 @@
+package com.seapip.thomas.huffman;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.BitSet;
+
+/**
+ * The {@code Metrics} class collects the measurements of a single compression and passes them to the listener
+ * of the options once the compression is done. Nothing is measured for the default listener.
+ * <p>
+ * Code tables are reported from the threads compressing blocks, so reporting them is synchronized.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+final class Metrics {
+    private static final double LN_2 = Math.log(2);
+
+    private final CompressionListener listener;
+    private final boolean enabled;
+    private final long start;
+    private final long allocation;
+    private final long[] phases = new long[CompressionStats.Phase.values().length];
+    private long mark;
+    private long inputBytes = -1;
+    private CountingInputStream input;
+    private CountingOutputStream output;
+
+    private long symbols;
+    private final BitSet distinct = new BitSet();
+    private double entropyBits;
+    private long codeBits;
+    private long allocatedBytes;
+
+    Metrics(Options options) {
+        listener = options.getListener();
+        enabled = listener != CompressionListener.NONE;
+        start = enabled ? System.nanoTime() : 0;
+        mark = start;
+        allocation = allocation();
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the given stream or a stream counting the bytes read from it.
+     */
+    InputStream input(InputStream inputStream) {
+        if (!enabled) return inputStream;
+        input = new CountingInputStream(inputStream);
+        return input;
+    }
+
+    /**
+     * Returns the given stream or a stream counting the bytes written to it.
+     */
+    OutputStream output(OutputStream outputStream) {
+        if (!enabled) return outputStream;
+        output = new CountingOutputStream(outputStream);
+        return output;
+    }
+
+    long getOutputBytes() {
+        return output == null ? 0 : output.count;
+    }
+
+    void setInputBytes(long inputBytes) {
+        this.inputBytes = inputBytes;
+    }
+
+    /**
+     * Adds the time since the end of the previous phase to the given phase.
+     */
+    void end(CompressionStats.Phase phase) {
+        if (!enabled) return;
+        long now = System.nanoTime();
+        phases[phase.ordinal()] += now - mark;
+        mark = now;
+    }
+
+    /**
+     * Adds the time a block encoder spent in each phase of a block.
+     */
+    synchronized void block(long countNanos, long codeNanos, long encodeNanos) {
+        if (!enabled) return;
+        phases[CompressionStats.Phase.COUNT.ordinal()] += countNanos;
+        phases[CompressionStats.Phase.CODE.ordinal()] += codeNanos;
+        phases[CompressionStats.Phase.ENCODE.ordinal()] += encodeNanos;
+    }
+
+    /**
+     * Adds the symbols encoded with a code table.
+     */
+    void code(long[] frequencies, int[] lengths) {
+        if (!enabled) return;
+        long bits = 0;
+        //Symbols past the code lengths don't occur, the lengths of a block stop at its last symbol
+        for (int i = 0; i < lengths.length; i++) bits += frequencies[i] * lengths[i];
+        code(frequencies, bits);
+    }
+
+    /**
+     * Adds the symbols encoded in the given number of bits.
+     */
+    synchronized void code(long[] frequencies, long bits) {
+        if (!enabled) return;
+        long count = 0;
+        for (long frequency : frequencies) count += frequency;
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] == 0) continue;
+            distinct.set(i);
+            entropyBits -= frequencies[i] * Math.log((double) frequencies[i] / count) / LN_2;
+        }
+        symbols += count;
+        codeBits += bits;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far.
+     *
+     * @return The allocated bytes or -1 when nothing is measured
+     */
+    long allocation() {
+        return enabled && Allocations.THREADS != null ? Allocations.THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    /**
+     * Adds the bytes allocated by the current thread since the given allocation.
+     */
+    synchronized void allocated(long since) {
+        if (since != -1) allocatedBytes += allocation() - since;
+    }
+
+    /**
+     * Passes the measurements to the listener.
+     */
+    void finish() {
+        if (!enabled) return;
+        long total = System.nanoTime() - start;
+        allocated(allocation);
+        long in = inputBytes != -1 ? inputBytes : input != null ? input.count : symbols;
+        CompressionStats stats = new CompressionStats(in, output.count, symbols, distinct.cardinality(), phases.clone(),
+                total, entropyBits, codeBits, allocation == -1 ? -1 : allocatedBytes);
+        listener.compressed(stats);
+    }
+
+    private static final class Allocations {
+        //Loaded only when measuring, allocations can only be measured by HotSpot based JVMs
+        private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+        private static com.sun.management.ThreadMXBean threads() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+                ((com.sun.management.ThreadMXBean) threads).setThreadAllocatedMemoryEnabled(true);
+                return (com.sun.management.ThreadMXBean) threads;
+            }
+            return null;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) count += read;
+            return read;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.CanonicalCode;
+
+/**
+ * The {@code Options} class holds the settings used by {@code Huffman} to compress data,
+ * a new instance holds the default settings. Setters return the instance so calls can be chained.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class Options {
+    private static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    private static final int DEFAULT_ADAPTIVE_INTERVAL = 64 * 1024;
+
+    private boolean canonical;
+    private boolean checked;
+    private boolean binary;
+    private int maxCodeLength = 24;
+    private int blockSize;
+    private int threads = 1;
+    private Dictionary dictionary;
+    private int adaptiveInterval;
+    private boolean interleaved;
+    private boolean contexts;
+    private Profile profile = Profile.SPEED;
+    private Level level = Level.MAX;
+    private CompressionListener listener = CompressionListener.NONE;
+
+    /**
+     * @deprecated Text is always stored with canonical codes, use {@link #isChecked()} to tell the formats apart
+     */
+    @Deprecated
+    public boolean isCanonical() {
+        return canonical;
+    }
+
+    /**
+     * Stores canonical Huffman codes as run length encoded code lengths instead of the Huffman tree. Canonical codes
+     * replaced the tree, so this setting no longer changes the output.
+     *
+     * @param canonical True to store canonical codes
+     * @return These options
+     * @deprecated Text is always stored with canonical codes, use {@link #setChecked(boolean)} for checksummed blocks
+     */
+    @Deprecated
+    public Options setCanonical(boolean canonical) {
+        this.canonical = canonical;
+        return this;
+    }
+
+    public boolean isChecked() {
+        return checked;
+    }
+
+    /**
+     * Compresses text in blocks of 1M characters, each followed by its checksum, even when a single thread is used
+     * and no block size is set. Block compressed data starts with magic bytes and ends with a block index, so it can
+     * be verified and read in ranges, but costs a few bytes per payload: the 26 characters of
+     * "Eerie eyes seen near lake." take 62 bytes instead of the 34 bytes of a single canonical block.
+     * Binary data and data compressed in blocks are always checked.
+     *
+     * @param checked True to compress text in checksummed blocks
+     * @return These options
+     */
+    public Options setChecked(boolean checked) {
+        this.checked = checked;
+        return this;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Compresses the input as bytes instead of text, which round trips any binary data and skips decoding
+     * and encoding the text with a charset. Text is read and written as UTF-8. Binary data is always compressed
+     * in blocks.
+     *
+     * @param binary True to compress bytes
+     * @return These options
+     */
+    public Options setBinary(boolean binary) {
+        this.binary = binary;
+        return this;
+    }
+
+    public int getMaxCodeLength() {
+        return maxCodeLength;
+    }
+
+    /**
+     * Limits the length of the codes, a smaller maximum makes the decode tables smaller at the cost of
+     * slightly larger output. The maximum is raised when it's too small to hold every character in the input.
+     *
+     * @param maxCodeLength The maximum code length in bits, from 1 till 31
+     * @return These options
+     */
+    public Options setMaxCodeLength(int maxCodeLength) {
+        if (maxCodeLength < 1 || maxCodeLength > CanonicalCode.MAX_LENGTH) {
+            throw new IllegalArgumentException("Maximum code length needs to be between 1 and " + CanonicalCode.MAX_LENGTH + ".");
+        }
+        this.maxCodeLength = maxCodeLength;
+        return this;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Compresses the input in blocks of the given number of characters, each block has its own code table
+     * so blocks can be compressed in parallel. Zero compresses the input as a single block, unless more than one
+     * thread is used or checksums are written in which case blocks of 1M characters are used.
+     *
+     * @param blockSize The number of characters per block or zero
+     * @return These options
+     */
+    public Options setBlockSize(int blockSize) {
+        if (blockSize < 0) throw new IllegalArgumentException("Block size can't be negative.");
+        this.blockSize = blockSize;
+        return this;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads used to compress and decompress blocks.
+     *
+     * @param threads The number of threads, at least one
+     * @return These options
+     */
+    public Options setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Thread count needs to be at least one.");
+        this.threads = threads;
+        return this;
+    }
+
+    public Dictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Compresses the input with the codes of the given dictionary, the compressed data only holds the dictionary
+     * id so the dictionary needs to be registered to decompress it. The compressed data is kept in memory until
+     * all input is encoded, so dictionaries are meant for small messages.
+     *
+     * @param dictionary The dictionary or null to store a code table in the compressed data
+     * @return These options
+     */
+    public Options setDictionary(Dictionary dictionary) {
+        this.dictionary = dictionary;
+        return this;
+    }
+
+    public int getAdaptiveInterval() {
+        return adaptiveInterval;
+    }
+
+    /**
+     * Compresses the input as bytes in a single pass, the code table is rebuilt after every interval from the bytes
+     * read so far instead of being stored. Output is written while the input is read and flushed whenever no more
+     * input is available, which suits unbounded streams like sockets, pipes and followed logs.
+     *
+     * @param adaptiveInterval The number of bytes after which the code table is rebuilt or zero to count the input first
+     * @return These options
+     */
+    public Options setAdaptiveInterval(int adaptiveInterval) {
+        if (adaptiveInterval < 0) throw new IllegalArgumentException("Adaptive interval can't be negative.");
+        this.adaptiveInterval = adaptiveInterval;
+        return this;
+    }
+
+    public boolean isInterleaved() {
+        return interleaved;
+    }
+
+    /**
+     * Splits each block of at least 1024 characters or bytes in four bit streams that are decoded in a single loop,
+     * which lets the processor overlap the decoding of the streams at the cost of a few bytes per block.
+     * Only applies to block compressed data.
+     *
+     * @param interleaved True to write interleaved blocks
+     * @return These options
+     */
+    public Options setInterleaved(boolean interleaved) {
+        this.interleaved = interleaved;
+        return this;
+    }
+
+    public boolean isContexts() {
+        return contexts;
+    }
+
+    /**
+     * Gives each block a few codes selected by the previous character or byte instead of a single code, the contexts
+     * of previous characters with similar statistics share a code. A block only uses them when they make it
+     * smaller, which is common for structured text like logs. Only applies to block compressed data of at most
+     * 256 distinct characters per block, and the data can't be decompressed by versions without context blocks.
+     *
+     * @param contexts True to write context blocks
+     * @return These options
+     */
+    public Options setContexts(boolean contexts) {
+        this.contexts = contexts;
+        return this;
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Chooses how each block trades compressed size for decoding speed. Blocks are Huffman coded for speed, other
+     * profiles also write tANS blocks, which code frequent characters in fractions of bits but decode slower.
+     * Only applies to block compressed data, and data with tANS blocks can't be decompressed by versions without them.
+     *
+     * @param profile The profile
+     * @return These options
+     */
+    public Options setProfile(Profile profile) {
+        if (profile == null) throw new IllegalArgumentException("Profile can't be null.");
+        this.profile = profile;
+        return this;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Chooses whether the code of each block is built from exact counts or from a sample of the block. Sampling
+     * skips the counting pass over blocks of at least 64K characters or bytes at the cost of slightly larger output,
+     * and only writes Huffman blocks. Only applies to block compressed data.
+     *
+     * @param level The level
+     * @return These options
+     */
+    public Options setLevel(Level level) {
+        if (level == null) throw new IllegalArgumentException("Level can't be null.");
+        this.level = level;
+        return this;
+    }
+
+    public CompressionListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets the listener that receives the timings, sizes and code statistics of every compression
+     * done with these options.
+     *
+     * @param listener The listener or null to measure nothing
+     * @return These options
+     */
+    public Options setListener(CompressionListener listener) {
+        this.listener = listener == null ? CompressionListener.NONE : listener;
+        return this;
+    }
+
+    /**
+     * Returns a copy of these options, changing the copy doesn't change these options.
+     */
+    Options copy() {
+        Options copy = new Options();
+        copy.canonical = canonical;
+        copy.checked = checked;
+        copy.binary = binary;
+        copy.maxCodeLength = maxCodeLength;
+        copy.blockSize = blockSize;
+        copy.threads = threads;
+        copy.dictionary = dictionary;
+        copy.adaptiveInterval = adaptiveInterval;
+        copy.interleaved = interleaved;
+        copy.contexts = contexts;
+        copy.profile = profile;
+        copy.level = level;
+        copy.listener = listener;
+        return copy;
+    }
+
+    boolean isAdaptive() {
+        return adaptiveInterval > 0;
+    }
+
+    boolean isBlocks() {
+        return checked || blockSize > 0 || threads > 1;
+    }
+
+    /**
+     * Returns the share of the size of a Huffman block in 64ths a tANS block needs to save for the profile,
+     * or -1 when the profile only writes Huffman blocks.
+     */
+    int getAnsGain() {
+        return profile == Profile.SPEED ? -1 : profile == Profile.BALANCED ? 2 : 0;
+    }
+
+    boolean isSampled() {
+        return level == Level.FAST;
+    }
+
+    int getEffectiveBlockSize() {
+        return blockSize > 0 ? blockSize : DEFAULT_BLOCK_SIZE;
+    }
+
+    int getEffectiveAdaptiveInterval() {
+        return adaptiveInterval > 0 ? adaptiveInterval : DEFAULT_ADAPTIVE_INTERVAL;
+    }
+
+    /**
+     * The profiles that choose the entropy coder of each block.
+     */
+    public enum Profile {
+        /**
+         * Only writes Huffman blocks, which decode fastest.
+         */
+        SPEED,
+        /**
+         * Writes tANS blocks when they're at least 3% smaller than Huffman blocks.
+         */
+        BALANCED,
+        /**
+         * Writes whichever block is smallest.
+         */
+        SIZE
+    }
+
+    /**
+     * The levels that choose how the code of each block is built.
+     */
+    public enum Level {
+        /**
+         * Builds the code from an eighth of each block, which skips most of the counting pass.
+         */
+        FAST,
+        /**
+         * Builds the code from exact counts of each block.
+         */
+        MAX
+    }
+}
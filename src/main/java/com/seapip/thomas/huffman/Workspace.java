@@ -0,0 +1,67 @@
+package com.seapip.thomas.huffman;
+
+import com.seapip.thomas.huffman.huffman.BlockEncoder;
+
+import java.util.Arrays;
+
+/**
+ * The {@code Workspace} class holds the buffers and tables a thread reuses from one compression to the next,
+ * so compressing many small files or blocks doesn't allocate a character table and block encoder for each of them.
+ * Every thread has its own workspace, which is only used for the duration of a single compression.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+final class Workspace {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<Workspace> WORKSPACES = ThreadLocal.withInitial(Workspace::new);
+
+    private final char[] characters = new char[BUFFER_SIZE];
+    private final long[] frequencies = new long[Character.MAX_VALUE + 1];
+    private BlockEncoder encoder;
+    private int maxCodeLength;
+    private boolean interleaved;
+    private boolean contexts;
+    private int ansGain;
+    private boolean sampled;
+
+    private Workspace() {
+    }
+
+    /**
+     * Returns the workspace of the current thread.
+     */
+    static Workspace get() {
+        return WORKSPACES.get();
+    }
+
+    char[] getCharacters() {
+        return characters;
+    }
+
+    /**
+     * Returns the character frequencies cleared to zero.
+     */
+    long[] getFrequencies() {
+        Arrays.fill(frequencies, 0);
+        return frequencies;
+    }
+
+    /**
+     * Returns a block encoder for the maximum code length, interleaving, contexts, profile and level of the given
+     * options, the encoder is only created again when those options change.
+     */
+    BlockEncoder getEncoder(Options options) {
+        if (encoder == null || maxCodeLength != options.getMaxCodeLength() || interleaved != options.isInterleaved()
+                || contexts != options.isContexts() || ansGain != options.getAnsGain() || sampled != options.isSampled()) {
+            maxCodeLength = options.getMaxCodeLength();
+            interleaved = options.isInterleaved();
+            contexts = options.isContexts();
+            ansGain = options.getAnsGain();
+            sampled = options.isSampled();
+            encoder = new BlockEncoder(maxCodeLength, interleaved, contexts, ansGain, sampled);
+        }
+        return encoder;
+    }
+}
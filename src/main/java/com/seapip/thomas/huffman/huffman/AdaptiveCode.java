@@ -0,0 +1,62 @@
+package com.seapip.thomas.huffman.huffman;
+
+/**
+ * The {@code AdaptiveCode} class holds the code table shared by the {@code AdaptiveEncoder} and
+ * {@code AdaptiveDecoder}. Both start with equal weights for every byte and rebuild the table from the bytes
+ * counted so far after every interval, so the decoder rebuilds the same table without it being transmitted.
+ * <p>
+ * Besides the 256 byte values the alphabet holds a flush symbol, after which the data continues at a byte
+ * boundary, and an end symbol. Every symbol always has a code.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+class AdaptiveCode {
+    static final int FLUSH = 256;
+    static final int END = 257;
+    private static final int SYMBOLS = 258;
+    private static final long MAX_COUNT = 1L << 38;
+
+    private final long[] counts = new long[SYMBOLS];
+    private final long[] frequencies = new long[SYMBOLS];
+    private final int interval;
+    private final int maxLength;
+    private final boolean decoding;
+    private int remaining;
+
+    long[] codes;
+    int[] lengths;
+    DecodeTable table;
+
+    AdaptiveCode(int interval, int maxLength, boolean decoding) {
+        this.interval = interval;
+        this.maxLength = maxLength;
+        this.decoding = decoding;
+        rebuild();
+    }
+
+    /**
+     * Counts a byte, the table is rebuilt once the interval is reached.
+     *
+     * @param b The byte value
+     */
+    void count(int b) {
+        counts[b]++;
+        if (--remaining == 0) rebuild();
+    }
+
+    private void rebuild() {
+        //Halve counts before they get too large for the package-merge weights
+        boolean halve = false;
+        for (long count : counts) halve |= count >= MAX_COUNT;
+        if (halve) for (int i = 0; i < SYMBOLS; i++) counts[i] >>>= 1;
+
+        //Every symbol keeps a weight of at least one so it can always be encoded
+        for (int i = 0; i < SYMBOLS; i++) frequencies[i] = (counts[i] << 8) + 1;
+        lengths = PackageMerge.lengths(frequencies, maxLength);
+        codes = new CanonicalCode(lengths).getCodes();
+        if (decoding) table = DecodeTable.create(codes, lengths);
+        remaining = interval;
+    }
+}
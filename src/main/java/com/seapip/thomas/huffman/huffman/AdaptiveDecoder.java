@@ -0,0 +1,108 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The {@code AdaptiveDecoder} class decompresses data written by the {@code AdaptiveEncoder}. Bytes are only read
+ * from the stream when the bits read so far don't hold a whole code, so everything before a flush can be decoded
+ * without waiting for the data after it.
+ * <p>
+ * The decoder reads ahead of the end of the compressed data. A decoder isn't thread safe.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class AdaptiveDecoder {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+    private final byte[] data = new byte[BUFFER_SIZE];
+    private final AdaptiveCode code;
+    private final int maxLength;
+    private int position;
+    private int end;
+    private long bits;
+    private int count;
+    private boolean ended;
+
+    /**
+     * Creates a decoder and reads the interval and maximum code length.
+     *
+     * @param inputStream The stream to read the compressed data from
+     * @throws IOException Exception thrown when reading fails or the data is invalid
+     */
+    public AdaptiveDecoder(InputStream inputStream) throws IOException {
+        this.inputStream = inputStream;
+        long interval = VarInt.read(inputStream);
+        maxLength = inputStream.read();
+        if (interval < 1 || interval > Integer.MAX_VALUE || maxLength < PackageMerge.minLength(AdaptiveCode.END + 1)
+                || maxLength > CanonicalCode.MAX_LENGTH) {
+            throw new IOException("Invalid compressed data.");
+        }
+        code = new AdaptiveCode((int) interval, maxLength, true);
+    }
+
+    /**
+     * Decodes bytes until the buffer is full, a flush is reached after at least one byte or the data ends.
+     *
+     * @param buffer The buffer to store the bytes in
+     * @param offset The offset in the buffer of the first byte
+     * @param length The maximum number of bytes to decode
+     * @return The number of decoded bytes or -1 once the data has ended
+     * @throws IOException Exception thrown when reading fails or the data is invalid
+     */
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int decoded = 0;
+        while (decoded < length && !ended) {
+            int symbol = decode();
+            if (symbol < AdaptiveCode.FLUSH) {
+                buffer[offset + decoded++] = (byte) symbol;
+                code.count(symbol);
+            } else {
+                //Continue at the next byte boundary
+                int skip = count & 7;
+                bits >>>= skip;
+                count -= skip;
+                ended = symbol == AdaptiveCode.END;
+                if (decoded > 0) break;
+            }
+        }
+        return decoded == 0 && ended ? -1 : decoded;
+    }
+
+    public boolean isEnded() {
+        return ended;
+    }
+
+    private int decode() throws IOException {
+        while (true) {
+            //The code is complete once its length doesn't exceed the number of bits read
+            int entry = code.table.lookup(bits);
+            int length = entry & 0xFF;
+            if (length != 0 && length <= count) {
+                bits >>>= length;
+                count -= length;
+                return entry >>> 8;
+            }
+            if (count >= maxLength) throw new IOException("Invalid compressed data.");
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        //Only read from the stream once every buffered byte is used, a read returns what's available
+        if (position == end) {
+            int read = inputStream.read(data, 0, data.length);
+            if (read == -1) throw new EOFException("Unexpected end of compressed data.");
+            position = 0;
+            end = read;
+        }
+        while (position < end && count <= 56) {
+            bits |= (data[position++] & 0xFFL) << count;
+            count += 8;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The {@code AdaptiveEncoder} class compresses bytes in a single pass, the code table is rebuilt from the bytes
+ * written so far after every interval instead of being stored. Output is written as soon as the bit buffer is full
+ * or the encoder is flushed, so the time to the first compressed byte doesn't depend on the length of the input.
+ * <p>
+ * The data starts with the interval and maximum code length, followed by the codes of the written bytes.
+ * An encoder isn't thread safe.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class AdaptiveEncoder {
+    private final OutputStream outputStream;
+    private final BitWriter writer;
+    private final AdaptiveCode code;
+
+    /**
+     * Creates an encoder and writes the interval and maximum code length.
+     *
+     * @param outputStream  The stream to write the compressed data to
+     * @param interval      The number of bytes after which the code table is rebuilt
+     * @param maxCodeLength The maximum code length, from 9 till 31
+     * @throws IOException Exception thrown when writing fails
+     */
+    public AdaptiveEncoder(OutputStream outputStream, int interval, int maxCodeLength) throws IOException {
+        if (interval < 1) throw new IllegalArgumentException("Interval needs to be at least one.");
+        maxCodeLength = Math.max(maxCodeLength, PackageMerge.minLength(AdaptiveCode.END + 1));
+        this.outputStream = outputStream;
+        this.writer = new BitWriter(outputStream);
+        this.code = new AdaptiveCode(interval, maxCodeLength, false);
+        VarInt.write(outputStream, interval);
+        outputStream.write(maxCodeLength);
+    }
+
+    public void write(int b) throws IOException {
+        b &= 0xFF;
+        writer.write(code.codes[b], code.lengths[b]);
+        code.count(b);
+    }
+
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            int b = bytes[i] & 0xFF;
+            writer.write(code.codes[b], code.lengths[b]);
+            code.count(b);
+        }
+    }
+
+    /**
+     * Writes the flush symbol padded to a byte boundary and flushes the stream, so every byte written so far
+     * can be decoded from the data written so far.
+     *
+     * @throws IOException Exception thrown when writing fails
+     */
+    public void flush() throws IOException {
+        writer.write(code.codes[AdaptiveCode.FLUSH], code.lengths[AdaptiveCode.FLUSH]);
+        writer.finish();
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the end symbol padded to a byte boundary, no bytes can be written afterwards.
+     *
+     * @throws IOException Exception thrown when writing fails
+     */
+    public void finish() throws IOException {
+        writer.write(code.codes[AdaptiveCode.END], code.lengths[AdaptiveCode.END]);
+        writer.finish();
+    }
+}
@@ -0,0 +1,306 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The {@code AnsCoder} class codes blocks of at most 256 distinct symbols with table based asymmetric numeral systems
+ * (tANS), the way FSE does. Symbols get a number of table states proportional to their frequency, so a symbol costs
+ * a fraction of a bit when it's far more frequent than the others, which a Huffman code can't do.
+ * <p>
+ * The code is written as the table size in 3 bits, the symbol count in 8 bits and the state count of each symbol,
+ * as its bit length in 4 bits followed by the bits below its highest bit. A zero bit length is followed by the number
+ * of following symbols without states in 4 bits. The final state of the encoder follows the code, then the bits of
+ * each symbol in the order they're decoded. Symbols are encoded from the last to the first, so the bits are kept
+ * until the whole block is encoded.
+ * <p>
+ * Decoding is a lookup of the state in a table holding the symbol, the number of bits to read and the base of the
+ * next state, so it doesn't branch on the symbol. Decoding ends in the state the encoder started in, any other state
+ * means the data is corrupt.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class AnsCoder implements EntropyCoder {
+    public static final int MAX_SYMBOLS = 256;
+    private static final int MIN_TABLE_LOG = 5;
+    private static final int MAX_TABLE_LOG = 11;
+    private static final double LN_2 = Math.log(2);
+
+    private int tableLog;
+    private int size;
+    private int[] counts;
+    private int[] states;
+    private int[] deltaStates;
+    private int[] deltaBits;
+    private int[] emitted = new int[0];
+    private int emittedCount;
+    private int finalState;
+    private long bitCount;
+
+    @Override
+    public int getType() {
+        return BlockEncoder.TYPE_ANS;
+    }
+
+    @Override
+    public long create(long[] frequencies, int maxCodeLength) {
+        //Use enough states to tell frequent symbols apart, but not more than the block has symbols
+        size = frequencies.length;
+        while (size > 1 && frequencies[size - 1] == 0) size--;
+        if (size > MAX_SYMBOLS) return Long.MAX_VALUE;
+        long total = 0;
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            total += frequencies[i];
+            if (frequencies[i] > 0) distinct++;
+        }
+        tableLog = Math.max(MIN_TABLE_LOG, Math.min(MAX_TABLE_LOG, 64 - Long.numberOfLeadingZeros(total - 1)));
+        tableLog = Math.max(tableLog, 32 - Integer.numberOfLeadingZeros(distinct - 1) + 1);
+        counts = normalize(frequencies, size, total, tableLog);
+        if (counts == null) return Long.MAX_VALUE;
+        buildEncodeTable();
+
+        //Each symbol costs the bits of its share of the states
+        double bits = 0;
+        for (int i = 0; i < size; i++) {
+            if (frequencies[i] > 0) bits += frequencies[i] * (Math.log((double) (1 << tableLog) / counts[i]) / LN_2);
+        }
+        return getHeaderSize() + tableLog + (long) Math.ceil(bits);
+    }
+
+    @Override
+    public long encode(char[] characters, int offset, int length) {
+        if (emitted.length < length) emitted = new int[length];
+        int state = 1 << tableLog;
+        long bits = 0;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            int symbol = characters[i];
+            int count = (state + deltaBits[symbol]) >>> 16;
+            emitted[i - offset] = (state & ((1 << count) - 1)) << 4 | count;
+            bits += count;
+            state = states[(state >>> count) + deltaStates[symbol]];
+        }
+        return finish(state, length, bits);
+    }
+
+    @Override
+    public long encode(ByteBuffer bytes) {
+        int offset = bytes.position();
+        int length = bytes.remaining();
+        if (emitted.length < length) emitted = new int[length];
+        int state = 1 << tableLog;
+        long bits = 0;
+        for (int i = bytes.limit() - 1; i >= offset; i--) {
+            int symbol = bytes.get(i) & 0xFF;
+            int count = (state + deltaBits[symbol]) >>> 16;
+            emitted[i - offset] = (state & ((1 << count) - 1)) << 4 | count;
+            bits += count;
+            state = states[(state >>> count) + deltaStates[symbol]];
+        }
+        return finish(state, length, bits);
+    }
+
+    private long finish(int state, int length, long bits) {
+        finalState = state - (1 << tableLog);
+        emittedCount = length;
+        bitCount = getHeaderSize() + tableLog + bits;
+        return bitCount;
+    }
+
+    @Override
+    public void write(BitWriter writer) throws IOException {
+        writeHeader(writer);
+        writer.write(finalState, tableLog);
+        for (int i = 0; i < emittedCount; i++) writer.write(emitted[i] >>> 4, emitted[i] & 0xF);
+    }
+
+    @Override
+    public int[] getLengths() {
+        int[] lengths = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (counts[i] > 0) lengths[i] = (int) Math.round(Math.log((double) (1 << tableLog) / counts[i]) / LN_2);
+        }
+        return lengths;
+    }
+
+    @Override
+    public void decode(BitReader reader, char[] characters, int offset, int length) throws IOException {
+        decode(reader, characters, null, null, offset, length);
+    }
+
+    @Override
+    public void decode(BitReader reader, byte[] bytes, int offset, int length) throws IOException {
+        decode(reader, null, bytes, null, offset, length);
+    }
+
+    @Override
+    public void decode(BitReader reader, ByteBuffer bytes, int offset, int length) throws IOException {
+        decode(reader, null, null, bytes, offset, length);
+    }
+
+    private static void decode(BitReader reader, char[] characters, byte[] bytes, ByteBuffer buffer, int offset,
+                               int length) throws IOException {
+        int tableLog = reader.read(3) + MIN_TABLE_LOG;
+        int[] table = readDecodeTable(reader, tableLog);
+        int state = reader.read(tableLog);
+        int end = offset + length;
+        while (offset < end) {
+            reader.refill();
+            long bits = reader.bits;
+            int count = reader.count;
+
+            //Decode as many symbols as are guaranteed to be in the bit buffer
+            int stop = offset + Math.min(count / tableLog, end - offset);
+            while (offset < stop) {
+                int entry = table[state];
+                int bitLength = entry >>> 8 & 0xFF;
+                DecodeTable.store(characters, bytes, buffer, offset++, entry & 0xFF);
+                state = (entry >>> 16) + (int) (bits & ((1L << bitLength) - 1));
+                bits >>>= bitLength;
+                count -= bitLength;
+            }
+            reader.bits = bits;
+            reader.count = count;
+        }
+        if (state != 0) throw new IOException("Invalid compressed data.");
+    }
+
+    /**
+     * Returns state counts summing to the table size, every symbol that occurs gets at least one state.
+     *
+     * @return The state counts or null when the frequencies can't be fitted in the table
+     */
+    private static int[] normalize(long[] frequencies, int size, long total, int tableLog) {
+        int tableSize = 1 << tableLog;
+        int[] counts = new int[size];
+        int sum = 0;
+        int largest = 0;
+        for (int i = 0; i < size; i++) {
+            if (frequencies[i] == 0) continue;
+            counts[i] = (int) Math.max(1, (frequencies[i] * tableSize + total / 2) / total);
+            sum += counts[i];
+            if (frequencies[i] > frequencies[largest]) largest = i;
+        }
+
+        //The rounding error is taken from or added to the most frequent symbol, which it costs the fewest bits
+        counts[largest] += tableSize - sum;
+        return counts[largest] > 0 ? counts : null;
+    }
+
+    /**
+     * Returns the symbol of each state, symbols are spread over the table so their states are mixed.
+     */
+    private static int[] spread(int[] counts, int tableLog) {
+        int tableSize = 1 << tableLog;
+        int step = (tableSize >>> 1) + (tableSize >>> 3) + 3;
+        int[] symbols = new int[tableSize];
+        int position = 0;
+        for (int symbol = 0; symbol < counts.length; symbol++) {
+            for (int i = 0; i < counts[symbol]; i++) {
+                symbols[position] = symbol;
+                position = (position + step) & (tableSize - 1);
+            }
+        }
+        return symbols;
+    }
+
+    private void buildEncodeTable() {
+        //The states of each symbol are its positions in the table in order, the encoder keeps states above the table size
+        int tableSize = 1 << tableLog;
+        int[] symbols = spread(counts, tableLog);
+        int[] next = new int[size];
+        for (int symbol = 1; symbol < size; symbol++) next[symbol] = next[symbol - 1] + counts[symbol - 1];
+        states = new int[tableSize];
+        deltaStates = new int[MAX_SYMBOLS];
+        deltaBits = new int[MAX_SYMBOLS];
+        for (int symbol = 0; symbol < size; symbol++) {
+            int count = counts[symbol];
+            if (count == 0) continue;
+            deltaStates[symbol] = next[symbol] - count;
+
+            //A state of the symbol is reached by dropping the low bits until it's between count and twice count
+            int maxBits = count == 1 ? tableLog : tableLog - (31 - Integer.numberOfLeadingZeros(count - 1));
+            deltaBits[symbol] = (maxBits << 16) - (count << maxBits);
+        }
+        for (int position = 0; position < tableSize; position++) states[next[symbols[position]]++] = tableSize + position;
+    }
+
+    private static int[] readDecodeTable(BitReader reader, int tableLog) throws IOException {
+        if (tableLog > MAX_TABLE_LOG) throw new IOException("Invalid state counts.");
+        int tableSize = 1 << tableLog;
+        int size = reader.read(8) + 1;
+        int[] counts = new int[size];
+        int sum = 0;
+        for (int symbol = 0; symbol < size; symbol++) {
+            int bitLength = reader.read(4);
+            if (bitLength == 0) {
+                symbol += reader.read(4);
+                continue;
+            }
+            if (bitLength > tableLog + 1) throw new IOException("Invalid state counts.");
+            counts[symbol] = 1 << (bitLength - 1) | reader.read(bitLength - 1);
+            sum += counts[symbol];
+        }
+        if (sum != tableSize) throw new IOException("Invalid state counts.");
+
+        //Each entry holds the base of the next state above bit 16, the bits to read above bit 8 and the symbol
+        int[] symbols = spread(counts, tableLog);
+        int[] next = Arrays.copyOf(counts, size);
+        int[] table = new int[tableSize];
+        for (int state = 0; state < tableSize; state++) {
+            int symbol = symbols[state];
+            int nextState = next[symbol]++;
+            int bitLength = tableLog - (31 - Integer.numberOfLeadingZeros(nextState));
+            table[state] = ((nextState << bitLength) - tableSize) << 16 | bitLength << 8 | symbol;
+        }
+        return table;
+    }
+
+    /**
+     * Returns the size of the table size and state counts written by {@code writeHeader} in bits.
+     *
+     * @return The size in bits
+     */
+    private long getHeaderSize() {
+        long bits = 3 + 8;
+        for (int symbol = 0; symbol < size; symbol++) {
+            if (counts[symbol] == 0) {
+                bits += 8;
+                symbol += zeros(symbol);
+            } else {
+                bits += 3 + 32 - Integer.numberOfLeadingZeros(counts[symbol]);
+            }
+        }
+        return bits;
+    }
+
+    private void writeHeader(BitWriter writer) throws IOException {
+        writer.write(tableLog - MIN_TABLE_LOG, 3);
+        writer.write(size - 1L, 8);
+        for (int symbol = 0; symbol < size; symbol++) {
+            int count = counts[symbol];
+            if (count == 0) {
+                int run = zeros(symbol);
+                writer.write(0, 4);
+                writer.write(run, 4);
+                symbol += run;
+            } else {
+                int bitLength = 32 - Integer.numberOfLeadingZeros(count);
+                writer.write(bitLength, 4);
+                writer.write(count & ((1 << (bitLength - 1)) - 1), bitLength - 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of symbols without states following the given symbol, at most 15.
+     */
+    private int zeros(int symbol) {
+        int run = 0;
+        while (run < 15 && symbol + run + 1 < size && counts[symbol + run + 1] == 0) run++;
+        return run;
+    }
+}
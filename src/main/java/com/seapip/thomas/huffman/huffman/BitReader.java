@@ -0,0 +1,136 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The {@code BitReader} class reads a limited number of bytes from a stream or byte buffer into a 64-bit buffer,
+ * bits are returned in the same least significant bit first order as they're written by the compressor.
+ * Once the given number of bytes are read the buffer is padded with zero bits.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class BitReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+    private final byte[] data;
+    private final ByteBuffer view;
+    private int position;
+    private int end;
+    private long remaining;
+
+    //Accessed directly by the decode loops so they can keep both in local variables
+    long bits;
+    int count;
+
+    public BitReader(InputStream inputStream, long size) {
+        this.inputStream = inputStream;
+        this.remaining = size;
+        this.data = new byte[(int) Math.max(16, Math.min(BUFFER_SIZE, size))];
+        this.view = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Creates a reader for the remaining bytes of the given buffer, the bytes are read directly from the buffer
+     * so a memory mapped buffer isn't copied. The position of the given buffer isn't changed.
+     *
+     * @param buffer The buffer to read
+     */
+    public BitReader(ByteBuffer buffer) {
+        this.inputStream = null;
+        this.data = null;
+        this.view = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.end = view.limit();
+    }
+
+    /**
+     * Fills the bit buffer so at least 57 bits are available.
+     *
+     * @throws IOException Exception thrown when the stream ends before the given number of bytes are read
+     */
+    public void refill() throws IOException {
+        if (end - position < 8) fill();
+        if (end - position >= 8) {
+            //Read 8 bytes at once and keep as many whole bytes as fit in the buffer
+            bits |= view.getLong(position) << count;
+            int bytes = (63 - count) >>> 3;
+            position += bytes;
+            count += bytes << 3;
+            return;
+        }
+        while (count <= 56) {
+            if (position == end) {
+                //Pad with zero bits after the last byte
+                count = 64;
+                return;
+            }
+            bits |= (view.get(position++) & 0xFFL) << count;
+            count += 8;
+        }
+    }
+
+    /**
+     * Reads the given number of bits.
+     *
+     * @param length The number of bits to read, at most 32
+     * @return The bits, the first bit read is the least significant bit
+     * @throws IOException Exception thrown when reading from the stream fails
+     */
+    public int read(int length) throws IOException {
+        if (count < length) refill();
+        int value = (int) (bits & ((1L << length) - 1));
+        consume(length);
+        return value;
+    }
+
+    public long peek() {
+        return bits;
+    }
+
+    public int available() {
+        return count;
+    }
+
+    public void consume(int length) {
+        bits >>>= length;
+        count -= length;
+    }
+
+    /**
+     * Reads the bytes that haven't been read yet so the stream is positioned after the given number of bytes.
+     *
+     * @throws IOException Exception thrown when the stream ends before the given number of bytes are read
+     */
+    public void finish() throws IOException {
+        if (inputStream == null) return;
+        while (remaining > 0) {
+            int read = inputStream.read(data, 0, (int) Math.min(data.length, remaining));
+            if (read == -1) throw new IOException("Unexpected end of compressed data.");
+            remaining -= read;
+        }
+        position = 0;
+        end = 0;
+    }
+
+    private void fill() throws IOException {
+        if (inputStream == null) return;
+
+        //Move unread bytes to the start of the buffer
+        System.arraycopy(data, position, data, 0, end - position);
+        end -= position;
+        position = 0;
+
+        //Read until the buffer is full or all bytes are read
+        while (end < data.length && remaining > 0) {
+            int read = inputStream.read(data, end, (int) Math.min(data.length - end, remaining));
+            if (read == -1) throw new IOException("Unexpected end of compressed data.");
+            end += read;
+            remaining -= read;
+        }
+    }
+}
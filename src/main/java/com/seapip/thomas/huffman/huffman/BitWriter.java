@@ -0,0 +1,126 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The {@code BitWriter} class packs codes into a 64-bit buffer and writes whole words to a reusable
+ * byte buffer, the byte buffer is written to the stream once it's full. Bits are written least significant
+ * bit first, in the same order as they're read by the {@code BitReader}.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class BitWriter {
+    public static final int MAX_LENGTH = 57;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream outputStream;
+    private final byte[] data;
+    private final ByteBuffer view;
+    private int position;
+    private long bits;
+    private int count;
+
+    public BitWriter(OutputStream outputStream) {
+        this(outputStream, BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a writer with the given buffer size, a small buffer avoids allocating the default 64KB buffer
+     * when only a few bytes are written.
+     *
+     * @param outputStream The stream to write to
+     * @param bufferSize   The buffer size in bytes, at least 8
+     */
+    public BitWriter(OutputStream outputStream, int bufferSize) {
+        this.outputStream = outputStream;
+        this.data = new byte[Math.max(8, bufferSize)];
+        this.view = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes the lowest bits of the given code, the bits above the given length have to be zero.
+     *
+     * @param code   The code to write, least significant bit first
+     * @param length The number of bits to write, at most 57
+     * @throws IOException Exception thrown when writing to the stream fails
+     */
+    public void write(long code, int length) throws IOException {
+        if (count + length > 64) flushBits();
+        bits |= code << count;
+        count += length;
+    }
+
+    /**
+     * Writes the code of each remaining byte of the given buffer, the position of the buffer isn't changed.
+     *
+     * @param bytes   The bytes to encode
+     * @param codes   The code of each byte value, least significant bit first
+     * @param lengths The code length of each byte value, at most 57
+     * @throws IOException Exception thrown when writing to the stream fails
+     */
+    public void write(ByteBuffer bytes, long[] codes, int[] lengths) throws IOException {
+        //Keep the bit buffer in local variables, they're only stored when the buffer is flushed
+        long bits = this.bits;
+        int count = this.count;
+        for (int i = bytes.position(), end = bytes.limit(); i < end; i++) {
+            int b = bytes.get(i) & 0xFF;
+            int length = lengths[b];
+            if (count + length > 64) {
+                this.bits = bits;
+                this.count = count;
+                flushBits();
+                bits = this.bits;
+                count = this.count;
+            }
+            bits |= codes[b] << count;
+            count += length;
+        }
+        this.bits = bits;
+        this.count = count;
+    }
+
+    /**
+     * Writes all remaining bits padded with zero bits to a whole byte.
+     *
+     * @throws IOException Exception thrown when writing to the stream fails
+     */
+    public void finish() throws IOException {
+        flushBits();
+        if (count > 0) {
+            data[position++] = (byte) bits;
+            bits = 0;
+            count = 0;
+        }
+        flush();
+    }
+
+    /**
+     * Drops the bits and bytes that aren't written to the stream yet, so the writer can be reused after writing failed.
+     */
+    public void reset() {
+        position = 0;
+        bits = 0;
+        count = 0;
+    }
+
+    private void flushBits() throws IOException {
+        if (position + 8 > data.length) flush();
+
+        //Write the whole word but only keep the complete bytes
+        view.putLong(position, bits);
+        int bytes = count >>> 3;
+        position += bytes;
+        bits = bytes == 8 ? 0 : bits >>> (bytes << 3);
+        count -= bytes << 3;
+    }
+
+    private void flush() throws IOException {
+        outputStream.write(data, 0, position);
+        position = 0;
+    }
+}
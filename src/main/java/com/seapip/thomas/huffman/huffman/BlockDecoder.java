@@ -0,0 +1,346 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * The {@code BlockDecoder} class decompresses blocks of characters or bytes written by the {@code BlockEncoder}.
+ * Typed blocks hold their type after the character count, blocks written before block types existed are
+ * always single stream blocks. Stored and run blocks are copied or filled without reading a code, context blocks
+ * select the decode table of each symbol by the symbol before it. Huffman and tANS blocks are decoded by the
+ * entropy coder of their type.
+ * A decoder can be reused for many blocks but isn't thread safe.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class BlockDecoder {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final boolean typed;
+    private final EntropyCoder huffman = new HuffmanCoder();
+    private final EntropyCoder ans = new AnsCoder();
+    private char[] characters;
+    private byte[] bytes;
+
+    public BlockDecoder() {
+        this(false);
+    }
+
+    /**
+     * Creates a decoder for blocks with or without a block type.
+     *
+     * @param typed True when blocks hold their type
+     */
+    public BlockDecoder(boolean typed) {
+        this.typed = typed;
+    }
+
+    /**
+     * Decompresses the remainder of a block after its character count.
+     *
+     * @param inputStream The stream to read the block from
+     * @param length      The character count of the block
+     * @param writer      The writer to write the decompressed characters to
+     * @throws IOException Exception thrown when reading or writing fails or the block is invalid
+     */
+    public void decode(InputStream inputStream, long length, Writer writer) throws IOException {
+        int type = readType(inputStream);
+        if (type != BlockEncoder.TYPE_HUFFMAN) {
+            //Other block types are read as a whole
+            char[] block = new char[checkLength(length)];
+            decode(readBlock(inputStream), type, false, block, null, 0, block.length);
+            writer.write(block);
+            return;
+        }
+
+        //Read compressed data size in bytes and code lengths
+        BitReader reader = new BitReader(inputStream, VarInt.read(inputStream));
+        DecodeTable table = CanonicalCode.read(reader).createDecodeTable();
+
+        //Decode compressed data in chunks
+        if (characters == null) characters = new char[BUFFER_SIZE];
+        for (long offset = 0; offset < length; ) {
+            int count = (int) Math.min(characters.length, length - offset);
+            table.decode(reader, characters, 0, count);
+            writer.write(characters, 0, count);
+            offset += count;
+        }
+        reader.finish();
+    }
+
+    /**
+     * Decompresses the remainder of a block after its character count from the given buffer,
+     * the position of the buffer is moved to the end of the block.
+     *
+     * @param buffer The buffer to read the block from
+     * @param length The character count of the block
+     * @param writer The writer to write the decompressed characters to
+     * @throws IOException Exception thrown when writing fails or the block is invalid
+     */
+    public void decode(ByteBuffer buffer, long length, Writer writer) throws IOException {
+        int type = readType(buffer);
+        if (type != BlockEncoder.TYPE_HUFFMAN) {
+            char[] block = new char[checkLength(length)];
+            decode(readBlock(buffer), type, false, block, null, 0, block.length);
+            writer.write(block);
+            return;
+        }
+
+        //Read code lengths
+        BitReader reader = new BitReader(readBlock(buffer));
+        DecodeTable table = CanonicalCode.read(reader).createDecodeTable();
+
+        //Decode compressed data in chunks
+        if (characters == null) characters = new char[BUFFER_SIZE];
+        for (long offset = 0; offset < length; ) {
+            int count = (int) Math.min(characters.length, length - offset);
+            table.decode(reader, characters, 0, count);
+            writer.write(characters, 0, count);
+            offset += count;
+        }
+    }
+
+    /**
+     * Decompresses the remainder of a block after its character count from the given buffer into the given array,
+     * the position of the buffer is moved to the end of the block.
+     *
+     * @param buffer     The buffer to read the block from
+     * @param characters The array to decompress the characters into
+     * @param offset     The offset in the array of the first character
+     * @param length     The character count of the block
+     * @throws IOException Exception thrown when the block is invalid
+     */
+    public void decode(ByteBuffer buffer, char[] characters, int offset, int length) throws IOException {
+        int type = readType(buffer);
+        decode(readBlock(buffer), type, false, characters, null, offset, length);
+    }
+
+    /**
+     * Decompresses the remainder of a block of bytes after its byte count.
+     *
+     * @param inputStream  The stream to read the block from
+     * @param length       The byte count of the block
+     * @param outputStream The stream to write the decompressed bytes to
+     * @throws IOException Exception thrown when reading or writing fails or the block is invalid
+     */
+    public void decode(InputStream inputStream, long length, OutputStream outputStream) throws IOException {
+        int type = readType(inputStream);
+        if (type != BlockEncoder.TYPE_HUFFMAN) {
+            //Other block types are read as a whole
+            byte[] block = new byte[checkLength(length)];
+            decode(readBlock(inputStream), type, true, null, block, 0, block.length);
+            outputStream.write(block);
+            return;
+        }
+
+        //Read compressed data size in bytes and code lengths
+        BitReader reader = new BitReader(inputStream, VarInt.read(inputStream));
+        DecodeTable table = readByteCode(reader).createDecodeTable();
+
+        //Decode compressed data in chunks
+        if (bytes == null) bytes = new byte[BUFFER_SIZE];
+        for (long offset = 0; offset < length; ) {
+            int count = (int) Math.min(bytes.length, length - offset);
+            table.decode(reader, bytes, 0, count);
+            outputStream.write(bytes, 0, count);
+            offset += count;
+        }
+        reader.finish();
+    }
+
+    /**
+     * Decompresses the remainder of a block of bytes after its byte count from the given buffer into the given array,
+     * the position of the buffer is moved to the end of the block.
+     *
+     * @param buffer The buffer to read the block from
+     * @param bytes  The array to decompress the bytes into
+     * @param offset The offset in the array of the first byte
+     * @param length The byte count of the block
+     * @throws IOException Exception thrown when the block is invalid
+     */
+    public void decode(ByteBuffer buffer, byte[] bytes, int offset, int length) throws IOException {
+        int type = readType(buffer);
+        decode(readBlock(buffer), type, true, null, bytes, offset, length);
+    }
+
+    /**
+     * Decompresses the compressed data of a block of bytes of which the type and compressed data size are already read.
+     *
+     * @param type   The block type
+     * @param data   The compressed data of the block, from the position till the limit, the position may be moved
+     * @param bytes  The array to decompress the bytes into
+     * @param offset The offset in the array of the first byte
+     * @param length The byte count of the block
+     * @throws IOException Exception thrown when the block is invalid
+     */
+    public void decode(int type, ByteBuffer data, byte[] bytes, int offset, int length) throws IOException {
+        decode(data, type, true, null, bytes, offset, length);
+    }
+
+    /**
+     * Decompresses the compressed data of a block of bytes of which the type and compressed data size are already read
+     * into the given buffer at an index, the position of the buffer isn't moved. Direct buffers are written without
+     * an intermediate array.
+     *
+     * @param type   The block type
+     * @param data   The compressed data of the block, from the position till the limit, the position may be moved
+     * @param bytes  The buffer to decompress the bytes into
+     * @param offset The index in the buffer of the first byte
+     * @param length The byte count of the block
+     * @throws IOException Exception thrown when the block is invalid
+     */
+    public void decode(int type, ByteBuffer data, ByteBuffer bytes, int offset, int length) throws IOException {
+        switch (type) {
+            case BlockEncoder.TYPE_STORED:
+                if (data.remaining() != length) throw new IOException("Invalid stored block.");
+                ByteBuffer target = bytes.duplicate();
+                target.position(offset);
+                target.put(data);
+                return;
+            case BlockEncoder.TYPE_RUN:
+                long symbol = VarInt.read(data);
+                if (symbol > 0xFF) throw new IOException("Invalid run block.");
+                for (int end = offset + length; offset < end; offset++) bytes.put(offset, (byte) symbol);
+                return;
+            case BlockEncoder.TYPE_CONTEXT:
+                BitReader contextReader = new BitReader(data);
+                ContextCode.read(contextReader).createDecodeTable().decodeContexts(contextReader, bytes, offset, length);
+                return;
+            case BlockEncoder.TYPE_HUFFMAN:
+            case BlockEncoder.TYPE_ANS:
+                (type == BlockEncoder.TYPE_ANS ? ans : huffman).decode(new BitReader(data), bytes, offset, length);
+                return;
+            case BlockEncoder.TYPE_INTERLEAVED:
+                BitReader reader = new BitReader(data);
+                CanonicalCode canonicalCode = readByteCode(reader);
+                DecodeTable table = canonicalCode.createDecodeTable();
+                table.decode(readStreams(data, (int) ((canonicalCode.getHeaderSize() + 7) / 8)), bytes, offset, length);
+                return;
+            default:
+                throw new IOException("Unknown block type " + type + ".");
+        }
+    }
+
+    private void decode(ByteBuffer data, int type, boolean binary, char[] characters, byte[] bytes, int offset, int length)
+            throws IOException {
+        switch (type) {
+            case BlockEncoder.TYPE_STORED:
+                if (data.remaining() != (binary ? length : 2L * length)) throw new IOException("Invalid stored block.");
+                if (binary) data.get(bytes, offset, length);
+                else data.order(ByteOrder.BIG_ENDIAN).asCharBuffer().get(characters, offset, length);
+                return;
+            case BlockEncoder.TYPE_RUN:
+                long symbol = VarInt.read(data);
+                if (symbol > (binary ? 0xFF : Character.MAX_VALUE)) throw new IOException("Invalid run block.");
+                if (binary) Arrays.fill(bytes, offset, offset + length, (byte) symbol);
+                else Arrays.fill(characters, offset, offset + length, (char) symbol);
+                return;
+            case BlockEncoder.TYPE_CONTEXT:
+                //Each symbol is decoded with the table selected by the symbol before it
+                BitReader contextReader = new BitReader(data);
+                DecodeTable contextTable = ContextCode.read(contextReader).createDecodeTable();
+                if (binary) contextTable.decodeContexts(contextReader, bytes, offset, length);
+                else contextTable.decodeContexts(contextReader, characters, offset, length);
+                return;
+            case BlockEncoder.TYPE_HUFFMAN:
+            case BlockEncoder.TYPE_ANS:
+                //Single stream blocks hold the code of their coder followed by the symbols
+                EntropyCoder coder = type == BlockEncoder.TYPE_ANS ? ans : huffman;
+                BitReader reader = new BitReader(data);
+                if (binary) coder.decode(reader, bytes, offset, length);
+                else coder.decode(reader, characters, offset, length);
+                return;
+            case BlockEncoder.TYPE_INTERLEAVED:
+                break;
+            default:
+                throw new IOException("Unknown block type " + type + ".");
+        }
+
+        //Read code lengths followed by the stream sizes
+        BitReader reader = new BitReader(data);
+        CanonicalCode canonicalCode = binary ? readByteCode(reader) : CanonicalCode.read(reader);
+        DecodeTable table = canonicalCode.createDecodeTable();
+        BitReader[] readers = readStreams(data, (int) ((canonicalCode.getHeaderSize() + 7) / 8));
+        if (binary) table.decode(readers, bytes, offset, length);
+        else table.decode(readers, characters, offset, length);
+    }
+
+    private static BitReader[] readStreams(ByteBuffer data, int headerSize) throws IOException {
+        //Read the sizes of the first streams after the code lengths, the last stream holds the remainder
+        ByteBuffer streams = data.duplicate();
+        if (headerSize > streams.remaining()) throw new EOFException("Unexpected end of compressed data.");
+        streams.position(streams.position() + headerSize);
+        long[] sizes = new long[BlockEncoder.STREAMS];
+        long total = 0;
+        for (int stream = 0; stream < BlockEncoder.STREAMS - 1; stream++) {
+            sizes[stream] = VarInt.read(streams);
+            total += sizes[stream];
+            if (sizes[stream] < 0 || total > streams.remaining()) throw new IOException("Invalid stream sizes.");
+        }
+        sizes[BlockEncoder.STREAMS - 1] = streams.remaining() - total;
+
+        BitReader[] readers = new BitReader[BlockEncoder.STREAMS];
+        for (int stream = 0; stream < BlockEncoder.STREAMS; stream++) {
+            ByteBuffer part = streams.duplicate();
+            part.limit(part.position() + (int) sizes[stream]);
+            readers[stream] = new BitReader(part);
+            streams.position(part.limit());
+        }
+        return readers;
+    }
+
+    private int readType(InputStream inputStream) throws IOException {
+        if (!typed) return BlockEncoder.TYPE_HUFFMAN;
+        int type = inputStream.read();
+        if (type == -1) throw new EOFException("Unexpected end of compressed data.");
+        return type;
+    }
+
+    private int readType(ByteBuffer buffer) throws IOException {
+        if (!typed) return BlockEncoder.TYPE_HUFFMAN;
+        if (!buffer.hasRemaining()) throw new EOFException("Unexpected end of compressed data.");
+        return buffer.get() & 0xFF;
+    }
+
+    private static int checkLength(long length) throws IOException {
+        if (length > Integer.MAX_VALUE - 8) throw new IOException("Invalid block length.");
+        return (int) length;
+    }
+
+    private static CanonicalCode readByteCode(BitReader reader) throws IOException {
+        CanonicalCode canonicalCode = CanonicalCode.read(reader);
+        if (canonicalCode.getLengths().length > 256) throw new IOException("Invalid code lengths.");
+        return canonicalCode;
+    }
+
+    private static ByteBuffer readBlock(InputStream inputStream) throws IOException {
+        //Read compressed data size in bytes and the compressed data
+        long size = VarInt.read(inputStream);
+        if (size > Integer.MAX_VALUE - 8) throw new IOException("Invalid block size.");
+        byte[] data = new byte[(int) size];
+        for (int offset = 0; offset < data.length; ) {
+            int read = inputStream.read(data, offset, data.length - offset);
+            if (read == -1) throw new EOFException("Unexpected end of compressed data.");
+            offset += read;
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    private static ByteBuffer readBlock(ByteBuffer buffer) throws IOException {
+        //Read compressed data size in bytes and limit the data to the block
+        long size = VarInt.read(buffer);
+        if (size > buffer.remaining()) throw new EOFException("Unexpected end of compressed data.");
+        ByteBuffer data = buffer.duplicate();
+        data.limit(data.position() + (int) size);
+        buffer.position(buffer.position() + (int) size);
+        return data.slice();
+    }
+}
@@ -0,0 +1,783 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The {@code BlockEncoder} class compresses a block of characters that's held in memory, each block
+ * has its own canonical code so blocks can be compressed and decompressed independently of each other.
+ * <p>
+ * A block consists of the character count, the block type and the compressed data size in bytes, followed by the
+ * code lengths and the compressed data in a single bit stream. Interleaved blocks split the characters in four
+ * parts encoded in their own bit stream, the code lengths are followed by the sizes of the first three streams
+ * so the streams can be decoded in a single loop. Blocks of bytes use the same layout with an alphabet of
+ * 256 symbols.
+ * <p>
+ * The compressed size of a block is known from its frequencies and code lengths before anything is encoded,
+ * a block that wouldn't get smaller is stored as it is, two bytes per character, and a block of a single
+ * character or byte is stored as a run of that symbol.
+ * <p>
+ * Encoders with contexts enabled also cluster the contexts of the previous symbol into a few codes and write a
+ * context block when it's smaller than a block with a single code. Context blocks hold the context code followed
+ * by a single bit stream, only blocks of at most 256 distinct characters or bytes can be context blocks.
+ * <p>
+ * Encoders with a tANS gain also estimate the size of a tANS block, which codes symbols in fractions of bits, and
+ * write it when it saves at least the given share of a Huffman block. tANS blocks decode slower than Huffman blocks,
+ * so the gain trades size for speed. They're single stream blocks of at most 256 distinct characters or bytes.
+ * <p>
+ * Sampling encoders skip the counting pass over large blocks, the code is built from evenly spread chunks of an
+ * eighth of the block. Every symbol up to the last one sampled gets a code so symbols missed by the sample are still
+ * encoded, a block holding a symbol above it is counted and encoded again. The encoded data is buffered since its
+ * size is written before it, and sampled blocks are only Huffman or interleaved blocks.
+ * An encoder can be reused for many blocks but isn't thread safe.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class BlockEncoder {
+    public static final int TYPE_HUFFMAN = 0;
+    public static final int TYPE_INTERLEAVED = 1;
+    public static final int TYPE_STORED = 2;
+    public static final int TYPE_RUN = 3;
+    public static final int TYPE_CONTEXT = 4;
+    public static final int TYPE_ANS = 5;
+    public static final int STREAMS = 4;
+    private static final int MIN_INTERLEAVED_LENGTH = 1024;
+    private static final int MIN_SAMPLED_LENGTH = 64 * 1024;
+    private static final int SAMPLE_SIZE = 4 * 1024;
+    private static final int SAMPLE_INTERVAL = 32 * 1024;
+
+    private final int maxCodeLength;
+    private final boolean interleaved;
+    private final boolean contexts;
+    private final int ansGain;
+    private final boolean sampled;
+    private final HuffmanCoder huffman = new HuffmanCoder();
+    private final AnsCoder ans = new AnsCoder();
+    private final Histogram histogram = new Histogram();
+    private final Target target = new Target();
+    private final BitWriter writer = new BitWriter(target);
+    private final Pending pending = new Pending();
+    private byte[] chunk;
+    private long[] frequencies;
+    private final long[] byteFrequencies = new long[256];
+    private long[] blockFrequencies;
+    private boolean estimated;
+    private int[] lengths;
+    private long[][] pairs;
+    private long contextBits;
+    private long mark;
+    private long countNanos;
+    private long codeNanos;
+    private long encodeNanos;
+
+    public BlockEncoder(int maxCodeLength) {
+        this(maxCodeLength, false);
+    }
+
+    /**
+     * Creates an encoder that splits blocks of at least 1024 characters or bytes in four interleaved streams.
+     *
+     * @param maxCodeLength The maximum code length
+     * @param interleaved   True to write interleaved blocks
+     */
+    public BlockEncoder(int maxCodeLength, boolean interleaved) {
+        this(maxCodeLength, interleaved, false);
+    }
+
+    /**
+     * Creates an encoder that can also select the code of each symbol by the symbol before it.
+     *
+     * @param maxCodeLength The maximum code length
+     * @param interleaved   True to write interleaved blocks
+     * @param contexts      True to write context blocks when they're smaller
+     */
+    public BlockEncoder(int maxCodeLength, boolean interleaved, boolean contexts) {
+        this(maxCodeLength, interleaved, contexts, -1);
+    }
+
+    /**
+     * Creates an encoder that can also write tANS blocks when they're enough smaller than Huffman blocks.
+     *
+     * @param maxCodeLength The maximum code length
+     * @param interleaved   True to write interleaved blocks
+     * @param contexts      True to write context blocks when they're smaller
+     * @param ansGain       The share of the size of a Huffman block in 64ths a tANS block needs to save, zero to
+     *                      write the smallest block or -1 to never write tANS blocks
+     */
+    public BlockEncoder(int maxCodeLength, boolean interleaved, boolean contexts, int ansGain) {
+        this(maxCodeLength, interleaved, contexts, ansGain, false);
+    }
+
+    /**
+     * Creates an encoder that can build the code of blocks of at least 64K characters or bytes from a sample.
+     *
+     * @param maxCodeLength The maximum code length
+     * @param interleaved   True to write interleaved blocks
+     * @param contexts      True to write context blocks when they're smaller, only for counted blocks
+     * @param ansGain       The share of the size of a Huffman block in 64ths a tANS block needs to save, zero to
+     *                      write the smallest block or -1 to never write tANS blocks, only for counted blocks
+     * @param sampled       True to sample large blocks instead of counting every symbol
+     */
+    public BlockEncoder(int maxCodeLength, boolean interleaved, boolean contexts, int ansGain, boolean sampled) {
+        this.maxCodeLength = maxCodeLength;
+        this.interleaved = interleaved;
+        this.contexts = contexts;
+        this.ansGain = ansGain;
+        this.sampled = sampled;
+    }
+
+    /**
+     * Compresses the given characters as a single block.
+     *
+     * @param characters   The characters to compress
+     * @param offset       The offset of the first character
+     * @param length       The number of characters to compress, larger than zero
+     * @param outputStream The stream to write the block to
+     * @throws IOException Exception thrown when writing fails
+     */
+    public void encode(char[] characters, int offset, int length, OutputStream outputStream) throws IOException {
+        start();
+        estimated = sampled && length >= MIN_SAMPLED_LENGTH && encodeSampled(characters, offset, length, outputStream);
+        if (!estimated) {
+            //The encoding of a sampled block that's counted again is encode time
+            end();
+            encodeCounted(characters, offset, length, outputStream);
+        }
+        end();
+    }
+
+    private void encodeCounted(char[] characters, int offset, int length, OutputStream outputStream) throws IOException {
+        //Count characters
+        if (frequencies == null) frequencies = new long[Character.MAX_VALUE + 1];
+        else Arrays.fill(frequencies, 0);
+        histogram.count(characters, offset, length, frequencies);
+        counted();
+
+        //Only characters up to the last one that occurs get a code, so small blocks don't pay for the whole alphabet
+        int size = this.frequencies.length;
+        while (size > 1 && this.frequencies[size - 1] == 0) size--;
+        long[] frequencies = Arrays.copyOf(this.frequencies, size);
+        this.blockFrequencies = frequencies;
+        if (writeRun(outputStream, length, frequencies)) return;
+
+        //Calculate code lengths and assign canonical codes
+        long bitCount = huffman.create(frequencies, maxCodeLength);
+        CanonicalCode canonicalCode = huffman.getCode();
+        long[] codes = canonicalCode.getCodes();
+        int[] lengths = canonicalCode.getLengths();
+        this.lengths = lengths;
+        EntropyCoder coder = huffman;
+        if (ansGain >= 0 && size <= AnsCoder.MAX_SYMBOLS && gains(ans.create(frequencies, maxCodeLength), bitCount)) {
+            //The estimate only decides whether encoding is worth it, the encoded size decides the block type
+            long ansBitCount = ans.encode(characters, offset, length);
+            if (gains(ansBitCount, bitCount)) {
+                coder = ans;
+                bitCount = ansBitCount;
+                this.lengths = ans.getLengths();
+            }
+        }
+
+        //Store characters when the codes don't make them smaller
+        ContextCode contextCode = null;
+        if (contexts && size <= ContextCode.MAX_SYMBOLS) {
+            long[][] pairs = pairs(size);
+            for (int i = offset, previous = 0; i < offset + length; previous = characters[i++]) pairs[previous][characters[i]]++;
+            contextCode = contextCode(pairs, size, bitCount);
+            if (contextCode != null) bitCount = contextCode.getHeaderSize() + contextBits;
+        }
+        coded();
+        if ((bitCount + 7) / 8 >= 2L * length) {
+            this.lengths = flat(frequencies.length, Character.SIZE);
+            ByteBuffer stored = ByteBuffer.allocate(2 * length);
+            stored.asCharBuffer().put(characters, offset, length);
+            writeStored(outputStream, length, stored);
+            return;
+        }
+
+        BitWriter writer = writer(outputStream);
+        if (contextCode != null) {
+            //Encode each character with the code of the character before it
+            writeContext(outputStream, writer, contextCode, length, bitCount);
+            long[][] codesOf = codes(contextCode);
+            int[][] lengthsOf = lengths(contextCode);
+            for (int i = offset, previous = 0; i < offset + length; previous = characters[i++]) {
+                writer.write(codesOf[previous][characters[i]], lengthsOf[previous][characters[i]]);
+            }
+            writer.finish();
+            return;
+        }
+        if (coder == huffman && interleaved && length >= MIN_INTERLEAVED_LENGTH) {
+            //Calculate the size of each stream and write the header
+            int[] bounds = bounds(offset, length);
+            long[] sizes = new long[STREAMS];
+            for (int stream = 0; stream < STREAMS; stream++) {
+                long streamBits = 0;
+                for (int i = bounds[stream]; i < bounds[stream + 1]; i++) streamBits += lengths[characters[i]];
+                sizes[stream] = (streamBits + 7) / 8;
+            }
+            writeInterleaved(outputStream, writer, canonicalCode, length, sizes);
+
+            //Encode each part of the characters in its own stream
+            for (int stream = 0; stream < STREAMS; stream++) {
+                for (int i = bounds[stream]; i < bounds[stream + 1]; i++) writer.write(codes[characters[i]], lengths[characters[i]]);
+                writer.finish();
+            }
+            return;
+        }
+
+        if (coder == huffman) huffman.encode(characters, offset, length);
+        write(outputStream, writer, coder, length, bitCount);
+    }
+
+    /**
+     * Compresses the remaining bytes of the given buffer as a single block, the position of the buffer isn't changed.
+     *
+     * @param bytes        The bytes to compress, at least one byte
+     * @param outputStream The stream to write the block to
+     * @throws IOException Exception thrown when writing fails
+     */
+    public void encode(ByteBuffer bytes, OutputStream outputStream) throws IOException {
+        start();
+        estimated = sampled && bytes.remaining() >= MIN_SAMPLED_LENGTH && encodeSampled(bytes, outputStream);
+        if (!estimated) {
+            end();
+            encodeCounted(bytes, outputStream);
+        }
+        end();
+    }
+
+    private void encodeCounted(ByteBuffer bytes, OutputStream outputStream) throws IOException {
+        int offset = bytes.position();
+        int end = bytes.limit();
+
+        //Count bytes
+        Arrays.fill(byteFrequencies, 0);
+        histogram.count(bytes, byteFrequencies);
+        counted();
+        this.blockFrequencies = byteFrequencies;
+        if (writeRun(outputStream, end - offset, byteFrequencies)) return;
+
+        //Calculate code lengths and assign canonical codes
+        long bitCount = huffman.create(byteFrequencies, maxCodeLength);
+        CanonicalCode canonicalCode = huffman.getCode();
+        long[] codes = canonicalCode.getCodes();
+        int[] lengths = canonicalCode.getLengths();
+        this.lengths = lengths;
+        EntropyCoder coder = huffman;
+        if (ansGain >= 0 && gains(ans.create(byteFrequencies, maxCodeLength), bitCount)) {
+            long ansBitCount = ans.encode(bytes);
+            if (gains(ansBitCount, bitCount)) {
+                coder = ans;
+                bitCount = ansBitCount;
+                this.lengths = ans.getLengths();
+            }
+        }
+
+        //Store bytes when the codes don't make them smaller, which skips encoding incompressible data
+        ContextCode contextCode = null;
+        if (contexts) {
+            long[][] pairs = pairs(byteFrequencies.length);
+            for (int i = offset, previous = 0; i < end; i++) {
+                int b = bytes.get(i) & 0xFF;
+                pairs[previous][b]++;
+                previous = b;
+            }
+            contextCode = contextCode(pairs, byteFrequencies.length, bitCount);
+            if (contextCode != null) bitCount = contextCode.getHeaderSize() + contextBits;
+        }
+        coded();
+        if ((bitCount + 7) / 8 >= end - offset) {
+            this.lengths = flat(byteFrequencies.length, Byte.SIZE);
+            writeStored(outputStream, end - offset, bytes.duplicate());
+            return;
+        }
+
+        BitWriter writer = writer(outputStream);
+        if (contextCode != null) {
+            //Encode each byte with the code of the byte before it
+            writeContext(outputStream, writer, contextCode, end - offset, bitCount);
+            long[][] codesOf = codes(contextCode);
+            int[][] lengthsOf = lengths(contextCode);
+            for (int i = offset, previous = 0; i < end; i++) {
+                int b = bytes.get(i) & 0xFF;
+                writer.write(codesOf[previous][b], lengthsOf[previous][b]);
+                previous = b;
+            }
+            writer.finish();
+            return;
+        }
+        if (coder == huffman && interleaved && end - offset >= MIN_INTERLEAVED_LENGTH) {
+            //Calculate the size of each stream and write the header
+            int[] bounds = bounds(offset, end - offset);
+            long[] sizes = new long[STREAMS];
+            for (int stream = 0; stream < STREAMS; stream++) {
+                long streamBits = 0;
+                for (int i = bounds[stream]; i < bounds[stream + 1]; i++) streamBits += lengths[bytes.get(i) & 0xFF];
+                sizes[stream] = (streamBits + 7) / 8;
+            }
+            writeInterleaved(outputStream, writer, canonicalCode, end - offset, sizes);
+
+            //Encode each part of the bytes in its own stream
+            ByteBuffer part = bytes.duplicate();
+            for (int stream = 0; stream < STREAMS; stream++) {
+                part.limit(bounds[stream + 1]).position(bounds[stream]);
+                writer.write(part, codes, lengths);
+                writer.finish();
+            }
+            return;
+        }
+
+        if (coder == huffman) huffman.encode(bytes);
+        write(outputStream, writer, coder, end - offset, bitCount);
+    }
+
+    private boolean encodeSampled(char[] characters, int offset, int length, OutputStream outputStream) throws IOException {
+        //Count evenly spread chunks of the characters
+        if (frequencies == null) frequencies = new long[Character.MAX_VALUE + 1];
+        else Arrays.fill(frequencies, 0);
+        int end = offset + length;
+        long count = 0;
+        for (int chunk = offset, i = 0; chunk < end; chunk += SAMPLE_INTERVAL, i++) {
+            int start = chunk + sampleOffset(i, end - chunk);
+            int size = Math.min(SAMPLE_SIZE, end - start);
+            histogram.count(characters, start, size, frequencies);
+            count += size;
+        }
+        int size = this.frequencies.length;
+        while (size > 1 && this.frequencies[size - 1] == 0) size--;
+        long[] frequencies = floor(this.frequencies, size, count, length);
+        counted();
+        if (frequencies == null) return false;
+
+        //Store characters when the sample says the codes don't make them smaller
+        int[] lengths = PackageMerge.lengths(frequencies, maxCodeLength);
+        CanonicalCode canonicalCode = new CanonicalCode(lengths);
+        long[] codes = canonicalCode.getCodes();
+        this.blockFrequencies = frequencies;
+        coded();
+        if ((estimate(canonicalCode, frequencies) + 7) / 8 >= 2L * length) {
+            writeSampledStored(characters, offset, length, outputStream);
+            return true;
+        }
+
+        //Encode the characters into the pending buffer, a character without a code is only found while encoding
+        pending.reset();
+        BitWriter writer = writer(pending);
+        canonicalCode.write(writer);
+        long[] sizes = null;
+        if (interleaved) {
+            writer.finish();
+            sizes = new long[STREAMS + 1];
+            sizes[0] = pending.size();
+            int[] bounds = bounds(offset, length);
+            for (int stream = 0; stream < STREAMS; stream++) {
+                for (int i = bounds[stream]; i < bounds[stream + 1]; i++) {
+                    char c = characters[i];
+                    if (c >= size) return false;
+                    writer.write(codes[c], lengths[c]);
+                }
+                writer.finish();
+                sizes[stream + 1] = pending.size();
+            }
+        } else {
+            for (int i = offset; i < end; i++) {
+                char c = characters[i];
+                if (c >= size) return false;
+                writer.write(codes[c], lengths[c]);
+            }
+            writer.finish();
+        }
+
+        this.lengths = lengths;
+        if (pending.size() >= 2L * length) writeSampledStored(characters, offset, length, outputStream);
+        else writePending(outputStream, length, sizes);
+        return true;
+    }
+
+    private void writeSampledStored(char[] characters, int offset, int length, OutputStream outputStream) throws IOException {
+        this.lengths = flat(blockFrequencies.length, Character.SIZE);
+        ByteBuffer stored = ByteBuffer.allocate(2 * length);
+        stored.asCharBuffer().put(characters, offset, length);
+        writeStored(outputStream, length, stored);
+    }
+
+    private boolean encodeSampled(ByteBuffer bytes, OutputStream outputStream) throws IOException {
+        //Count evenly spread chunks of the bytes, every byte gets a code
+        Arrays.fill(byteFrequencies, 0);
+        int offset = bytes.position();
+        int end = bytes.limit();
+        ByteBuffer chunks = bytes.duplicate();
+        long count = 0;
+        for (int chunk = offset, i = 0; chunk < end; chunk += SAMPLE_INTERVAL, i++) {
+            int start = chunk + sampleOffset(i, end - chunk);
+            int size = Math.min(SAMPLE_SIZE, end - start);
+            chunks.limit(start + size).position(start);
+            histogram.count(chunks, byteFrequencies);
+            count += size;
+        }
+        long[] frequencies = floor(byteFrequencies, byteFrequencies.length, count, end - offset);
+        counted();
+        if (frequencies == null) return false;
+
+        //Store bytes when the sample says the codes don't make them smaller, which skips encoding incompressible data
+        int[] lengths = PackageMerge.lengths(frequencies, maxCodeLength);
+        CanonicalCode canonicalCode = new CanonicalCode(lengths);
+        long[] codes = canonicalCode.getCodes();
+        this.blockFrequencies = frequencies;
+        coded();
+        this.lengths = flat(frequencies.length, Byte.SIZE);
+        if ((estimate(canonicalCode, frequencies) + 7) / 8 >= end - offset) {
+            writeStored(outputStream, end - offset, bytes.duplicate());
+            return true;
+        }
+
+        //Encode the bytes into the pending buffer
+        pending.reset();
+        BitWriter writer = writer(pending);
+        canonicalCode.write(writer);
+        long[] sizes = null;
+        if (interleaved) {
+            writer.finish();
+            sizes = new long[STREAMS + 1];
+            sizes[0] = pending.size();
+            int[] bounds = bounds(offset, end - offset);
+            ByteBuffer part = bytes.duplicate();
+            for (int stream = 0; stream < STREAMS; stream++) {
+                part.limit(bounds[stream + 1]).position(bounds[stream]);
+                writer.write(part, codes, lengths);
+                writer.finish();
+                sizes[stream + 1] = pending.size();
+            }
+        } else {
+            writer.write(bytes, codes, lengths);
+            writer.finish();
+        }
+
+        if (pending.size() >= end - offset) {
+            writeStored(outputStream, end - offset, bytes.duplicate());
+            return true;
+        }
+        this.lengths = lengths;
+        writePending(outputStream, end - offset, sizes);
+        return true;
+    }
+
+    /**
+     * Returns the offset of a sample in the given interval, samples start at a different offset in each interval
+     * so data that repeats every interval isn't always sampled at the same place.
+     */
+    private static int sampleOffset(int interval, int remaining) {
+        int range = Math.min(SAMPLE_INTERVAL, remaining) - SAMPLE_SIZE;
+        return range <= 0 ? 0 : (int) (((interval * 0x9E3779B9L) & 0xFFFFFFFFL) % range);
+    }
+
+    /**
+     * Returns the sampled counts scaled to the block length with every symbol below the given size counted at
+     * least once, or null when the sample holds a single symbol which is counted again to check for a run block.
+     */
+    private static long[] floor(long[] counts, int size, long count, int length) {
+        int distinct = 0;
+        long[] frequencies = new long[size];
+        for (int i = 0; i < size; i++) {
+            if (counts[i] > 0) distinct++;
+            frequencies[i] = Math.max(1, counts[i] * length / count);
+        }
+        return distinct > 1 ? frequencies : null;
+    }
+
+    private static long estimate(CanonicalCode canonicalCode, long[] frequencies) {
+        int[] lengths = canonicalCode.getLengths();
+        long bitCount = canonicalCode.getHeaderSize();
+        for (int i = 0; i < lengths.length; i++) bitCount += frequencies[i] * lengths[i];
+        return bitCount;
+    }
+
+    private void writePending(OutputStream outputStream, int length, long[] sizes) throws IOException {
+        //Write count, type and compressed data size in bytes followed by the pending data
+        VarInt.write(outputStream, length);
+        if (sizes == null) {
+            outputStream.write(TYPE_HUFFMAN);
+            VarInt.write(outputStream, pending.size());
+            pending.writeTo(outputStream);
+            return;
+        }
+
+        //The stream sizes follow the code lengths of interleaved blocks, the last stream holds the remainder
+        ByteArrayOutputStream jumpTable = new ByteArrayOutputStream(16);
+        for (int stream = 0; stream < STREAMS - 1; stream++) VarInt.write(jumpTable, sizes[stream + 1] - sizes[stream]);
+        outputStream.write(TYPE_INTERLEAVED);
+        VarInt.write(outputStream, pending.size() + (long) jumpTable.size());
+        pending.writeTo(outputStream, 0, (int) sizes[0]);
+        jumpTable.writeTo(outputStream);
+        pending.writeTo(outputStream, (int) sizes[0], pending.size());
+    }
+
+    /**
+     * Returns the character or byte frequencies of the last encoded block, for sampled blocks the sampled
+     * frequencies scaled to the block length.
+     *
+     * @return The frequencies indexed by character or byte
+     */
+    public long[] getFrequencies() {
+        return blockFrequencies;
+    }
+
+    /**
+     * Returns whether the frequencies of the last encoded block are estimated from a sample instead of counted.
+     *
+     * @return True when the block was encoded with a code built from a sample
+     */
+    public boolean isEstimated() {
+        return estimated;
+    }
+
+    /**
+     * Returns the code lengths of the last encoded block, for context blocks the average code length of each
+     * character or byte over its contexts rounded to whole bits.
+     *
+     * @return The code lengths indexed by character or byte
+     */
+    public int[] getLengths() {
+        return lengths;
+    }
+
+    /**
+     * Returns the time spent counting the symbols of the last encoded block, or sampling them.
+     *
+     * @return The time in nanoseconds
+     */
+    public long getCountNanos() {
+        return countNanos;
+    }
+
+    /**
+     * Returns the time spent building and choosing the code of the last encoded block.
+     *
+     * @return The time in nanoseconds
+     */
+    public long getCodeNanos() {
+        return codeNanos;
+    }
+
+    /**
+     * Returns the time spent encoding and writing the last encoded block, including encoding discarded when
+     * a sampled block is counted again.
+     *
+     * @return The time in nanoseconds
+     */
+    public long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    private void start() {
+        countNanos = 0;
+        codeNanos = 0;
+        encodeNanos = 0;
+        mark = System.nanoTime();
+    }
+
+    private void counted() {
+        long now = System.nanoTime();
+        countNanos += now - mark;
+        mark = now;
+    }
+
+    private void coded() {
+        long now = System.nanoTime();
+        codeNanos += now - mark;
+        mark = now;
+    }
+
+    private void end() {
+        long now = System.nanoTime();
+        encodeNanos += now - mark;
+        mark = now;
+    }
+
+    /**
+     * Returns the bounds of the interleaved streams, each of the first streams holds a quarter of the symbols
+     * rounded up and the last stream holds the remainder.
+     *
+     * @param offset The offset of the first symbol
+     * @param length The number of symbols
+     * @return The offset of the first symbol of each stream followed by the end of the last stream
+     */
+    static int[] bounds(int offset, int length) {
+        int part = (length + STREAMS - 1) / STREAMS;
+        int[] bounds = new int[STREAMS + 1];
+        for (int stream = 0; stream <= STREAMS; stream++) bounds[stream] = offset + Math.min(stream * part, length);
+        return bounds;
+    }
+
+    /**
+     * Returns true when the given tANS size saves at least the tANS gain of the given Huffman size.
+     */
+    private boolean gains(long ansBitCount, long bitCount) {
+        return ansBitCount != Long.MAX_VALUE && ansBitCount * 64 < bitCount * (64 - ansGain);
+    }
+
+    private static void write(OutputStream outputStream, BitWriter writer, EntropyCoder coder, int length, long bitCount)
+            throws IOException {
+        //Write count, type and compressed data size in bytes including the code
+        VarInt.write(outputStream, length);
+        outputStream.write(coder.getType());
+        VarInt.write(outputStream, (bitCount + 7) / 8);
+        coder.write(writer);
+        writer.finish();
+    }
+
+    private long[][] pairs(int size) {
+        //The pair counts are kept for the next block, only the rows of the alphabet are cleared
+        if (pairs == null) pairs = new long[ContextCode.MAX_SYMBOLS][ContextCode.MAX_SYMBOLS];
+        for (int i = 0; i < size; i++) Arrays.fill(pairs[i], 0);
+        return pairs;
+    }
+
+    /**
+     * Returns the context code for the counted pairs when it's smaller than the given single code size in bits,
+     * and keeps the size of the encoded symbols.
+     */
+    private ContextCode contextCode(long[][] pairs, int size, long bitCount) {
+        ContextCode contextCode = ContextCode.create(pairs, size, maxCodeLength);
+        int[] contextTables = contextCode.getContexts();
+        CanonicalCode[] tables = contextCode.getTables();
+        long bits = 0;
+        long[] weighted = new long[size];
+        for (int context = 0; context < size; context++) {
+            int[] tableLengths = tables[contextTables[context]].getLengths();
+            for (int symbol = 0; symbol < size; symbol++) {
+                bits += pairs[context][symbol] * tableLengths[symbol];
+                weighted[symbol] += pairs[context][symbol] * tableLengths[symbol];
+            }
+        }
+        if (contextCode.getHeaderSize() + bits >= bitCount) return null;
+        contextBits = bits;
+        long[] frequencies = this.blockFrequencies;
+        int[] averages = new int[size];
+        for (int symbol = 0; symbol < size; symbol++) {
+            if (frequencies[symbol] > 0) averages[symbol] = (int) ((weighted[symbol] + frequencies[symbol] / 2) / frequencies[symbol]);
+        }
+        this.lengths = averages;
+        return contextCode;
+    }
+
+    private static long[][] codes(ContextCode contextCode) {
+        long[][] codes = new long[contextCode.getContexts().length][];
+        for (int context = 0; context < codes.length; context++) {
+            codes[context] = contextCode.getTables()[contextCode.getContexts()[context]].getCodes();
+        }
+        return codes;
+    }
+
+    private static int[][] lengths(ContextCode contextCode) {
+        int[][] lengths = new int[contextCode.getContexts().length][];
+        for (int context = 0; context < lengths.length; context++) {
+            lengths[context] = contextCode.getTables()[contextCode.getContexts()[context]].getLengths();
+        }
+        return lengths;
+    }
+
+    private static void writeContext(OutputStream outputStream, BitWriter writer, ContextCode contextCode, int length,
+                                     long bitCount) throws IOException {
+        //Write count, type and compressed data size in bytes including the context code
+        VarInt.write(outputStream, length);
+        outputStream.write(TYPE_CONTEXT);
+        VarInt.write(outputStream, (bitCount + 7) / 8);
+        contextCode.write(writer);
+    }
+
+    private boolean writeRun(OutputStream outputStream, int length, long[] frequencies) throws IOException {
+        //A block of a single symbol only holds the symbol
+        int symbol = -1;
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] == 0) continue;
+            if (symbol != -1) return false;
+            symbol = i;
+        }
+        this.lengths = new int[frequencies.length];
+        ByteArrayOutputStream data = new ByteArrayOutputStream(3);
+        VarInt.write(data, symbol);
+        VarInt.write(outputStream, length);
+        outputStream.write(TYPE_RUN);
+        VarInt.write(outputStream, data.size());
+        data.writeTo(outputStream);
+        return true;
+    }
+
+    private BitWriter writer(OutputStream outputStream) {
+        //The bit writer and its buffer are reused for every block, only the stream it writes to changes
+        target.outputStream = outputStream;
+        writer.reset();
+        return writer;
+    }
+
+    private void writeStored(OutputStream outputStream, int length, ByteBuffer data) throws IOException {
+        VarInt.write(outputStream, length);
+        outputStream.write(TYPE_STORED);
+        VarInt.write(outputStream, data.remaining());
+        if (data.hasArray()) {
+            outputStream.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            return;
+        }
+
+        //Copy buffers without an array, such as mapped files, in chunks
+        if (chunk == null) chunk = new byte[64 * 1024];
+        while (data.hasRemaining()) {
+            int count = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, count);
+            outputStream.write(chunk, 0, count);
+        }
+    }
+
+    private static int[] flat(int size, int length) {
+        int[] lengths = new int[size];
+        Arrays.fill(lengths, length);
+        return lengths;
+    }
+
+    private static void writeInterleaved(OutputStream outputStream, BitWriter writer, CanonicalCode canonicalCode,
+                                         int length, long[] sizes) throws IOException {
+        //The sizes of the first three streams follow the code lengths, the last stream holds the remainder
+        ByteArrayOutputStream jumpTable = new ByteArrayOutputStream(16);
+        long size = (canonicalCode.getHeaderSize() + 7) / 8;
+        for (int stream = 0; stream < STREAMS; stream++) {
+            if (stream < STREAMS - 1) VarInt.write(jumpTable, sizes[stream]);
+            size += sizes[stream];
+        }
+
+        //Write count, type and compressed data size in bytes including the code lengths and stream sizes
+        VarInt.write(outputStream, length);
+        outputStream.write(TYPE_INTERLEAVED);
+        VarInt.write(outputStream, size + jumpTable.size());
+
+        //Write code lengths padded to a whole byte followed by the stream sizes
+        canonicalCode.write(writer);
+        writer.finish();
+        jumpTable.writeTo(outputStream);
+    }
+
+    private static final class Pending extends ByteArrayOutputStream {
+        void writeTo(OutputStream outputStream, int from, int to) throws IOException {
+            outputStream.write(buf, from, to - from);
+        }
+    }
+
+    private static final class Target extends OutputStream {
+        private OutputStream outputStream;
+
+        @Override
+        public void write(int b) throws IOException {
+            outputStream.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            outputStream.write(b, off, len);
+        }
+    }
+}
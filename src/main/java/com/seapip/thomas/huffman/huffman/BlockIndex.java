@@ -0,0 +1,165 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * The {@code BlockIndex} class holds the byte position and character offset of each block in block compressed data,
+ * which allows blocks to be decoded in parallel or a range of characters to be decoded without the blocks before it.
+ * <p>
+ * The index is written after the blocks and followed by its position as an 8 byte long at the end of the data.
+ * Each entry consists of the byte position relative to the previous block and the character count of the block.
+ * The index of checked data is followed by its CRC32C checksum.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class BlockIndex {
+    private final long[] positions;
+    private final long[] offsets;
+
+    private BlockIndex(long[] positions, long[] offsets) {
+        this.positions = positions;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Reads the block index at the end of the given channel.
+     *
+     * @param channel The channel holding the compressed data from the given position till the end
+     * @param start   The position of the compressed data, block positions are relative to this position
+     * @return The block index
+     * @throws IOException Exception thrown when reading fails or the block index is invalid
+     */
+    public static BlockIndex read(FileChannel channel, long start) throws IOException {
+        return read(channel, start, false);
+    }
+
+    /**
+     * Reads the block index at the end of the given channel and verifies its checksum.
+     *
+     * @param channel The channel holding the compressed data from the given position till the end
+     * @param start   The position of the compressed data, block positions are relative to this position
+     * @param checked True when the index is followed by its checksum
+     * @return The block index
+     * @throws IOException Exception thrown when reading fails or the block index is invalid
+     */
+    public static BlockIndex read(FileChannel channel, long start, boolean checked) throws IOException {
+        //Read the index position at the end of the data
+        long end = channel.size() - 8;
+        if (end < start) throw new IOException("Invalid block index.");
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        read(channel, buffer, end);
+        long indexPosition = buffer.getLong(0);
+        long size = end - start - indexPosition - (checked ? 4 : 0);
+        if (indexPosition < 1 || size < 0 || size > Integer.MAX_VALUE - 8) throw new IOException("Invalid block index.");
+
+        //Read entries, the last block ends at the end of blocks marker before the index
+        buffer = ByteBuffer.allocate((int) size + (checked ? 4 : 0));
+        read(channel, buffer, start + indexPosition);
+        if (checked) {
+            CRC32C checksum = new CRC32C();
+            checksum.update(buffer.array(), 0, (int) size);
+            if ((int) checksum.getValue() != buffer.getInt((int) size)) throw new IOException("Checksum mismatch in block index.");
+        }
+        InputStream inputStream = new ByteArrayInputStream(buffer.array(), 0, (int) size);
+        long count = VarInt.read(inputStream);
+        if (count > size / 2) throw new IOException("Invalid block index.");
+        long[] positions = new long[(int) count + 1];
+        long[] offsets = new long[(int) count + 1];
+        for (int i = 0; i < count; i++) {
+            positions[i] = (i > 0 ? positions[i - 1] : 0) + VarInt.read(inputStream);
+            offsets[i + 1] = offsets[i] + VarInt.read(inputStream);
+            if (i > 0 && positions[i] <= positions[i - 1]) throw new IOException("Invalid block index.");
+        }
+        positions[(int) count] = indexPosition - 1;
+        if (count > 0 && positions[(int) count] <= positions[(int) count - 1]) {
+            throw new IOException("Invalid block index.");
+        }
+        return new BlockIndex(positions, offsets);
+    }
+
+    public int getBlockCount() {
+        return positions.length - 1;
+    }
+
+    /**
+     * Returns the byte position of a block relative to the start of the compressed data.
+     *
+     * @param block The block number
+     * @return The byte position of the block
+     */
+    public long getPosition(int block) {
+        return positions[block];
+    }
+
+    /**
+     * Returns the size of a block in bytes, including its character count and compressed data size.
+     *
+     * @param block The block number
+     * @return The size of the block in bytes
+     */
+    public long getSize(int block) {
+        return positions[block + 1] - positions[block];
+    }
+
+    /**
+     * Returns the offset of the first character in a block.
+     *
+     * @param block The block number
+     * @return The character offset of the block
+     */
+    public long getOffset(int block) {
+        return offsets[block];
+    }
+
+    public int getLength(int block) {
+        return (int) (offsets[block + 1] - offsets[block]);
+    }
+
+    public long getLength() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * Returns the block holding the character at the given offset.
+     *
+     * @param offset The character offset
+     * @return The block number, the block count when the offset is past the last character
+     */
+    public int find(long offset) {
+        int low = 0;
+        int high = getBlockCount();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (offsets[middle + 1] <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads bytes from the given position of a channel until the buffer is full.
+     *
+     * @param channel  The channel to read from
+     * @param buffer   The buffer to fill
+     * @param position The position in the channel to read from
+     * @throws IOException Exception thrown when the channel ends before the buffer is full
+     */
+    public static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read == -1) throw new EOFException("Unexpected end of compressed data.");
+            position += read;
+        }
+    }
+}
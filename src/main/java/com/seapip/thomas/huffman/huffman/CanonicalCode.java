@@ -0,0 +1,211 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The {@code CanonicalCode} class assigns canonical Huffman codes, codes of the same length are consecutive
+ * numbers in character order so the codes can be rebuilt from the code lengths alone.
+ * <p>
+ * Code lengths are written like DEFLATE does: run length encoded using a code length alphabet,
+ * which is itself Huffman coded with its code lengths stored in 3 bits each.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class CanonicalCode {
+    public static final int MAX_LENGTH = 31;
+    private static final int MAX_LENGTH_LENGTH = 7;
+
+    //Code length alphabet, 0 till 31 are code lengths followed by the repeat symbols
+    private static final int REPEAT = 32;
+    private static final int REPEAT_ZERO = 33;
+    private static final int REPEAT_ZERO_LONG = 34;
+    private static final int[] EXTRA_BITS = {2, 3, 7};
+    private static final int[] ORDER = {REPEAT, REPEAT_ZERO, REPEAT_ZERO_LONG, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13,
+            2, 14, 1, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31};
+
+    private final int[] lengths;
+    private final long[] codes;
+    private int[] symbols;
+    private CanonicalCode lengthCode;
+
+    /**
+     * Assigns canonical codes to the given code lengths.
+     *
+     * @param lengths The code length of each character, zero for characters without code
+     */
+    public CanonicalCode(int[] lengths) {
+        this.lengths = lengths;
+        this.codes = new long[lengths.length];
+
+        //Count codes per length
+        int maxLength = 0;
+        for (int length : lengths) maxLength = Math.max(maxLength, length);
+        int[] counts = new int[maxLength + 1];
+        for (int length : lengths) if (length > 0) counts[length]++;
+
+        //Calculate first code of each length
+        long[] next = new long[maxLength + 1];
+        for (int length = 2; length <= maxLength; length++) next[length] = (next[length - 1] + counts[length - 1]) << 1;
+
+        //Assign codes in character order, reversed since codes are written least significant bit first
+        for (int i = 0; i < lengths.length; i++) {
+            int length = lengths[i];
+            if (length > 0) codes[i] = Long.reverse(next[length]++) >>> (64 - length);
+        }
+    }
+
+    public int[] getLengths() {
+        return lengths;
+    }
+
+    public long[] getCodes() {
+        return codes;
+    }
+
+    public int getMaxLength() {
+        int maxLength = 0;
+        for (int length : lengths) maxLength = Math.max(maxLength, length);
+        return maxLength;
+    }
+
+    /**
+     * Returns the size of the code lengths written by {@code write} in bits.
+     *
+     * @return The size in bits
+     */
+    public long getHeaderSize() {
+        prepare();
+        long size = 16 + 5 + 3L * count(lengthCode.lengths);
+        for (int symbol : symbols) {
+            size += lengthCode.lengths[symbol & 0xFF];
+            if ((symbol & 0xFF) >= REPEAT) size += EXTRA_BITS[(symbol & 0xFF) - REPEAT];
+        }
+        return size;
+    }
+
+    public void write(BitWriter writer) throws IOException {
+        prepare();
+
+        //Write character count and code length code lengths
+        int count = count(lengthCode.lengths);
+        writer.write(last() - 1L, 16);
+        writer.write(count - 4L, 5);
+        for (int i = 0; i < count; i++) writer.write(lengthCode.lengths[ORDER[i]], 3);
+
+        //Write run length encoded code lengths
+        for (int symbol : symbols) {
+            int lengthSymbol = symbol & 0xFF;
+            writer.write(lengthCode.codes[lengthSymbol], lengthCode.lengths[lengthSymbol]);
+            if (lengthSymbol >= REPEAT) writer.write(symbol >>> 8, EXTRA_BITS[lengthSymbol - REPEAT]);
+        }
+    }
+
+    private void prepare() {
+        if (symbols != null) return;
+        symbols = runLengthEncode();
+        lengthCode = new CanonicalCode(PackageMerge.lengths(frequencies(symbols), MAX_LENGTH_LENGTH));
+    }
+
+    public static CanonicalCode read(BitReader reader) throws IOException {
+        //Read character count and code length code lengths
+        int size = reader.read(16) + 1;
+        int count = reader.read(5) + 4;
+        if (count > ORDER.length) throw new IOException("Invalid code lengths.");
+        int[] lengthLengths = new int[ORDER.length];
+        for (int i = 0; i < count; i++) lengthLengths[ORDER[i]] = reader.read(3);
+        DecodeTable lengthTable = new CanonicalCode(validate(lengthLengths)).createDecodeTable();
+
+        //Read run length encoded code lengths
+        int[] lengths = new int[size];
+        int i = 0;
+        while (i < size) {
+            int symbol = lengthTable.decode(reader);
+            int length = 0;
+            int repeat = 1;
+            if (symbol < REPEAT) {
+                length = symbol;
+            } else if (symbol == REPEAT) {
+                if (i == 0) throw new IOException("Invalid code lengths.");
+                length = lengths[i - 1];
+                repeat = 3 + reader.read(EXTRA_BITS[0]);
+            } else if (symbol == REPEAT_ZERO) {
+                repeat = 3 + reader.read(EXTRA_BITS[1]);
+            } else {
+                repeat = 11 + reader.read(EXTRA_BITS[2]);
+            }
+            if (i + repeat > size) throw new IOException("Invalid code lengths.");
+            while (repeat-- > 0) lengths[i++] = length;
+        }
+        return new CanonicalCode(validate(lengths));
+    }
+
+    public DecodeTable createDecodeTable() throws IOException {
+        DecodeTable table = DecodeTable.create(codes, lengths);
+        if (table == null) throw new IOException("Invalid code lengths.");
+        return table;
+    }
+
+    private static int[] validate(int[] lengths) throws IOException {
+        //Codes can't be longer than the maximum and can't use more than all available codes
+        long space = 0;
+        for (int length : lengths) {
+            if (length > MAX_LENGTH) throw new IOException("Invalid code lengths.");
+            if (length > 0) space += 1L << (MAX_LENGTH - length);
+        }
+        if (space == 0 || space > 1L << MAX_LENGTH) throw new IOException("Invalid code lengths.");
+        return lengths;
+    }
+
+    private int last() {
+        int last = lengths.length;
+        while (last > 1 && lengths[last - 1] == 0) last--;
+        return last;
+    }
+
+    private static int count(int[] lengthLengths) {
+        int count = ORDER.length;
+        while (count > 4 && lengthLengths[ORDER[count - 1]] == 0) count--;
+        return count;
+    }
+
+    private static long[] frequencies(int[] symbols) {
+        long[] frequencies = new long[ORDER.length];
+        for (int symbol : symbols) frequencies[symbol & 0xFF]++;
+        return frequencies;
+    }
+
+    /**
+     * Returns the code length symbols, each holding the code length alphabet symbol in the lowest
+     * 8 bits and the extra bits value above those.
+     */
+    private int[] runLengthEncode() {
+        int last = last();
+        int[] symbols = new int[last];
+        int count = 0;
+        int i = 0;
+        while (i < last) {
+            int length = lengths[i];
+            int run = 1;
+            while (i + run < last && lengths[i + run] == length) run++;
+            i += run;
+            if (length == 0) {
+                for (; run >= 11; run -= Math.min(run, 138)) {
+                    symbols[count++] = REPEAT_ZERO_LONG | (Math.min(run, 138) - 11) << 8;
+                }
+                if (run >= 3) {
+                    symbols[count++] = REPEAT_ZERO | (run - 3) << 8;
+                    run = 0;
+                }
+            } else {
+                symbols[count++] = length;
+                run--;
+                for (; run >= 3; run -= Math.min(run, 6)) symbols[count++] = REPEAT | (Math.min(run, 6) - 3) << 8;
+            }
+            while (run-- > 0) symbols[count++] = length;
+        }
+        return Arrays.copyOf(symbols, count);
+    }
+}
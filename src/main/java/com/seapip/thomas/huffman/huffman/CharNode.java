@@ -13,19 +13,19 @@ import java.util.Map;
  */
 public class CharNode implements Node {
     private char character;
-    private int value;
+    private long value;
 
     public CharNode(char character) {
         this.character = character;
     }
 
-    public CharNode(char character, int value) {
+    public CharNode(char character, long value) {
         this.character = character;
         this.value = value;
     }
 
     @Override
-    public int getValue() {
+    public long getValue() {
         return value;
     }
 
@@ -44,6 +44,12 @@ public class CharNode implements Node {
         map.put(character, bits);
     }
 
+    @Override
+    public void toCodes(long[] codes, int[] lengths, long code, int length) {
+        codes[character] = code;
+        lengths[character] = length;
+    }
+
     @Override
     public String toString() {
         return Character.toString(character);
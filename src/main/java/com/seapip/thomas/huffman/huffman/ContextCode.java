@@ -0,0 +1,202 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The {@code ContextCode} class holds a small number of canonical codes and a context map that selects one of them
+ * by the previous symbol, so symbols that mostly follow each other get shorter codes than a single code for the
+ * whole block can give them. Contexts with similar statistics share a code, they're clustered by merging the pair of
+ * clusters that costs the fewest extra bits until merging costs more than the code it saves.
+ * <p>
+ * The code starts with the table count in 4 bits and the context count in 8 bits, followed by the table of each
+ * context as a single bit when it's the table of the previous context or a one bit and the table in 4 bits
+ * otherwise. The canonical code of each table follows. Only alphabets of at most 256 symbols have a context code.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class ContextCode {
+    public static final int MAX_SYMBOLS = 256;
+    public static final int MAX_TABLES = 16;
+    private static final double LN_2 = Math.log(2);
+
+    private final int[] contexts;
+    private final CanonicalCode[] tables;
+
+    private ContextCode(int[] contexts, CanonicalCode[] tables) {
+        this.contexts = contexts;
+        this.tables = tables;
+    }
+
+    /**
+     * Clusters the contexts of the given counts and assigns a canonical code to each cluster.
+     *
+     * @param counts        The frequency of each symbol following each symbol, the first symbol of a block follows
+     *                      symbol zero
+     * @param size          The number of symbols, at most 256
+     * @param maxCodeLength The maximum code length
+     * @return The context code
+     */
+    public static ContextCode create(long[][] counts, int size, int maxCodeLength) {
+        //Every context that occurs starts as its own cluster
+        long[][] histograms = new long[size][];
+        int[] contexts = new int[size];
+        double[] costs = new double[size];
+        int clusters = 0;
+        for (int context = 0; context < size; context++) {
+            contexts[context] = -1;
+            long total = 0;
+            for (int symbol = 0; symbol < size; symbol++) total += counts[context][symbol];
+            if (total == 0) continue;
+            histograms[clusters] = Arrays.copyOf(counts[context], size);
+            costs[clusters] = cost(histograms[clusters], null);
+            contexts[context] = clusters++;
+        }
+
+        //Merge the cheapest pair until merging costs bits and the table count fits
+        double[][] merges = new double[clusters][clusters];
+        for (int i = 0; i < clusters; i++) {
+            for (int j = i + 1; j < clusters; j++) merges[i][j] = cost(histograms[i], histograms[j]) - costs[i] - costs[j];
+        }
+        boolean[] merged = new boolean[clusters];
+        for (int remaining = clusters; remaining > 1; remaining--) {
+            int first = -1;
+            int second = -1;
+            for (int i = 0; i < clusters; i++) {
+                if (merged[i]) continue;
+                for (int j = i + 1; j < clusters; j++) {
+                    if (!merged[j] && (first == -1 || merges[i][j] < merges[first][second])) {
+                        first = i;
+                        second = j;
+                    }
+                }
+            }
+            if (merges[first][second] > 0 && remaining <= MAX_TABLES) break;
+
+            for (int symbol = 0; symbol < size; symbol++) histograms[first][symbol] += histograms[second][symbol];
+            costs[first] = cost(histograms[first], null);
+            merged[second] = true;
+            for (int context = 0; context < size; context++) if (contexts[context] == second) contexts[context] = first;
+            for (int i = 0; i < clusters; i++) {
+                if (merged[i] || i == first) continue;
+                int low = Math.min(i, first);
+                int high = Math.max(i, first);
+                merges[low][high] = cost(histograms[low], histograms[high]) - costs[low] - costs[high];
+            }
+        }
+
+        //Number the clusters that are left, contexts that don't occur use the table of the previous context
+        int[] tableOf = new int[clusters];
+        int tableCount = 0;
+        for (int i = 0; i < clusters; i++) if (!merged[i]) tableOf[i] = tableCount++;
+        CanonicalCode[] tables = new CanonicalCode[tableCount];
+        for (int i = 0; i < clusters; i++) {
+            if (!merged[i]) tables[tableOf[i]] = new CanonicalCode(PackageMerge.lengths(histograms[i], maxCodeLength));
+        }
+        for (int context = 0; context < size; context++) {
+            contexts[context] = contexts[context] == -1 ? context == 0 ? 0 : contexts[context - 1] : tableOf[contexts[context]];
+        }
+        return new ContextCode(contexts, tables);
+    }
+
+    /**
+     * Returns the table index of each context.
+     */
+    public int[] getContexts() {
+        return contexts;
+    }
+
+    public CanonicalCode[] getTables() {
+        return tables;
+    }
+
+    /**
+     * Returns the size of the context map and code lengths written by {@code write} in bits.
+     *
+     * @return The size in bits
+     */
+    public long getHeaderSize() {
+        long size = 4 + 8;
+        for (int context = 0; context < contexts.length; context++) {
+            size += context > 0 && contexts[context] == contexts[context - 1] ? 1 : 5;
+        }
+        for (CanonicalCode table : tables) size += table.getHeaderSize();
+        return size;
+    }
+
+    public void write(BitWriter writer) throws IOException {
+        writer.write(tables.length - 1L, 4);
+        writer.write(contexts.length - 1L, 8);
+        for (int context = 0; context < contexts.length; context++) {
+            if (context > 0 && contexts[context] == contexts[context - 1]) {
+                writer.write(0, 1);
+            } else {
+                writer.write(1, 1);
+                writer.write(contexts[context], 4);
+            }
+        }
+        for (CanonicalCode table : tables) table.write(writer);
+    }
+
+    public static ContextCode read(BitReader reader) throws IOException {
+        int tableCount = reader.read(4) + 1;
+        int[] contexts = new int[reader.read(8) + 1];
+        for (int context = 0; context < contexts.length; context++) {
+            if (reader.read(1) == 0) {
+                if (context == 0) throw new IOException("Invalid context map.");
+                contexts[context] = contexts[context - 1];
+            } else {
+                contexts[context] = reader.read(4);
+                if (contexts[context] >= tableCount) throw new IOException("Invalid context map.");
+            }
+        }
+        CanonicalCode[] tables = new CanonicalCode[tableCount];
+        for (int i = 0; i < tableCount; i++) {
+            tables[i] = CanonicalCode.read(reader);
+            if (tables[i].getLengths().length > MAX_SYMBOLS) throw new IOException("Invalid code lengths.");
+        }
+        return new ContextCode(contexts, tables);
+    }
+
+    /**
+     * Creates a decode table holding every table of this code, symbols outside the context map only occur in
+     * corrupt data and use the first table.
+     *
+     * @return The decode table
+     * @throws IOException Exception thrown when the code lengths are invalid
+     */
+    public DecodeTable createDecodeTable() throws IOException {
+        long[][] codes = new long[tables.length][];
+        int[][] lengths = new int[tables.length][];
+        for (int i = 0; i < tables.length; i++) {
+            codes[i] = tables[i].getCodes();
+            lengths[i] = tables[i].getLengths();
+        }
+        DecodeTable table = DecodeTable.create(codes, lengths, contexts);
+        if (table == null) throw new IOException("Invalid code lengths.");
+        return table;
+    }
+
+    /**
+     * Returns the estimated size in bits of the symbols of a histogram, or of two histograms together, coded with
+     * a code of their own including the code lengths.
+     */
+    private static double cost(long[] histogram, long[] other) {
+        long total = 0;
+        double bits = 0;
+        int distinct = 0;
+        for (int symbol = 0; symbol < histogram.length; symbol++) {
+            long frequency = other == null ? histogram[symbol] : histogram[symbol] + other[symbol];
+            if (frequency == 0) continue;
+            total += frequency;
+            bits -= frequency * Math.log(frequency);
+            distinct++;
+        }
+        bits = (bits + total * Math.log(total)) / LN_2;
+
+        //Code lengths cost about four bits per symbol and a fixed header
+        return bits + 4.0 * distinct + 32;
+    }
+}
@@ -0,0 +1,451 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The {@code DecodeTable} class decodes whole characters per lookup instead of walking the
+ * Huffman tree bit by bit. The lowest bits of the {@code BitReader} index a root table, codes
+ * longer than the root table index a chain of sub tables.
+ * <p>
+ * Table entries are either a leaf holding the character and its code length or a link to a sub table,
+ * links are negative and hold the sub table offset, the number of bits already used and the sub table size.
+ * A table for contexts holds the root table of every code after each other, selected by the previous symbol.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class DecodeTable {
+    public static final int MAX_LENGTH = 57;
+    private static final int ROOT_BITS = 11;
+    private static final int SUB_BITS = 8;
+    private static final int MAX_SIZE = 1 << 21;
+
+    private int[] table;
+    private int size;
+    private final int rootBits;
+    private final int maxLength;
+    private int[] contextRoots;
+
+    private DecodeTable(long[][] codes, int[][] lengths, int maxLength, int[] contexts) {
+        this.maxLength = maxLength;
+        rootBits = Math.min(maxLength, ROOT_BITS);
+        table = new int[codes.length << rootBits];
+
+        //Every code has its own root table, sub tables follow the root tables
+        int[] roots = new int[codes.length];
+        for (int i = 0; i < codes.length; i++) roots[i] = allocate(1 << rootBits);
+        if (contexts != null) {
+            //Symbols after the last context only occur in corrupt data and use the first table
+            contextRoots = new int[ContextCode.MAX_SYMBOLS];
+            for (int context = 0; context < contextRoots.length; context++) {
+                contextRoots[context] = roots[context < contexts.length ? contexts[context] : 0];
+            }
+        }
+        for (int i = 0; i < codes.length; i++) {
+            //Collect characters ordered by code length
+            int[] offsets = new int[maxLength + 2];
+            for (int length : lengths[i]) if (length > 0) offsets[length + 1]++;
+            for (int length = 1; length <= maxLength; length++) offsets[length + 1] += offsets[length];
+            int[] characters = new int[offsets[maxLength + 1]];
+            for (int j = 0; j < lengths[i].length; j++) if (lengths[i][j] > 0) characters[offsets[lengths[i][j]]++] = j;
+
+            fill(roots[i], 0, rootBits, codes[i], lengths[i], characters, 0, characters.length);
+        }
+        if (size < table.length) table = Arrays.copyOf(table, size);
+    }
+
+    /**
+     * Creates a decode table for the given codes, codes are stored least significant bit first.
+     *
+     * @param codes   The code of each character
+     * @param lengths The code length of each character, zero for characters without code
+     * @return The decode table or null when the codes are too long to decode with a table
+     */
+    public static DecodeTable create(long[] codes, int[] lengths) {
+        int maxLength = 1;
+        for (int length : lengths) maxLength = Math.max(maxLength, length);
+        if (maxLength > MAX_LENGTH) return null;
+        try {
+            return new DecodeTable(new long[][]{codes}, new int[][]{lengths}, maxLength, null);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a single decode table for several codes of which one is selected by the previous symbol, the root
+     * tables of all codes share one array so selecting a code is an offset into it. Leaves also hold the root
+     * table offset of their symbol above the symbol, so the next lookup doesn't wait for another load.
+     *
+     * @param codes    The codes of each table, codes are stored least significant bit first
+     * @param lengths  The code lengths of each table, zero for characters without code
+     * @param contexts The table of each previous symbol, symbols after the last context use the first table
+     * @return The decode table or null when the codes are too long to decode with a table
+     */
+    public static DecodeTable create(long[][] codes, int[][] lengths, int[] contexts) {
+        int maxLength = 1;
+        for (int[] tableLengths : lengths) for (int length : tableLengths) maxLength = Math.max(maxLength, length);
+        if (maxLength > MAX_LENGTH) return null;
+        try {
+            return new DecodeTable(codes, lengths, maxLength, contexts);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a decode table for the given Huffman tree.
+     *
+     * @param tree The Huffman tree
+     * @return The decode table or null when the tree is too deep to decode with a table
+     */
+    public static DecodeTable create(TreeNode tree) {
+        long[] codes = new long[Character.MAX_VALUE + 1];
+        int[] lengths = new int[Character.MAX_VALUE + 1];
+        tree.toCodes(codes, lengths, 0, 0);
+        return create(codes, lengths);
+    }
+
+    private void fill(int offset, int shift, int bits, long[] codes, int[] lengths, int[] characters, int from, int to) {
+        long mask = (1L << bits) - 1;
+        for (int i = from; i < to; i++) {
+            int character = characters[i];
+            int length = lengths[character];
+            int index = (int) (codes[character] >>> shift & mask);
+            if (length <= shift + bits) {
+                //Leaf, repeated for every value of the unused bits
+                int leaf = contextRoots == null ? character << 8 | length : contextRoots[character] << 16 | character << 8 | length;
+                for (int j = index; j < 1 << bits; j += 1 << (length - shift)) table[offset + j] = leaf;
+            } else if (table[offset + index] == 0) {
+                //Move the longer codes that share this prefix to a sub table, they're sorted by length
+                int[] prefixed = prefixed(codes, characters, i, to, shift, mask, index);
+                int subBits = Math.min(lengths[prefixed[prefixed.length - 1]] - shift - bits, SUB_BITS);
+                int subOffset = allocate(1 << subBits);
+                table[offset + index] = 0x80000000 | subOffset << 10 | (shift + bits) << 4 | subBits;
+                fill(subOffset, shift + bits, subBits, codes, lengths, prefixed, 0, prefixed.length);
+            }
+        }
+    }
+
+    private static int[] prefixed(long[] codes, int[] characters, int from, int to, int shift, long mask, int index) {
+        int count = 0;
+        for (int i = from; i < to; i++) if ((int) (codes[characters[i]] >>> shift & mask) == index) count++;
+        int[] prefixed = new int[count];
+        count = 0;
+        for (int i = from; i < to; i++) {
+            if ((int) (codes[characters[i]] >>> shift & mask) == index) prefixed[count++] = characters[i];
+        }
+        return prefixed;
+    }
+
+    private int allocate(int length) {
+        if (size + length > MAX_SIZE) throw new IllegalStateException("Decode table too large.");
+        if (size + length > table.length) table = Arrays.copyOf(table, Math.max(size + length, table.length * 2));
+        int offset = size;
+        size += length;
+        return offset;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Decodes a single character.
+     *
+     * @param reader The reader to read the encoded bits from
+     * @return The decoded character
+     * @throws IOException Exception thrown when reading fails or the data contains an unknown code
+     */
+    public int decode(BitReader reader) throws IOException {
+        if (reader.count < maxLength) reader.refill();
+        int entry = lookup(reader.bits);
+        int codeLength = entry & 0xFF;
+        if (codeLength == 0) throw new IOException("Invalid compressed data.");
+        reader.consume(codeLength);
+        return entry >>> 8;
+    }
+
+    /**
+     * Decodes the given number of characters into the buffer.
+     *
+     * @param reader The reader to read the encoded bits from
+     * @param buffer The buffer to store the characters in
+     * @param offset The offset in the buffer of the first character
+     * @param length The number of characters to decode
+     * @throws IOException Exception thrown when reading fails or the data contains an unknown code
+     */
+    public void decode(BitReader reader, char[] buffer, int offset, int length) throws IOException {
+        decode(reader, buffer, null, null, offset, length);
+    }
+
+    /**
+     * Decodes the given number of bytes into the buffer, the codes need to be limited to 256 symbols.
+     *
+     * @param reader The reader to read the encoded bits from
+     * @param buffer The buffer to store the bytes in
+     * @param offset The offset in the buffer of the first byte
+     * @param length The number of bytes to decode
+     * @throws IOException Exception thrown when reading fails or the data contains an unknown code
+     */
+    public void decode(BitReader reader, byte[] buffer, int offset, int length) throws IOException {
+        decode(reader, null, buffer, null, offset, length);
+    }
+
+    /**
+     * Decodes the given number of bytes into the buffer at an index, the position of the buffer isn't moved.
+     * Direct buffers are written without an intermediate array.
+     *
+     * @param reader The reader to read the encoded bits from
+     * @param buffer The buffer to store the bytes in
+     * @param offset The index in the buffer of the first byte
+     * @param length The number of bytes to decode
+     * @throws IOException Exception thrown when reading fails or the data contains an unknown code
+     */
+    public void decode(BitReader reader, ByteBuffer buffer, int offset, int length) throws IOException {
+        decode(reader, null, null, buffer, offset, length);
+    }
+
+    /**
+     * Decodes the given number of characters into the buffer with a table created for contexts, each character is
+     * decoded with the table of the character before it and the first character with the table of character zero.
+     *
+     * @param reader The reader to read the encoded bits from
+     * @param buffer The buffer to store the characters in
+     * @param offset The offset in the buffer of the first character
+     * @param length The number of characters to decode
+     * @throws IOException Exception thrown when reading fails or the data contains an unknown code
+     */
+    public void decodeContexts(BitReader reader, char[] buffer, int offset, int length) throws IOException {
+        decodeContexts(reader, buffer, null, null, offset, length);
+    }
+
+    /**
+     * Decodes the given number of bytes into the buffer with a table created for contexts, each byte is decoded with
+     * the table of the byte before it and the first byte with the table of byte zero.
+     *
+     * @param reader The reader to read the encoded bits from
+     * @param buffer The buffer to store the bytes in
+     * @param offset The offset in the buffer of the first byte
+     * @param length The number of bytes to decode
+     * @throws IOException Exception thrown when reading fails or the data contains an unknown code
+     */
+    public void decodeContexts(BitReader reader, byte[] buffer, int offset, int length) throws IOException {
+        decodeContexts(reader, null, buffer, null, offset, length);
+    }
+
+    /**
+     * Decodes the given number of bytes into the buffer at an index with a table created for contexts,
+     * the position of the buffer isn't moved.
+     *
+     * @param reader The reader to read the encoded bits from
+     * @param buffer The buffer to store the bytes in
+     * @param offset The index in the buffer of the first byte
+     * @param length The number of bytes to decode
+     * @throws IOException Exception thrown when reading fails or the data contains an unknown code
+     */
+    public void decodeContexts(BitReader reader, ByteBuffer buffer, int offset, int length) throws IOException {
+        decodeContexts(reader, null, null, buffer, offset, length);
+    }
+
+    /**
+     * Decodes the given number of characters from four interleaved streams into the buffer, the first streams
+     * each hold a quarter of the characters rounded up and the last stream holds the remainder. A symbol of each stream
+     * is decoded per iteration, so the lookups don't depend on each other and can overlap.
+     *
+     * @param readers The readers of the four streams
+     * @param buffer  The buffer to store the characters in
+     * @param offset  The offset in the buffer of the first character
+     * @param length  The number of characters to decode
+     * @throws IOException Exception thrown when reading fails or the data contains an unknown code
+     */
+    public void decode(BitReader[] readers, char[] buffer, int offset, int length) throws IOException {
+        decode(readers, buffer, null, null, offset, length);
+    }
+
+    /**
+     * Decodes the given number of bytes from four interleaved streams into the buffer, the first streams
+     * each hold a quarter of the bytes rounded up and the last stream holds the remainder. A symbol of each stream
+     * is decoded per iteration, so the lookups don't depend on each other and can overlap.
+     *
+     * @param readers The readers of the four streams
+     * @param buffer  The buffer to store the bytes in
+     * @param offset  The offset in the buffer of the first byte
+     * @param length  The number of bytes to decode
+     * @throws IOException Exception thrown when reading fails or the data contains an unknown code
+     */
+    public void decode(BitReader[] readers, byte[] buffer, int offset, int length) throws IOException {
+        decode(readers, null, buffer, null, offset, length);
+    }
+
+    /**
+     * Decodes the given number of bytes from four interleaved streams into the buffer at an index, the position
+     * of the buffer isn't moved.
+     *
+     * @param readers The readers of the four streams
+     * @param buffer  The buffer to store the bytes in
+     * @param offset  The index in the buffer of the first byte
+     * @param length  The number of bytes to decode
+     * @throws IOException Exception thrown when reading fails or the data contains an unknown code
+     */
+    public void decode(BitReader[] readers, ByteBuffer buffer, int offset, int length) throws IOException {
+        decode(readers, null, null, buffer, offset, length);
+    }
+
+    /**
+     * Stores a decoded symbol in whichever of the targets is given. Only one target is given per call of a decode
+     * loop, so the branches always go the same way and the loops are shared by all targets.
+     */
+    static void store(char[] characters, byte[] bytes, ByteBuffer buffer, int index, int symbol) {
+        if (characters != null) characters[index] = (char) symbol;
+        else if (bytes != null) bytes[index] = (byte) symbol;
+        else buffer.put(index, (byte) symbol);
+    }
+
+    private void decode(BitReader reader, char[] characters, byte[] bytes, ByteBuffer buffer, int offset, int length)
+            throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            reader.refill();
+            long bits = reader.bits;
+            int count = reader.count;
+
+            //Decode as many symbols as are guaranteed to be in the bit buffer
+            int stop = offset + Math.min(count / maxLength, end - offset);
+            while (offset < stop) {
+                int entry = lookup(bits);
+                int codeLength = entry & 0xFF;
+                if (codeLength == 0) throw new IOException("Invalid compressed data.");
+                store(characters, bytes, buffer, offset++, entry >>> 8);
+                bits >>>= codeLength;
+                count -= codeLength;
+            }
+            reader.bits = bits;
+            reader.count = count;
+        }
+    }
+
+    private void decodeContexts(BitReader reader, char[] characters, byte[] bytes, ByteBuffer buffer, int offset,
+                                int length) throws IOException {
+        int end = offset + length;
+        int root = contextRoots[0];
+        while (offset < end) {
+            reader.refill();
+            long bits = reader.bits;
+            int count = reader.count;
+
+            //Decode as many symbols as are guaranteed to be in the bit buffer
+            int stop = offset + Math.min(count / maxLength, end - offset);
+            while (offset < stop) {
+                int entry = lookup(root, bits);
+                int codeLength = entry & 0xFF;
+                if (codeLength == 0) throw new IOException("Invalid compressed data.");
+                root = entry >>> 16;
+                store(characters, bytes, buffer, offset++, entry >>> 8 & 0xFF);
+                bits >>>= codeLength;
+                count -= codeLength;
+            }
+            reader.bits = bits;
+            reader.count = count;
+        }
+    }
+
+    private void decode(BitReader[] readers, char[] characters, byte[] bytes, ByteBuffer buffer, int offset, int length)
+            throws IOException {
+        BitReader reader0 = readers[0];
+        BitReader reader1 = readers[1];
+        BitReader reader2 = readers[2];
+        BitReader reader3 = readers[3];
+        int part = (length + 3) / 4;
+        int offset0 = offset;
+        int offset1 = offset + Math.min(part, length);
+        int offset2 = offset + Math.min(2 * part, length);
+        int offset3 = offset + Math.min(3 * part, length);
+        int end0 = offset1;
+        int end1 = offset2;
+        int end2 = offset3;
+        int end3 = offset + length;
+
+        //The last stream is the shortest, so every stream has a symbol left while the last stream has
+        while (offset3 < end3) {
+            reader0.refill();
+            reader1.refill();
+            reader2.refill();
+            reader3.refill();
+            long bits0 = reader0.bits;
+            long bits1 = reader1.bits;
+            long bits2 = reader2.bits;
+            long bits3 = reader3.bits;
+            int count0 = reader0.count;
+            int count1 = reader1.count;
+            int count2 = reader2.count;
+            int count3 = reader3.count;
+
+            //Decode as many symbols per stream as are guaranteed to be in every bit buffer
+            int count = Math.min(Math.min(count0, count1), Math.min(count2, count3));
+            int stop = offset3 + Math.min(count / maxLength, end3 - offset3);
+            while (offset3 < stop) {
+                int entry0 = lookup(bits0);
+                int entry1 = lookup(bits1);
+                int entry2 = lookup(bits2);
+                int entry3 = lookup(bits3);
+                int length0 = entry0 & 0xFF;
+                int length1 = entry1 & 0xFF;
+                int length2 = entry2 & 0xFF;
+                int length3 = entry3 & 0xFF;
+                if (length0 == 0 | length1 == 0 | length2 == 0 | length3 == 0) throw new IOException("Invalid compressed data.");
+                store(characters, bytes, buffer, offset0++, entry0 >>> 8);
+                store(characters, bytes, buffer, offset1++, entry1 >>> 8);
+                store(characters, bytes, buffer, offset2++, entry2 >>> 8);
+                store(characters, bytes, buffer, offset3++, entry3 >>> 8);
+                bits0 >>>= length0;
+                bits1 >>>= length1;
+                bits2 >>>= length2;
+                bits3 >>>= length3;
+                count0 -= length0;
+                count1 -= length1;
+                count2 -= length2;
+                count3 -= length3;
+            }
+            reader0.bits = bits0;
+            reader1.bits = bits1;
+            reader2.bits = bits2;
+            reader3.bits = bits3;
+            reader0.count = count0;
+            reader1.count = count1;
+            reader2.count = count2;
+            reader3.count = count3;
+        }
+
+        //Decode the symbols the first streams hold more than the last stream
+        decode(reader0, characters, bytes, buffer, offset0, end0 - offset0);
+        decode(reader1, characters, bytes, buffer, offset1, end1 - offset1);
+        decode(reader2, characters, bytes, buffer, offset2, end2 - offset2);
+    }
+
+    /**
+     * Returns the table entry for the lowest bits, the entry holds the character above the lowest 8 bits
+     * and the code length in the lowest 8 bits. A code length of zero means the bits don't start with a code.
+     *
+     * @param bits The bits to decode, least significant bit first
+     * @return The table entry
+     */
+    public int lookup(long bits) {
+        int entry = table[(int) bits & ((1 << rootBits) - 1)];
+        while (entry < 0) {
+            entry = table[(entry >>> 10 & 0x1FFFFF) + ((int) (bits >>> (entry >>> 4 & 0x3F)) & ((1 << (entry & 0xF)) - 1))];
+        }
+        return entry;
+    }
+
+    private int lookup(int root, long bits) {
+        int entry = table[root + ((int) bits & ((1 << rootBits) - 1))];
+        while (entry < 0) {
+            entry = table[(entry >>> 10 & 0x1FFFFF) + ((int) (bits >>> (entry >>> 4 & 0x3F)) & ((1 << (entry & 0xF)) - 1))];
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,107 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code EntropyCoder} interface is implemented by the codes a block can be coded with, each code is written
+ * as its own block type. Encoding a block takes three steps: a code is created from the frequencies of the block,
+ * which estimates its size so the block encoder can choose between codes, then the symbols are encoded which gives
+ * the exact size to write before the block, and finally the code and encoded symbols are written. Decoding reads
+ * the code written by the encoder and decodes the symbols with it.
+ * <p>
+ * A coder keeps the code and symbols of the last block between the steps, so it can be reused for many blocks but
+ * isn't thread safe.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public interface EntropyCoder {
+
+    /**
+     * Returns the block type of blocks coded with this coder.
+     *
+     * @return The block type
+     */
+    int getType();
+
+    /**
+     * Creates a code for the given frequencies.
+     *
+     * @param frequencies   The frequency of each character or byte, at least two different symbols occur
+     * @param maxCodeLength The maximum code length for coders with whole bit codes
+     * @return The estimated size of the code and encoded symbols in bits, or {@code Long.MAX_VALUE} when the
+     * frequencies can't be coded
+     */
+    long create(long[] frequencies, int maxCodeLength);
+
+    /**
+     * Encodes the given characters with the last created code.
+     *
+     * @param characters The characters to encode
+     * @param offset     The offset of the first character
+     * @param length     The number of characters to encode
+     * @return The exact size of the code and encoded characters in bits
+     */
+    long encode(char[] characters, int offset, int length);
+
+    /**
+     * Encodes the remaining bytes of the given buffer with the last created code, the position of the buffer
+     * isn't changed.
+     *
+     * @param bytes The bytes to encode
+     * @return The exact size of the code and encoded bytes in bits
+     */
+    long encode(ByteBuffer bytes);
+
+    /**
+     * Writes the code and the symbols of the last encode.
+     *
+     * @param writer The writer to write to, it isn't finished
+     * @throws IOException Exception thrown when writing fails
+     */
+    void write(BitWriter writer) throws IOException;
+
+    /**
+     * Returns the code length of each symbol of the last created code, rounded to whole bits for coders with
+     * fractional bit codes.
+     *
+     * @return The code lengths indexed by character or byte
+     */
+    int[] getLengths();
+
+    /**
+     * Reads a code and decodes the given number of characters with it.
+     *
+     * @param reader     The reader to read the code and encoded characters from
+     * @param characters The array to decode the characters into
+     * @param offset     The offset in the array of the first character
+     * @param length     The number of characters
+     * @throws IOException Exception thrown when the code or encoded characters are invalid
+     */
+    void decode(BitReader reader, char[] characters, int offset, int length) throws IOException;
+
+    /**
+     * Reads a code and decodes the given number of bytes with it.
+     *
+     * @param reader The reader to read the code and encoded bytes from
+     * @param bytes  The array to decode the bytes into
+     * @param offset The offset in the array of the first byte
+     * @param length The number of bytes
+     * @throws IOException Exception thrown when the code or encoded bytes are invalid
+     */
+    void decode(BitReader reader, byte[] bytes, int offset, int length) throws IOException;
+
+    /**
+     * Reads a code and decodes the given number of bytes with it into the buffer at an index, the position of the
+     * buffer isn't moved.
+     *
+     * @param reader The reader to read the code and encoded bytes from
+     * @param bytes  The buffer to decode the bytes into
+     * @param offset The index in the buffer of the first byte
+     * @param length The number of bytes
+     * @throws IOException Exception thrown when the code or encoded bytes are invalid
+     */
+    void decode(BitReader reader, ByteBuffer bytes, int offset, int length) throws IOException;
+}
@@ -0,0 +1,177 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The {@code Histogram} class counts characters or bytes into four separate count tables, consecutive symbols
+ * are counted in different tables so incrementing the same count twice in a row doesn't wait for the previous
+ * increment to be stored. The tables are added to the frequencies after every call.
+ * <p>
+ * Characters above 255 are counted directly in the frequencies. A histogram can be reused but isn't thread safe.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class Histogram {
+    private static final int PART_SIZE = 4 * 1024 * 1024;
+
+    private final int[] table0 = new int[256];
+    private final int[] table1 = new int[256];
+    private final int[] table2 = new int[256];
+    private final int[] table3 = new int[256];
+
+    /**
+     * Adds the count of each of the remaining bytes of the given buffer to the frequencies,
+     * the position of the buffer isn't changed.
+     *
+     * @param bytes       The bytes to count
+     * @param frequencies The frequencies indexed by byte
+     */
+    public void count(ByteBuffer bytes, long[] frequencies) {
+        if (bytes.hasArray()) {
+            count(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        } else {
+            count(bytes);
+        }
+        merge(frequencies);
+    }
+
+    /**
+     * Adds the count of each of the given characters to the frequencies.
+     *
+     * @param characters  The characters to count
+     * @param offset      The offset of the first character
+     * @param length      The number of characters to count
+     * @param frequencies The frequencies indexed by character
+     */
+    public void count(char[] characters, int offset, int length, long[] frequencies) {
+        int[] table0 = this.table0;
+        int[] table1 = this.table1;
+        int[] table2 = this.table2;
+        int[] table3 = this.table3;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 4 <= end; i += 4) {
+            char c0 = characters[i];
+            char c1 = characters[i + 1];
+            char c2 = characters[i + 2];
+            char c3 = characters[i + 3];
+            if ((c0 | c1 | c2 | c3) < 0x100) {
+                table0[c0]++;
+                table1[c1]++;
+                table2[c2]++;
+                table3[c3]++;
+            } else {
+                frequencies[c0]++;
+                frequencies[c1]++;
+                frequencies[c2]++;
+                frequencies[c3]++;
+            }
+        }
+        for (; i < end; i++) frequencies[characters[i]]++;
+        merge(frequencies);
+    }
+
+    /**
+     * Adds the count of each of the remaining bytes of the given buffer to the frequencies, large buffers are split
+     * in parts of at least 4MB that are counted on the given number of threads.
+     *
+     * @param bytes       The bytes to count
+     * @param frequencies The frequencies indexed by byte
+     * @param threads     The maximum number of threads
+     * @throws IOException Exception thrown when counting is interrupted
+     */
+    public static void count(ByteBuffer bytes, long[] frequencies, int threads) throws IOException {
+        int parts = Math.min(threads, bytes.remaining() / PART_SIZE);
+        if (parts <= 1) {
+            new Histogram().count(bytes, frequencies);
+            return;
+        }
+
+        //Count each part into its own frequencies and add them once all parts are counted
+        ExecutorService executor = Executors.newFixedThreadPool(parts);
+        try {
+            List<Future<long[]>> counts = new ArrayList<>(parts);
+            long partSize = ((long) bytes.remaining() + parts - 1) / parts;
+            for (int part = 0; part < parts; part++) {
+                ByteBuffer slice = bytes.duplicate();
+                slice.position((int) (bytes.position() + part * partSize));
+                slice.limit((int) Math.min(bytes.limit(), slice.position() + partSize));
+                counts.add(executor.submit(() -> {
+                    long[] partFrequencies = new long[frequencies.length];
+                    new Histogram().count(slice, partFrequencies);
+                    return partFrequencies;
+                }));
+            }
+            for (Future<long[]> count : counts) {
+                long[] partFrequencies = count.get();
+                for (int i = 0; i < frequencies.length; i++) frequencies[i] += partFrequencies[i];
+            }
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Counting was interrupted.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void count(byte[] bytes, int offset, int length) {
+        int[] table0 = this.table0;
+        int[] table1 = this.table1;
+        int[] table2 = this.table2;
+        int[] table3 = this.table3;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 4 <= end; i += 4) {
+            table0[bytes[i] & 0xFF]++;
+            table1[bytes[i + 1] & 0xFF]++;
+            table2[bytes[i + 2] & 0xFF]++;
+            table3[bytes[i + 3] & 0xFF]++;
+        }
+        for (; i < end; i++) table0[bytes[i] & 0xFF]++;
+    }
+
+    private void count(ByteBuffer bytes) {
+        //Direct and memory mapped buffers have no array, read 8 bytes at once spread over the tables in turn
+        int[] table0 = this.table0;
+        int[] table1 = this.table1;
+        int[] table2 = this.table2;
+        int[] table3 = this.table3;
+        int i = bytes.position();
+        int end = bytes.limit();
+        for (; i + 8 <= end; i += 8) {
+            long value = bytes.getLong(i);
+            table0[(int) value & 0xFF]++;
+            table1[(int) (value >>> 8) & 0xFF]++;
+            table2[(int) (value >>> 16) & 0xFF]++;
+            table3[(int) (value >>> 24) & 0xFF]++;
+            table0[(int) (value >>> 32) & 0xFF]++;
+            table1[(int) (value >>> 40) & 0xFF]++;
+            table2[(int) (value >>> 48) & 0xFF]++;
+            table3[(int) (value >>> 56)]++;
+        }
+        for (; i < end; i++) table0[bytes.get(i) & 0xFF]++;
+    }
+
+    private void merge(long[] frequencies) {
+        for (int b = 0; b < 0x100; b++) {
+            frequencies[b] += (long) table0[b] + table1[b] + table2[b] + table3[b];
+        }
+        Arrays.fill(table0, 0);
+        Arrays.fill(table1, 0);
+        Arrays.fill(table2, 0);
+        Arrays.fill(table3, 0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code HuffmanCoder} class codes blocks with a length limited canonical Huffman code in a single bit stream,
+ * the code lengths are written before the encoded symbols. Codes take whole bits, which decodes fastest but wastes
+ * up to a bit per symbol when a symbol is far more frequent than the others.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class HuffmanCoder implements EntropyCoder {
+    private CanonicalCode canonicalCode;
+    private long bitCount;
+    private char[] characters;
+    private int offset;
+    private int length;
+    private ByteBuffer bytes;
+
+    @Override
+    public int getType() {
+        return BlockEncoder.TYPE_HUFFMAN;
+    }
+
+    @Override
+    public long create(long[] frequencies, int maxCodeLength) {
+        //The size is exact, every symbol takes its code length
+        int[] lengths = PackageMerge.lengths(frequencies, maxCodeLength);
+        canonicalCode = new CanonicalCode(lengths);
+        bitCount = canonicalCode.getHeaderSize();
+        for (int i = 0; i < lengths.length; i++) bitCount += frequencies[i] * lengths[i];
+        return bitCount;
+    }
+
+    /**
+     * Returns the last created code.
+     *
+     * @return The canonical code
+     */
+    public CanonicalCode getCode() {
+        return canonicalCode;
+    }
+
+    @Override
+    public long encode(char[] characters, int offset, int length) {
+        //The characters are only encoded when they're written
+        this.characters = characters;
+        this.offset = offset;
+        this.length = length;
+        this.bytes = null;
+        return bitCount;
+    }
+
+    @Override
+    public long encode(ByteBuffer bytes) {
+        this.characters = null;
+        this.bytes = bytes;
+        return bitCount;
+    }
+
+    @Override
+    public void write(BitWriter writer) throws IOException {
+        canonicalCode.write(writer);
+        long[] codes = canonicalCode.getCodes();
+        int[] lengths = canonicalCode.getLengths();
+        if (bytes != null) {
+            writer.write(bytes, codes, lengths);
+        } else {
+            for (int i = offset; i < offset + length; i++) writer.write(codes[characters[i]], lengths[characters[i]]);
+        }
+        characters = null;
+        bytes = null;
+    }
+
+    @Override
+    public int[] getLengths() {
+        return canonicalCode.getLengths();
+    }
+
+    @Override
+    public void decode(BitReader reader, char[] characters, int offset, int length) throws IOException {
+        CanonicalCode.read(reader).createDecodeTable().decode(reader, characters, offset, length);
+    }
+
+    @Override
+    public void decode(BitReader reader, byte[] bytes, int offset, int length) throws IOException {
+        readByteCode(reader).createDecodeTable().decode(reader, bytes, offset, length);
+    }
+
+    @Override
+    public void decode(BitReader reader, ByteBuffer bytes, int offset, int length) throws IOException {
+        readByteCode(reader).createDecodeTable().decode(reader, bytes, offset, length);
+    }
+
+    private static CanonicalCode readByteCode(BitReader reader) throws IOException {
+        CanonicalCode code = CanonicalCode.read(reader);
+        if (code.getLengths().length > 256) throw new IOException("Invalid code lengths.");
+        return code;
+    }
+}
@@ -0,0 +1,318 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The {@code HuffmanTree} class holds a Huffman tree in a single array instead of a graph of nodes. Each internal
+ * node has two entries holding its left and right child, a child is either the index of an internal node or the
+ * complement of a character. Children always have a lower index than their parent so the root is the last node
+ * and the tree can be walked top down with a single loop.
+ * <p>
+ * Trees are built with the two queue method after sorting the characters by frequency, read from the stored
+ * tree format and written from the codes of an encoder without recursion, so their depth isn't limited
+ * by the stack.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class HuffmanTree {
+    /**
+     * The child of a node that has no child on that side, only the right child of the root of a tree
+     * with a single character or a tree that's cut short by its character count is missing.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private final int[] children;
+    private final int nodes;
+    private final int symbols;
+
+    private HuffmanTree(int[] children, int nodes, int symbols) {
+        this.children = children;
+        this.nodes = nodes;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Creates a Huffman tree from a character frequency table, a single character gets a left child of the root.
+     *
+     * @param frequencies The frequency of each character, at most 65536 characters
+     * @return The Huffman tree
+     */
+    public static HuffmanTree create(long[] frequencies) {
+        //Sort characters by frequency, equal frequencies are kept in character order
+        int count = 0;
+        for (long frequency : frequencies) if (frequency > 0) count++;
+        long[] sorted = new long[count];
+        count = 0;
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] >>> 47 != 0) throw new IllegalArgumentException("Frequency exceeds 2^47.");
+            if (frequencies[i] > 0) sorted[count++] = frequencies[i] << 16 | i;
+        }
+        Arrays.sort(sorted);
+        int[] characters = new int[count];
+        long[] weights = new long[count];
+        for (int i = 0; i < count; i++) {
+            characters[i] = (int) (sorted[i] & 0xFFFF);
+            weights[i] = sorted[i] >>> 16;
+        }
+        return create(characters, weights);
+    }
+
+    /**
+     * Creates a Huffman tree from characters sorted by weight with the two queue method, the leaves are taken in
+     * order from the sorted characters and the internal nodes in the order they're created, which is also sorted.
+     */
+    static HuffmanTree create(int[] characters, long[] weights) {
+        int count = characters.length;
+        int symbols = 0;
+        for (int character : characters) symbols = Math.max(symbols, character + 1);
+        if (count == 0) return new HuffmanTree(new int[0], 0, 0);
+        if (count == 1) return new HuffmanTree(new int[]{~characters[0], NONE}, 1, symbols);
+
+        int[] children = new int[2 * (count - 1)];
+        long[] nodeWeights = new long[count - 1];
+        int leaf = 0;
+        int node = 0;
+        for (int created = 0; created < count - 1; created++) {
+            //Merge the two lightest of the next leaves and the next internal nodes, leaves first on equal weights
+            long weight = 0;
+            for (int side = 0; side < 2; side++) {
+                if (leaf < count && (node == created || weights[leaf] <= nodeWeights[node])) {
+                    children[2 * created + side] = ~characters[leaf];
+                    weight += weights[leaf++];
+                } else {
+                    children[2 * created + side] = node;
+                    weight += nodeWeights[node++];
+                }
+            }
+            nodeWeights[created] = weight;
+        }
+        return new HuffmanTree(children, count - 1, symbols);
+    }
+
+    /**
+     * Reads a Huffman tree in the format written by {@code write}, which holds the characters in pre order
+     * followed by the tree structure in pre order, a set bit for a character and a cleared bit for an internal node.
+     *
+     * @param inputStream The stream to read the tree from
+     * @return The Huffman tree
+     * @throws IOException Exception thrown when reading fails or the tree is invalid
+     */
+    public static HuffmanTree read(InputStream inputStream) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+
+        //Read characters
+        int count = dataInputStream.readInt();
+        if (count < 0 || count > Character.MAX_VALUE + 1) throw new IOException("Invalid Huffman tree.");
+        char[] characters = new char[count];
+        for (int i = 0; i < count; i++) characters[i] = dataInputStream.readChar();
+
+        //Read structure size in bits and structure bytes
+        int size = dataInputStream.readInt();
+        if (size < 0) throw new IOException("Invalid Huffman tree.");
+        byte[] structure = new byte[(size + 7) / 8];
+        dataInputStream.readFully(structure);
+        return read(characters, structure, size);
+    }
+
+    /**
+     * Creates a Huffman tree from its characters and structure in pre order, once every character is placed
+     * the remaining children are missing.
+     *
+     * @param characters The characters in pre order
+     * @param structure  The structure bits, least significant bit first
+     * @param size       The number of structure bits
+     * @return The Huffman tree
+     * @throws IOException Exception thrown when the structure ends too soon or the root is a character
+     */
+    public static HuffmanTree read(char[] characters, byte[] structure, int size) throws IOException {
+        int[] children = new int[16];
+        int nodes = 0;
+        int symbols = 0;
+
+        //Internal nodes are numbered once both children are known, pending nodes are kept on a stack
+        int[] lefts = new int[16];
+        boolean[] placed = new boolean[16];
+        int depth = 0;
+        int character = 0;
+        int bit = 0;
+        while (true) {
+            int child;
+            if (character == characters.length) {
+                child = NONE;
+            } else {
+                if (bit == size) throw new IOException("Invalid Huffman tree.");
+                boolean leaf = (structure[bit >>> 3] >>> (bit & 7) & 1) != 0;
+                bit++;
+                if (!leaf) {
+                    if (depth == lefts.length) {
+                        lefts = Arrays.copyOf(lefts, depth * 2);
+                        placed = Arrays.copyOf(placed, depth * 2);
+                    }
+                    placed[depth++] = false;
+                    continue;
+                }
+                symbols = Math.max(symbols, characters[character] + 1);
+                child = ~characters[character++];
+            }
+
+            //Place the child and complete every node of which the right child is now known
+            while (true) {
+                if (depth == 0) {
+                    if (child != NONE && child < 0) throw new IOException("Invalid Huffman tree.");
+                    return new HuffmanTree(children, nodes, symbols);
+                }
+                if (!placed[depth - 1]) {
+                    lefts[depth - 1] = child;
+                    placed[depth - 1] = true;
+                    break;
+                }
+                depth--;
+                if (2 * nodes + 2 > children.length) children = Arrays.copyOf(children, children.length * 2);
+                children[2 * nodes] = lefts[depth];
+                children[2 * nodes + 1] = child;
+                child = nodes++;
+            }
+        }
+    }
+
+    /**
+     * Writes the Huffman tree that matches the given codes in the format read by {@code read}, without creating
+     * the tree. The characters are sorted by code so they're in pre order, the internal nodes before a character
+     * are the part of its code that it doesn't share with the previous character.
+     *
+     * @param codes        The code of each character, least significant bit first
+     * @param lengths      The code length of each character, zero for characters without code, at most 47
+     * @param outputStream The stream to write the tree to
+     * @throws IOException Exception thrown when writing fails
+     */
+    public static void write(long[] codes, int[] lengths, OutputStream outputStream) throws IOException {
+        //Sort characters by their code read from the first bit
+        int count = 0;
+        for (int length : lengths) if (length > 0) count++;
+        long[] sorted = new long[count];
+        count = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] > 47) throw new IllegalArgumentException("Code length exceeds 47 bits.");
+            if (lengths[i] > 0) sorted[count++] = (Long.reverse(codes[i]) >>> 17) << 16 | i;
+        }
+        Arrays.sort(sorted);
+
+        //Write characters and collect the structure, the bit after the structure is set
+        ByteBuffer header = ByteBuffer.allocate(4 + 2 * count);
+        header.putInt(count);
+        long previous = 0;
+        int previousLength = 0;
+        int size = 0;
+        byte[] structure = new byte[16];
+        for (long entry : sorted) {
+            int character = (int) (entry & 0xFFFF);
+            long code = entry >>> 16;
+            int shared = previousLength == 0 ? -1 : Long.numberOfLeadingZeros(previous ^ code) - 17;
+            int internal = lengths[character] - 1 - shared;
+            if ((size + internal + 2) / 8 >= structure.length) structure = Arrays.copyOf(structure, structure.length * 2 + internal / 8);
+            size += internal;
+            structure[size >>> 3] |= 1 << (size & 7);
+            size++;
+            header.putChar((char) character);
+            previous = code;
+            previousLength = lengths[character];
+        }
+        structure[size >>> 3] |= 1 << (size & 7);
+
+        //Write character count, characters, structure size in bits and structure bytes
+        outputStream.write(header.array());
+        outputStream.write(ByteBuffer.allocate(4).putInt(size).array());
+        outputStream.write(structure, 0, size / 8 + 1);
+    }
+
+    /**
+     * Returns the code length of each character, the depth of its leaf.
+     *
+     * @return The code lengths indexed by character, zero for characters that aren't in the tree
+     */
+    public int[] getLengths() {
+        int[] lengths = new int[symbols];
+        int[] depths = new int[nodes];
+        for (int node = nodes - 1; node >= 0; node--) {
+            for (int side = 0; side < 2; side++) {
+                int child = children[2 * node + side];
+                if (child == NONE) continue;
+                if (child >= 0) depths[child] = depths[node] + 1;
+                else lengths[~child] = depths[node] + 1;
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * Creates a decode table from the codes of this tree, the left child adds a cleared bit to a code.
+     *
+     * @return The decode table or null when the tree is too deep to decode with a table
+     */
+    public DecodeTable createDecodeTable() {
+        long[] codes = new long[symbols];
+        int[] lengths = new int[symbols];
+        long[] nodeCodes = new long[nodes];
+        int[] depths = new int[nodes];
+        for (int node = nodes - 1; node >= 0; node--) {
+            if (depths[node] >= DecodeTable.MAX_LENGTH) return null;
+            for (int side = 0; side < 2; side++) {
+                int child = children[2 * node + side];
+                long code = nodeCodes[node] | (long) side << depths[node];
+                if (child == NONE) continue;
+                if (child >= 0) {
+                    nodeCodes[child] = code;
+                    depths[child] = depths[node] + 1;
+                } else {
+                    codes[~child] = code;
+                    lengths[~child] = depths[node] + 1;
+                }
+            }
+        }
+        return DecodeTable.create(codes, lengths);
+    }
+
+    /**
+     * Returns the root of this tree.
+     *
+     * @return The index of the root or {@code NONE} for an empty tree
+     */
+    public int getRoot() {
+        return nodes == 0 ? NONE : nodes - 1;
+    }
+
+    /**
+     * Returns a child of the given internal node.
+     *
+     * @param node  The index of the internal node
+     * @param right True for the right child
+     * @return The index of an internal node, the complement of a character or {@code NONE}
+     */
+    public int getChild(int node, boolean right) {
+        return children[2 * node + (right ? 1 : 0)];
+    }
+
+    /**
+     * Creates the node graph of this tree, which is only meant for debugging with {@code TreeNode.toString}.
+     *
+     * @return The root of the node graph
+     */
+    public TreeNode toTreeNode() {
+        TreeNode[] treeNodes = new TreeNode[nodes];
+        for (int node = 0; node < nodes; node++) treeNodes[node] = new TreeNode(node(treeNodes, 2 * node), node(treeNodes, 2 * node + 1));
+        return nodes == 0 ? new TreeNode((Node) null, null) : treeNodes[nodes - 1];
+    }
+
+    private Node node(TreeNode[] treeNodes, int index) {
+        int child = children[index];
+        if (child == NONE) return null;
+        return child >= 0 ? treeNodes[child] : new CharNode((char) ~child);
+    }
+}
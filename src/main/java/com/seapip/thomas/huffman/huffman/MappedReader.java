@@ -0,0 +1,98 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * The {@code MappedReader} class reads text from a file channel by decoding memory mapped regions of the file
+ * directly into the caller's array, so the bytes aren't copied into intermediate stream buffers.
+ * Malformed input is replaced the same way an {@code InputStreamReader} replaces it.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public class MappedReader extends Reader {
+    private static final long REGION_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private final CharBuffer pair = CharBuffer.allocate(2);
+    private final long size;
+    private long position;
+    private MappedByteBuffer region;
+    private boolean last;
+    private boolean finished;
+    private int leftover = -1;
+
+    /**
+     * Creates a reader for the text from the given position of the channel till the end.
+     *
+     * @param channel  The channel to read, it isn't closed by the reader
+     * @param position The position of the text in the channel
+     * @param charset  The charset of the text
+     * @throws IOException Exception thrown when the size of the channel can't be read
+     */
+    public MappedReader(FileChannel channel, long position, Charset charset) throws IOException {
+        this.channel = channel;
+        this.position = position;
+        this.size = channel.size();
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (leftover != -1) {
+            //Return the second half of a surrogate pair that didn't fit in the previous read
+            cbuf[off] = (char) leftover;
+            leftover = -1;
+            return 1;
+        }
+        CharBuffer charBuffer = CharBuffer.wrap(cbuf, off, len);
+        while (charBuffer.position() == off) {
+            if (finished) return -1;
+            if (region == null || (!last && !region.hasRemaining())) map();
+            CoderResult result = decoder.decode(region, charBuffer, last);
+            if (result.isUnderflow()) {
+                if (last) {
+                    decoder.flush(charBuffer);
+                    finished = true;
+                } else {
+                    //Map the next region from the first byte that isn't decoded yet
+                    map();
+                }
+            } else if (result.isOverflow() && charBuffer.position() == off) {
+                //A surrogate pair doesn't fit in the given array
+                pair.clear();
+                decoder.decode(region, pair, last);
+                pair.flip();
+                cbuf[off] = pair.get();
+                if (pair.hasRemaining()) leftover = pair.get();
+                return 1;
+            }
+        }
+        return charBuffer.position() - off;
+    }
+
+    @Override
+    public void close() {
+        //The channel is owned by the caller
+    }
+
+    private void map() throws IOException {
+        if (region != null) position += region.position();
+        long length = Math.min(REGION_SIZE, size - position);
+        region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        last = position + length == size;
+    }
+}
@@ -11,11 +11,13 @@ import java.util.Map;
  * @since 1.8
  */
 public interface Node {
-    int getValue();
+    long getValue();
 
     void flatten(Collection<Character> characters, BitQueue structure);
 
     void toMap(Map<Character, Collection<Boolean>> map, BitQueue bits);
 
+    void toCodes(long[] codes, int[] lengths, long code, int length);
+
     void toString(StringBuilder stringBuilder, StringBuilder prefix, boolean isTail);
 }
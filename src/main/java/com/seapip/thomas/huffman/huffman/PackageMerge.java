@@ -0,0 +1,107 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.util.Arrays;
+
+/**
+ * The {@code PackageMerge} class consists exclusively of static methods to calculate optimal code lengths
+ * that don't exceed a given maximum, using the package-merge algorithm. Without a maximum Huffman codes can
+ * grow as long as the number of characters when frequencies grow like the Fibonacci sequence. The lengths of the
+ * Huffman tree are used directly when they don't exceed the maximum, which is the common case.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class PackageMerge {
+    private PackageMerge() {
+    }
+
+    /**
+     * Returns the smallest maximum code length that can hold codes for the given number of characters.
+     *
+     * @param count The number of characters
+     * @return The smallest maximum code length
+     */
+    public static int minLength(int count) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(count - 1));
+    }
+
+    /**
+     * Returns optimal code lengths for the given frequencies, the maximum is raised when it's too small
+     * to hold a code for every character with a non zero frequency.
+     *
+     * @param frequencies The frequency of each character, at most 65536 characters
+     * @param maxLength   The maximum code length
+     * @return The code length of each character, zero for characters with a zero frequency
+     */
+    public static int[] lengths(long[] frequencies, int maxLength) {
+        int[] lengths = new int[frequencies.length];
+
+        //Sort characters by frequency, equal frequencies are kept in character order
+        int count = 0;
+        for (long frequency : frequencies) if (frequency > 0) count++;
+        if (count == 0) return lengths;
+        long[] sorted = new long[count];
+        count = 0;
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] >>> 47 != 0) throw new IllegalArgumentException("Frequency exceeds 2^47.");
+            if (frequencies[i] > 0) sorted[count++] = frequencies[i] << 16 | i;
+        }
+        Arrays.sort(sorted);
+        int[] characters = new int[count];
+        long[] weights = new long[count];
+        for (int i = 0; i < count; i++) {
+            characters[i] = (int) (sorted[i] & 0xFFFF);
+            weights[i] = sorted[i] >>> 16;
+        }
+        if (count == 1) {
+            lengths[characters[0]] = 1;
+            return lengths;
+        }
+        maxLength = Math.max(maxLength, minLength(count));
+
+        //The Huffman tree is built in linear time from the sorted characters, its lengths are used when they fit
+        int[] huffman = HuffmanTree.create(characters, weights).getLengths();
+        int longest = 0;
+        for (int length : huffman) longest = Math.max(longest, length);
+        if (longest <= maxLength) {
+            System.arraycopy(huffman, 0, lengths, 0, huffman.length);
+            return lengths;
+        }
+
+        //Each level holds the leaves merged with the packages of the level below, at most 2n - 2 items are used
+        int limit = 2 * count - 2;
+        boolean[][] packages = new boolean[maxLength][];
+        long[] level = Arrays.copyOf(weights, Math.min(count, limit));
+        packages[0] = new boolean[level.length];
+        for (int depth = 1; depth < maxLength; depth++) {
+            int packageCount = level.length / 2;
+            long[] merged = new long[Math.min(count + packageCount, limit)];
+            boolean[] isPackage = new boolean[merged.length];
+            int leaf = 0;
+            int pack = 0;
+            for (int i = 0; i < merged.length; i++) {
+                long packageWeight = pack < packageCount ? level[2 * pack] + level[2 * pack + 1] : Long.MAX_VALUE;
+                if (leaf < count && weights[leaf] <= packageWeight) {
+                    merged[i] = weights[leaf++];
+                } else {
+                    merged[i] = packageWeight;
+                    isPackage[i] = true;
+                    pack++;
+                }
+            }
+            packages[depth] = isPackage;
+            level = merged;
+        }
+
+        //Every leaf in the selected items of a level adds one to its code length
+        int take = limit;
+        for (int depth = maxLength - 1; depth >= 0; depth--) {
+            int leaves = 0;
+            for (int i = 0; i < take; i++) if (!packages[depth][i]) leaves++;
+            for (int i = 0; i < leaves; i++) lengths[characters[i]]++;
+            take = 2 * (take - leaves);
+        }
+        return lengths;
+    }
+}
@@ -1,6 +1,5 @@
 package com.seapip.thomas.huffman.huffman;
 
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -11,6 +10,9 @@ import java.util.*;
  * The {@code TreeNode} class consists of a left and right node and has constructor methods
  * to be simply created from a given text. It also has it's own serialization implementation
  * so it can be stored using less bytes.
+ * <p>
+ * Compression builds, reads and writes trees as a {@code HuffmanTree} without creating nodes, the node graph is
+ * kept for debugging with {@code toString}. Trees are walked with a stack instead of recursion.
  *
  * @author Thomas Gladdines
  * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
@@ -21,22 +23,44 @@ public class TreeNode implements Node {
     private Node rightNode;
 
     public TreeNode(String content) {
-        //Create character frequency map
-        Map<Character, Integer> map = new HashMap<>();
-        for (char character : content.toCharArray()) map.put(character, map.getOrDefault(character, 0) + 1);
-
-        //Create Huffman tree from character frequency map
-        if (map.size() == 1) {
-            leftNode = new CharNode(content.charAt(0));
-            return;
-        }
-        Queue<Node> queue = new PriorityQueue<>(map.size(), (o1, o2) -> ((Integer) o1.getValue()).compareTo(o2.getValue()));
-        for (Map.Entry entry : map.entrySet()) queue.add(new CharNode((char) entry.getKey(), (int) entry.getValue()));
-        while (queue.size() > 1) queue.add(new TreeNode(queue.poll(), queue.poll()));
+        this(frequencies(content));
+    }
 
-        //Set child node values of this tree to values from created Huffman tree
-        leftNode = ((TreeNode) queue.peek()).getLeftNode();
-        rightNode = ((TreeNode) queue.peek()).getRightNode();
+    /**
+     * Creates a Huffman tree from a character frequency table, the table is indexed by character
+     * so it has to be at least as large as the largest character with a non zero frequency.
+     *
+     * @param frequencies The frequency of each character
+     */
+    public TreeNode(long[] frequencies) {
+        this(HuffmanTree.create(frequencies).toTreeNode());
+    }
+
+    /**
+     * Creates the Huffman tree that matches the given codes, codes are stored least significant bit first.
+     *
+     * @param codes   The code of each character
+     * @param lengths The code length of each character, zero for characters without code
+     */
+    public TreeNode(long[] codes, int[] lengths) {
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] == 0) continue;
+
+            //Follow the code from the root and create missing tree nodes on the way
+            TreeNode tree = this;
+            for (int bit = 0; bit < lengths[i] - 1; bit++) {
+                boolean right = (codes[i] >>> bit & 1) != 0;
+                Node node = right ? tree.rightNode : tree.leftNode;
+                if (node == null) {
+                    node = new TreeNode((Node) null, (Node) null);
+                    if (right) tree.rightNode = node;
+                    else tree.leftNode = node;
+                }
+                tree = (TreeNode) node;
+            }
+            if ((codes[i] >>> (lengths[i] - 1) & 1) != 0) tree.rightNode = new CharNode((char) i);
+            else tree.leftNode = new CharNode((char) i);
+        }
     }
 
     public TreeNode(Node leftNode, Node rightNode) {
@@ -45,58 +69,58 @@ public class TreeNode implements Node {
     }
 
     public TreeNode(Queue<Character> characters, BitQueue structure) {
-        TreeNode tree = (TreeNode) unflatten(characters, structure);
-        if (tree != null) {
-            leftNode = tree.getLeftNode();
-            rightNode = tree.getRightNode();
-        }
+        this(toTreeNode(characters, structure));
     }
 
-    public static TreeNode read(InputStream inputStream) throws IOException {
-        DataInputStream dataInputStream = new DataInputStream(inputStream);
-        byte[] data = new byte[4];
-
-        //Read character count
-        dataInputStream.readFully(data, 0, 4);
-        int count = ByteBuffer.wrap(data).getInt();
-
-        //Read characters
-        Queue<Character> characters = new ArrayDeque<>(count);
-        for (int i = 0; i < count; i++) {
-            dataInputStream.readFully(data, 0, 2);
-            characters.add(ByteBuffer.wrap(data).getChar());
-        }
-
-        //Read structure size
-        dataInputStream.readFully(data, 0, 4);
-        int size = ByteBuffer.wrap(data).getInt();
+    private TreeNode(TreeNode tree) {
+        this.leftNode = tree.leftNode;
+        this.rightNode = tree.rightNode;
+    }
 
-        //Read structure bytes
-        byte[] structureBytes = new byte[(int) Math.ceil(size / 8.0)];
-        dataInputStream.readFully(structureBytes, 0, structureBytes.length);
+    private static TreeNode toTreeNode(Queue<Character> characters, BitQueue structure) {
+        //Take the characters and structure bits from the queues
+        char[] array = new char[characters.size()];
+        for (int i = 0; i < array.length; i++) array[i] = characters.poll();
+        int size = structure.size();
+        byte[] bytes = new byte[(size + 7) / 8];
+        for (int i = 0; i < size; i++) if (structure.poll()) bytes[i >>> 3] |= 1 << (i & 7);
+        try {
+            return HuffmanTree.read(array, bytes, size).toTreeNode();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
 
-        //Convert structure bytes to booleans
-        BitQueue structure = new BitQueue();
-        for (byte b : structureBytes) for (int mask = 1; mask != 256; mask <<= 1) structure.add((b & mask) != 0);
+    private static long[] frequencies(String content) {
+        long[] frequencies = new long[Character.MAX_VALUE + 1];
+        new Histogram().count(content.toCharArray(), 0, content.length(), frequencies);
+        return frequencies;
+    }
 
-        //Create Huffman tree from characters and tree structure
-        return new TreeNode(characters, structure);
+    public static TreeNode read(InputStream inputStream) throws IOException {
+        return HuffmanTree.read(inputStream).toTreeNode();
     }
 
     @Override
     public void flatten(Collection<Character> characters, BitQueue structure) {
-        structure.add(false);
-        if (leftNode != null) leftNode.flatten(characters, structure);
-        if (rightNode != null) rightNode.flatten(characters, structure);
-    }
-
-    private Node unflatten(Queue<Character> characters, BitQueue structure) {
-        if (characters.isEmpty()) return null;
-        return structure.poll() ? new CharNode(characters.poll()) : new TreeNode(unflatten(characters, structure), unflatten(characters, structure));
+        //Walk the tree in pre order with a stack, the right node is pushed first so the left node is taken first
+        Deque<Node> nodes = new ArrayDeque<>();
+        nodes.push(this);
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            if (node instanceof TreeNode) {
+                TreeNode tree = (TreeNode) node;
+                structure.add(false);
+                if (tree.rightNode != null) nodes.push(tree.rightNode);
+                if (tree.leftNode != null) nodes.push(tree.leftNode);
+            } else {
+                node.flatten(characters, structure);
+            }
+        }
     }
 
     @Override
-    public int getValue() {
+    public long getValue() {
         return leftNode.getValue() + rightNode.getValue();
     }
 
@@ -130,8 +154,74 @@ public class TreeNode implements Node {
 
     @Override
     public void toMap(Map<Character, Collection<Boolean>> map, BitQueue bits) {
-        if (leftNode != null) leftNode.toMap(map, bits.copyAndAdd(false));
-        if (rightNode != null) rightNode.toMap(map, bits.copyAndAdd(true));
+        //Walk the tree with a stack and keep a single path, a code is only copied once its character is reached
+        boolean[] path = new boolean[64];
+        Deque<Node> nodes = new ArrayDeque<>();
+        Deque<Integer> steps = new ArrayDeque<>();
+        push(nodes, steps, this, 0);
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            int step = steps.pop();
+            int depth = step >>> 1;
+            if (depth > 0) {
+                if (depth > path.length) path = Arrays.copyOf(path, path.length * 2);
+                path[depth - 1] = (step & 1) != 0;
+            }
+            if (node instanceof TreeNode) {
+                push(nodes, steps, (TreeNode) node, depth);
+            } else {
+                BitQueue code = new BitQueue(bits);
+                for (int i = 0; i < depth; i++) code.add(path[i]);
+                node.toMap(map, code);
+            }
+        }
+    }
+
+    /**
+     * Stores the code of every character in this tree, codes are stored least significant bit first
+     * so the first bit of a code is the bit that's written and read first.
+     */
+    @Override
+    public void toCodes(long[] codes, int[] lengths, long code, int length) {
+        //Walk the tree with a stack, each step holds the code and length of its node
+        Deque<Node> nodes = new ArrayDeque<>();
+        Deque<Long> nodeCodes = new ArrayDeque<>();
+        Deque<Integer> nodeLengths = new ArrayDeque<>();
+        nodes.push(this);
+        nodeCodes.push(code);
+        nodeLengths.push(length);
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            long nodeCode = nodeCodes.pop();
+            int nodeLength = nodeLengths.pop();
+            if (!(node instanceof TreeNode)) {
+                node.toCodes(codes, lengths, nodeCode, nodeLength);
+                continue;
+            }
+            TreeNode tree = (TreeNode) node;
+            if (tree.rightNode != null) {
+                nodes.push(tree.rightNode);
+                nodeCodes.push(nodeLength < 64 ? nodeCode | 1L << nodeLength : nodeCode);
+                nodeLengths.push(nodeLength + 1);
+            }
+            if (tree.leftNode != null) {
+                nodes.push(tree.leftNode);
+                nodeCodes.push(nodeCode);
+                nodeLengths.push(nodeLength + 1);
+            }
+        }
+    }
+
+    private static void push(Deque<Node> nodes, Deque<Integer> steps, TreeNode tree, int depth) {
+        //A step holds the depth of the child and whether it's the right child
+        if (tree.rightNode != null) {
+            nodes.push(tree.rightNode);
+            steps.push((depth + 1) << 1 | 1);
+        }
+        if (tree.leftNode != null) {
+            nodes.push(tree.leftNode);
+            steps.push((depth + 1) << 1);
+        }
     }
 
     @Override
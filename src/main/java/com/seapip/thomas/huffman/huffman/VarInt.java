@@ -0,0 +1,50 @@
+package com.seapip.thomas.huffman.huffman;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code VarInt} class consists exclusively of static methods to write and read unsigned numbers
+ * using 7 bits per byte, so small numbers like the sizes of small payloads only take a single byte.
+ *
+ * @author Thomas Gladdines
+ * @see <a href="https://sonarcloud.io/dashboard?id=com.seapip.thomas.huffman%3AHuffman">Code analysis</a>
+ * @since 1.8
+ */
+public final class VarInt {
+    private VarInt() {
+    }
+
+    public static void write(OutputStream outputStream, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            outputStream.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        outputStream.write((int) value);
+    }
+
+    public static long read(InputStream inputStream) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = inputStream.read();
+            if (b == -1) throw new EOFException("Unexpected end of compressed data.");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Invalid number in compressed data.");
+    }
+
+    public static long read(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining()) throw new EOFException("Unexpected end of compressed data.");
+            int b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Invalid number in compressed data.");
+    }
+}
@@ -0,0 +1,86 @@
+package com.seapip.thomas.huffman;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchTest {
+
+    @Test
+    public void compression() throws Exception {
+        Path directory = Files.createTempDirectory("huffman");
+        try {
+            Files.write(directory.resolve("a.txt"), "Eerie eyes seen near lake.".getBytes());
+            Files.createDirectory(directory.resolve("logs"));
+            Files.write(directory.resolve("logs").resolve("b.log"), "2017-11-21 INFO request completed".getBytes());
+            Files.write(directory.resolve("empty.txt"), new byte[0]);
+
+            List<Path> files = Batch.find(directory.toString());
+            assertEquals("Every file in the directory is found", 3, files.size());
+            BatchResult result = Batch.compress(files, file -> Paths.get(file + ".compressed"), new Options().setThreads(2));
+
+            //The empty file fails without stopping the other files
+            assertEquals("Compressed file count", 2, result.getFiles());
+            assertEquals("Failed file count", 1, result.getFailures().size());
+            assertEquals("Failed file", directory.resolve("empty.txt"), result.getFailures().get(0).getPath());
+            assertFalse("Compressed data of a failed file is removed", Files.exists(directory.resolve("empty.txt.compressed")));
+            assertEquals("Input bytes", 26 + 33, result.getInputBytes());
+            assertEquals("Decompressed data is equal to original data", "Eerie eyes seen near lake.",
+                    decompress(directory.resolve("a.txt.compressed")));
+            assertEquals("Decompressed data is equal to original data", "2017-11-21 INFO request completed",
+                    decompress(directory.resolve("logs").resolve("b.log.compressed")));
+
+            //Already compressed files aren't found again
+            assertEquals("Compressed files are skipped", 3, Batch.find(directory.toString()).size());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void find() throws Exception {
+        Path directory = Files.createTempDirectory("huffman");
+        try {
+            Files.createDirectory(directory.resolve("logs"));
+            Files.write(directory.resolve("logs").resolve("a.log"), new byte[1]);
+            Files.write(directory.resolve("logs").resolve("b.log"), new byte[1]);
+            Files.write(directory.resolve("logs").resolve("c.txt"), new byte[1]);
+            assertEquals("Glob pattern", Arrays.asList(directory.resolve("logs").resolve("a.log"), directory.resolve("logs").resolve("b.log")),
+                    Batch.find(directory.resolve("logs") + "/*.log"));
+
+            Path list = directory.resolve("files.list");
+            Files.write(list, (directory.resolve("logs").resolve("c.txt") + "\n\n").getBytes());
+            assertEquals("List file", Arrays.asList(directory.resolve("logs").resolve("c.txt")), Batch.find("@" + list));
+            assertTrue("Nothing matches", Batch.find(directory.resolve("missing") + "/*.log").isEmpty());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static String decompress(Path path) throws Exception {
+        try (InputStream inputStream = Files.newInputStream(path);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.decompress(inputStream, byteArrayOutputStream);
+            return new String(byteArrayOutputStream.toByteArray());
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.seapip.thomas.huffman;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompressionListenerTest {
+
+    @Test
+    public void stats() throws Exception {
+        String content = "Eerie eyes seen near lake.";
+        List<CompressionStats> stats = new ArrayList<>();
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        Huffman.compress(new ByteArrayInputStream(content.getBytes()), byteArrayOutputStream, new Options().setListener(stats::add));
+
+        assertEquals("Listener is called once", 1, stats.size());
+        CompressionStats compression = stats.get(0);
+        assertEquals("Input size is counted", 26, compression.getInputBytes());
+        assertEquals("Output size is counted", byteArrayOutputStream.size(), compression.getOutputBytes());
+        assertEquals("Symbols are counted", 26, compression.getSymbols());
+        assertEquals("Distinct symbols are counted", 12, compression.getDistinctSymbols());
+        assertTrue("Mean code length isn't below the entropy", compression.getMeanCodeLength() >= compression.getEntropy());
+        assertTrue("Entropy is positive", compression.getEntropy() > 3);
+        assertTrue("Total time covers the phases", compression.getTotalNanos() >= compression.getNanos(CompressionStats.Phase.COUNT)
+                + compression.getNanos(CompressionStats.Phase.CODE) + compression.getNanos(CompressionStats.Phase.ENCODE));
+    }
+
+    @Test
+    public void statsBlocks() throws Exception {
+        byte[] content = new byte[10000];
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (i % 7 == 0 ? 'a' : 'b');
+        List<CompressionStats> stats = new ArrayList<>();
+        Huffman.compress(new ByteArrayInputStream(content), new ByteArrayOutputStream(),
+                new Options().setBinary(true).setBlockSize(3000).setThreads(2).setListener(stats::add));
+
+        assertEquals("Symbols of every block are counted", content.length, stats.get(0).getSymbols());
+        assertEquals("Input size is counted", content.length, stats.get(0).getInputBytes());
+        assertEquals("Distinct symbols are counted over blocks", 2, stats.get(0).getDistinctSymbols());
+        assertEquals("Each symbol has a single bit code", 1.0, stats.get(0).getMeanCodeLength(), 1e-9);
+    }
+
+    @Test
+    public void statsPhases() throws Exception {
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + i * 7 % 13);
+        for (boolean binary : new boolean[]{true, false}) {
+            List<CompressionStats> stats = new ArrayList<>();
+            Huffman.compress(new ByteArrayInputStream(content), new ByteArrayOutputStream(),
+                    new Options().setBinary(binary).setBlockSize(30000).setListener(stats::add));
+
+            CompressionStats compression = stats.get(0);
+            assertTrue("Count time of the blocks is measured", compression.getNanos(CompressionStats.Phase.COUNT) > 0);
+            assertTrue("Code time of the blocks is measured", compression.getNanos(CompressionStats.Phase.CODE) > 0);
+            assertTrue("Encode time of the blocks is measured", compression.getNanos(CompressionStats.Phase.ENCODE) > 0);
+            assertTrue("Total time covers the phases", compression.getTotalNanos() >= compression.getNanos(CompressionStats.Phase.COUNT)
+                    + compression.getNanos(CompressionStats.Phase.CODE) + compression.getNanos(CompressionStats.Phase.ENCODE));
+        }
+    }
+
+    @Test
+    public void statsSampled() throws Exception {
+        //A single byte the samples miss still counts, the sampled code gives every byte a code
+        byte[] content = new byte[200000];
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (i % 3 == 0 ? 'a' : 'b');
+        content[content.length - 1] = 'c';
+        List<CompressionStats> stats = new ArrayList<>();
+        Huffman.compress(new ByteArrayInputStream(content), new ByteArrayOutputStream(),
+                new Options().setBinary(true).setLevel(Options.Level.FAST).setListener(stats::add));
+
+        CompressionStats compression = stats.get(0);
+        assertEquals("Symbols are counted exactly", content.length, compression.getSymbols());
+        assertEquals("Distinct symbols are counted exactly", 3, compression.getDistinctSymbols());
+        assertTrue("Mean code length isn't below the entropy", compression.getMeanCodeLength() >= compression.getEntropy());
+    }
+
+    @Test
+    public void flightRecorder() throws Exception {
+        Path path = Files.createTempFile("huffman", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.seapip.thomas.huffman.Compression");
+            recording.start();
+            Huffman.compress(new ByteArrayInputStream("Eerie eyes seen near lake.".getBytes()), new ByteArrayOutputStream(),
+                    new Options().setListener(new JfrCompressionListener()));
+            recording.stop();
+            recording.dump(path);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(path);
+            assertEquals("A single compression event is recorded", 1, events.size());
+            assertEquals("Event holds the input size", 26, events.get(0).getLong("inputBytes"));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.seapip.thomas.huffman;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DaemonTest {
+
+    @Test
+    public void requests() throws Exception {
+        Path directory = Files.createTempDirectory("huffman");
+        Path socket = directory.resolve("daemon").resolve("huffman.sock");
+        byte[] content = "Eerie eyes seen near lake.".getBytes();
+        Files.write(directory.resolve("a.txt"), content);
+        ServerSocketChannel server = Daemon.bind(socket);
+        Thread thread = new Thread(() -> {
+            try {
+                Daemon.serve(server);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        try {
+            //Only the current user can reach the socket
+            assertEquals("Directory permissions", "rwx------",
+                    PosixFilePermissions.toString(Files.getPosixFilePermissions(socket.getParent())));
+            assertEquals("Socket permissions", "rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+
+            //Relative paths are resolved against the directory of the client
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            assertEquals("Compress status", 0, request(socket, directory, out, err, "--checked", "compress", "a.txt"));
+            assertEquals("Decompress status", 0, request(socket, directory, out, err, "decompress", "a.txt.compressed", "b.txt"));
+            assertArrayEquals("Decompressed data is equal to original data", content, Files.readAllBytes(directory.resolve("b.txt")));
+            assertEquals("Verify status", 0, request(socket, directory, out, err, "verify", "a.txt.compressed"));
+            assertEquals("Verify output", directory.resolve("a.txt.compressed") + ": OK", new String(out.toByteArray()).trim());
+
+            //Failures are reported to the client
+            assertEquals("Missing file status", 1, request(socket, directory, out, err, "compress", "missing.txt"));
+            assertEquals("Missing file error", directory.resolve("missing.txt") + ": File not found.", new String(err.toByteArray()).trim());
+
+            try {
+                Daemon.bind(socket);
+                throw new AssertionError("Second daemon is bound to the socket");
+            } catch (IOException e) {
+                assertEquals("Exception message", "A daemon is already listening on the socket.", e.getMessage());
+            }
+        } finally {
+            server.close();
+            thread.join();
+        }
+
+        //A socket file left behind is replaced
+        assertTrue("Socket file is left behind", Files.exists(socket));
+        Daemon.bind(socket).close();
+        delete(directory);
+    }
+
+    @Test
+    public void sharedDirectory() throws Exception {
+        //Other users could connect to the socket in a directory they can access before its permissions are set
+        Path directory = Files.createTempDirectory("huffman");
+        try {
+            Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"));
+            Daemon.bind(directory.resolve("huffman.sock")).close();
+            throw new AssertionError("Daemon is bound in a shared directory");
+        } catch (IOException e) {
+            assertEquals("Exception message", "The socket directory is accessible by other users.", e.getMessage());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static int request(Path socket, Path directory, ByteArrayOutputStream out, ByteArrayOutputStream err,
+                               String... args) throws IOException {
+        out.reset();
+        err.reset();
+        return Daemon.request(socket, directory, args, new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.delete(path);
+        }
+    }
+}
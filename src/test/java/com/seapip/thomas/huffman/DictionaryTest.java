@@ -0,0 +1,95 @@
+package com.seapip.thomas.huffman;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DictionaryTest {
+    private static final String MESSAGE = "2017-11-21 12:04:17.512 INFO  [worker-7] c.s.t.h.Huffman - Request 4242 completed in 17ms status=200\n";
+
+    @Test
+    public void compression() throws Exception {
+        Dictionary dictionary = Dictionary.train(1, new ByteArrayInputStream(sample().getBytes()), new Options());
+        byte[] data = compress(MESSAGE.getBytes(), new Options().setDictionary(dictionary));
+        assertTrue("Compressed message should be smaller than 70 bytes", data.length < 70);
+        assertEquals("Decompressed data is equal to original data", MESSAGE, new String(decompress(data)));
+
+        //Characters that aren't in the sample still have a code
+        String message = "Unexpected ~{`|^}";
+        data = compress(message.getBytes(), new Options().setDictionary(dictionary));
+        assertEquals("Decompressed data is equal to original data", message, new String(decompress(data)));
+    }
+
+    @Test
+    public void compressionBinary() throws Exception {
+        byte[] sample = new byte[4096];
+        for (int i = 0; i < sample.length; i++) sample[i] = (byte) (i % 7 == 0 ? i : i % 3);
+        Dictionary dictionary = Dictionary.train(2, new ByteArrayInputStream(sample), new Options().setBinary(true));
+
+        byte[] content = {0, 1, 2, 1, 0, (byte) 255, (byte) 128, 2, 2};
+        byte[] data = compress(content, new Options().setDictionary(dictionary));
+        assertArrayEquals("Decompressed data is equal to original data", content, decompress(data));
+    }
+
+    @Test
+    public void saveAndLoad() throws Exception {
+        Dictionary dictionary = Dictionary.train(3, new ByteArrayInputStream(sample().getBytes()), new Options());
+        byte[] data = compress(MESSAGE.getBytes(), new Options().setDictionary(dictionary));
+        Path path = Files.createTempFile("huffman", ".dictionary");
+        try {
+            dictionary.save(path);
+            assertSame("Loading an already registered dictionary returns it", dictionary, Dictionary.load(path));
+
+            //Replace the registered dictionary with another one using the same id
+            Dictionary.register(Dictionary.train(3, new ByteArrayInputStream("other".getBytes()), new Options()));
+            Dictionary loaded = Dictionary.load(path);
+            assertSame("Loaded dictionary is registered", loaded, Dictionary.get(3));
+            assertEquals("Decompressed data is equal to original data", MESSAGE, new String(decompress(data)));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test(expected = Huffman.CompressionException.class)
+    public void unknownDictionary() throws Exception {
+        Dictionary dictionary = Dictionary.train(4, new ByteArrayInputStream(sample().getBytes()), new Options());
+        byte[] data = compress(MESSAGE.getBytes(), new Options().setDictionary(dictionary));
+        data[1] = 127;
+        decompress(data);
+    }
+
+    private static String sample() {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            stringBuilder.append(String.format("2017-11-%02d %02d:%02d:%02d.%03d %-5s [worker-%d] c.s.t.h.Huffman - Request %d completed in %dms status=%d\n",
+                    1 + i % 28, i % 24, i % 60, (i * 7) % 60, (i * 37) % 1000, i % 5 == 0 ? "WARN" : "INFO", i % 16, i * 31, i % 97, i % 9 == 0 ? 500 : 200));
+        }
+        return stringBuilder.toString();
+    }
+
+    private static byte[] compress(byte[] content, Options options) throws Exception {
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, options);
+            return byteArrayOutputStream.toByteArray();
+        }
+    }
+
+    private static byte[] decompress(byte[] data) throws Exception {
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            return byteArrayOutputStream.toByteArray();
+        }
+    }
+}
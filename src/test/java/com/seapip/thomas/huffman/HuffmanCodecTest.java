@@ -0,0 +1,141 @@
+package com.seapip.thomas.huffman;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HuffmanCodecTest {
+
+    @Test
+    public void partialBuffers() throws Exception {
+        byte[] content = content(300000);
+        Options options = new Options().setBinary(true).setBlockSize(65536).setInterleaved(true);
+
+        //Feed the encoder small direct buffers so blocks are split over calls and output doesn't fit
+        HuffmanEncoder encoder = new HuffmanEncoder(options);
+        ByteBuffer src = ByteBuffer.allocateDirect(content.length);
+        src.put(content).flip();
+        ByteBuffer dst = ByteBuffer.allocateDirect(1000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        for (int offset = 0; offset < content.length; ) {
+            ByteBuffer part = src.duplicate();
+            part.position(offset).limit(Math.min(content.length, offset + 7000));
+            boolean end = part.limit() == content.length;
+            while (!encoder.encode(part, dst, end)) drain(dst, compressed);
+            offset = part.position();
+        }
+        drain(dst, compressed);
+
+        //The output is the same as compressing the bytes in one go
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Huffman.compress(new ByteArrayInputStream(content), expected, options);
+        assertArrayEquals("Encoded data is equal to compressed data", expected.toByteArray(), compressed.toByteArray());
+
+        //Decode a few bytes at a time into a small direct buffer
+        HuffmanDecoder decoder = new HuffmanDecoder();
+        byte[] data = compressed.toByteArray();
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        dst = ByteBuffer.allocateDirect(777);
+        boolean done = false;
+        for (int offset = 0; !done; ) {
+            ByteBuffer part = ByteBuffer.wrap(data, offset, Math.min(data.length - offset, 333));
+            done = decoder.decode(part, dst);
+            while (!done && part.hasRemaining()) {
+                drain(dst, decompressed);
+                done = decoder.decode(part, dst);
+            }
+            offset = part.position();
+        }
+        drain(dst, decompressed);
+        assertArrayEquals("Decoded data is equal to original data", content, decompressed.toByteArray());
+    }
+
+    @Test
+    public void directBuffers() throws Exception {
+        //Content of each block type: Huffman, interleaved, context, tANS, stored and run blocks
+        Random random = new Random(42);
+        byte[] noise = new byte[5000];
+        random.nextBytes(noise);
+        byte[] sequence = new byte[50000];
+        for (int i = 1; i < sequence.length; i++) sequence[i] = (byte) ((sequence[i - 1] + 1 + random.nextInt(2)) % 26);
+        byte[][] contents = {content(50000), content(50000), sequence, content(50000), noise, new byte[5000]};
+        Options[] options = {new Options(), new Options().setInterleaved(true), new Options().setContexts(true),
+                new Options().setProfile(Options.Profile.SIZE), new Options(), new Options()};
+        for (int i = 0; i < contents.length; i++) {
+            ByteBuffer compressed = ByteBuffer.allocate(64 * 1024);
+            assertTrue("Encoded in a single call", new HuffmanEncoder(options[i].setBlockSize(16384))
+                    .encode(ByteBuffer.wrap(contents[i]), compressed, true));
+            compressed.flip();
+
+            //Every block fits, so each is decoded straight into the direct buffer after the bytes already in it
+            ByteBuffer decompressed = ByteBuffer.allocateDirect(contents[i].length + 3);
+            decompressed.position(3);
+            assertTrue("Decoded in a single call", new HuffmanDecoder().decode(compressed, decompressed));
+            assertEquals("Every byte is decoded", decompressed.capacity(), decompressed.position());
+            byte[] bytes = new byte[contents[i].length];
+            decompressed.position(3);
+            decompressed.get(bytes);
+            assertArrayEquals("Decoded data is equal to original data", contents[i], bytes);
+        }
+    }
+
+    @Test
+    public void reuse() throws Exception {
+        HuffmanEncoder encoder = new HuffmanEncoder(new Options().setBlockSize(4096));
+        HuffmanDecoder decoder = new HuffmanDecoder();
+        ByteBuffer compressed = ByteBuffer.allocate(64 * 1024);
+        byte[][] messages = {content(10000), new byte[0], "Eerie eyes seen near lake.".getBytes()};
+        for (byte[] message : messages) {
+            assertTrue("Encoded in a single call", encoder.encode(ByteBuffer.wrap(message), compressed, true));
+            encoder.reset();
+        }
+
+        //Messages written after each other are decoded one at a time
+        compressed.flip();
+        for (byte[] message : messages) {
+            ByteBuffer decompressed = ByteBuffer.allocate(message.length);
+            assertTrue("Decoded in a single call", decoder.decode(compressed, decompressed));
+            assertArrayEquals("Decoded data is equal to original data", message, decompressed.array());
+            decoder.reset();
+        }
+        assertFalse("Every message is read", compressed.hasRemaining());
+    }
+
+    @Test
+    public void corruptData() throws Exception {
+        ByteBuffer compressed = ByteBuffer.allocate(64 * 1024);
+        new HuffmanEncoder().encode(ByteBuffer.wrap(content(20000)), compressed, true);
+        compressed.put(compressed.position() / 2, (byte) (compressed.get(compressed.position() / 2) ^ 1));
+        compressed.flip();
+        try {
+            new HuffmanDecoder().decode(compressed, ByteBuffer.allocate(20000));
+            throw new AssertionError("Corrupt data is decoded");
+        } catch (IOException e) {
+            assertEquals("Exception message", "Checksum mismatch in block.", e.getMessage());
+        }
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + random.nextInt(1 + random.nextInt(26)));
+        return content;
+    }
+
+    private static void drain(ByteBuffer buffer, ByteArrayOutputStream outputStream) {
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        outputStream.write(bytes, 0, bytes.length);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,71 @@
+package com.seapip.thomas.huffman;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class HuffmanStreamTest {
+
+    @Test
+    public void compression() throws Exception {
+        byte[] content = new byte[200000];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + random.nextInt(1 + random.nextInt(26)));
+
+        //Write in chunks of different sizes with a flush in between
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (HuffmanOutputStream outputStream = new HuffmanOutputStream(byteArrayOutputStream, new Options().setAdaptiveInterval(8192))) {
+            outputStream.write(content[0]);
+            outputStream.write(content, 1, 99999);
+            outputStream.flush();
+            outputStream.write(content, 100000, 100000);
+        }
+        byte[] data = byteArrayOutputStream.toByteArray();
+
+        try (InputStream inputStream = new HuffmanInputStream(new ByteArrayInputStream(data))) {
+            byte[] decompressed = new byte[content.length];
+            assertEquals("First byte is read on its own", content[0], (byte) inputStream.read());
+            int offset = 1;
+            int read;
+            while (offset < decompressed.length && (read = inputStream.read(decompressed, offset, decompressed.length - offset)) != -1) {
+                offset += read;
+            }
+            decompressed[0] = content[0];
+            assertArrayEquals("Read data is equal to original data", content, decompressed);
+            assertEquals("End of data is reached", -1, inputStream.read());
+        }
+
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            Huffman.decompress(new ByteArrayInputStream(data), outputStream);
+            assertArrayEquals("Decompressed data is equal to original data", content, outputStream.toByteArray());
+        }
+    }
+
+    @Test
+    public void decompressionKeepsStreamOpen() throws Exception {
+        String content = "Eerie eyes seen near lake.";
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Huffman.compress(new ByteArrayInputStream(content.getBytes()), compressed);
+
+        ClosingOutputStream outputStream = new ClosingOutputStream();
+        Huffman.decompress(new ByteArrayInputStream(compressed.toByteArray()), outputStream);
+        assertFalse("Caller's stream isn't closed", outputStream.closed);
+        assertEquals("Decompressed data is equal to original data", content, outputStream.toString());
+    }
+
+    private static class ClosingOutputStream extends ByteArrayOutputStream {
+        private boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -1,11 +1,24 @@
 package com.seapip.thomas.huffman;
 
+import com.seapip.thomas.huffman.huffman.BitQueue;
+import com.seapip.thomas.huffman.huffman.TreeNode;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class HuffmanTest {
 
@@ -19,7 +32,7 @@ public class HuffmanTest {
 
             Huffman.compress(byteArrayInputStream, byteArrayOutputStream);
             data = byteArrayOutputStream.toByteArray();
-            assertEquals("Compressed data size should be 58 bytes", 58, data.length);
+            assertEquals("Compressed data size should be 34 bytes", 34, data.length);
         }
 
         try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
@@ -31,6 +44,526 @@ public class HuffmanTest {
         }
     }
 
+    @Test
+    public void compressionChecked() throws Exception {
+        String content = "Eerie eyes seen near lake.";
+        byte[] data;
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content.getBytes());
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new Options().setChecked(true));
+            data = byteArrayOutputStream.toByteArray();
+            assertEquals("Compressed data size should be 62 bytes", 62, data.length);
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            data = byteArrayOutputStream.toByteArray();
+            assertEquals("Decompressed data is equal to original data", content, new String(data));
+        }
+    }
+
+    @Test
+    public void compressionCheckedSingleCharacter() throws Exception {
+        byte[] data;
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream("AAA".getBytes());
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new Options().setChecked(true));
+            data = byteArrayOutputStream.toByteArray();
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            assertEquals("Decompressed data is equal to original data", "AAA", new String(byteArrayOutputStream.toByteArray()));
+        }
+    }
+
+    @Test
+    public void compressionFile() throws Exception {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < 20000; i++) stringBuilder.append("Line ").append(i).append(": eerie eyes seen near lake.\n");
+        String content = stringBuilder.toString();
+        Path path = Files.createTempFile("huffman", ".txt");
+        byte[] fileData;
+        byte[] streamData;
+
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Files.write(path, content.getBytes());
+            Huffman.compress(path, byteArrayOutputStream);
+            fileData = byteArrayOutputStream.toByteArray();
+        } finally {
+            Files.delete(path);
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content.getBytes());
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream);
+            streamData = byteArrayOutputStream.toByteArray();
+            assertArrayEquals("Compressed file data is equal to compressed stream data", fileData, streamData);
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(fileData);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            assertEquals("Decompressed data is equal to original data", content, new String(byteArrayOutputStream.toByteArray()));
+        }
+    }
+
+    @Test
+    public void compressionUtf8() throws Exception {
+        String content = "Caf\u00e9 \u00fcber \u65e5\u672c \u20ac 10, eerie eyes seen near lake.";
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Path path = Files.createTempFile("huffman", ".txt");
+        try {
+            Files.write(path, bytes);
+            for (Options options : new Options[]{new Options(), new Options().setChecked(true), new Options().setBlockSize(8)}) {
+                ByteArrayOutputStream fileData = new ByteArrayOutputStream();
+                Huffman.compress(path, fileData, options);
+                ByteArrayOutputStream streamData = new ByteArrayOutputStream();
+                Huffman.compress(new ByteArrayInputStream(bytes), streamData, options);
+
+                for (ByteArrayOutputStream data : new ByteArrayOutputStream[]{fileData, streamData}) {
+                    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+                    Huffman.decompress(new ByteArrayInputStream(data.toByteArray()), byteArrayOutputStream);
+                    assertArrayEquals("Text is read and written as UTF-8", bytes, byteArrayOutputStream.toByteArray());
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void compressionBlocks() throws Exception {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < 20000; i++) stringBuilder.append("Line ").append(i).append(": eerie eyes seen near lake.\n");
+        String content = stringBuilder.toString();
+        Options options = new Options().setBlockSize(10000).setThreads(4);
+        Path path = Files.createTempFile("huffman", ".txt");
+        byte[] fileData;
+        byte[] streamData;
+
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Files.write(path, content.getBytes());
+            Huffman.compress(path, byteArrayOutputStream, options);
+            fileData = byteArrayOutputStream.toByteArray();
+        } finally {
+            Files.delete(path);
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content.getBytes());
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.compress(byteArrayInputStream, byteArrayOutputStream, options.setThreads(1));
+            streamData = byteArrayOutputStream.toByteArray();
+            assertArrayEquals("Compressed data is independent of the thread count", fileData, streamData);
+        }
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(fileData);
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            assertEquals("Decompressed data is equal to original data", content, new String(byteArrayOutputStream.toByteArray()));
+        }
+    }
+
+    @Test
+    public void decompressionBlocks() throws Exception {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < 20000; i++) stringBuilder.append("Line ").append(i).append(": eerie eyes seen near lake.\n");
+        String content = stringBuilder.toString();
+        Path path = Files.createTempFile("huffman", ".compressed");
+
+        try {
+            try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content.getBytes());
+                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+                Huffman.compress(byteArrayInputStream, byteArrayOutputStream, new Options().setBlockSize(10000));
+                Files.write(path, byteArrayOutputStream.toByteArray());
+            }
+
+            try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                Huffman.decompress(path, byteArrayOutputStream, new Options().setThreads(4));
+                assertEquals("Decompressed data is equal to original data", content, new String(byteArrayOutputStream.toByteArray()));
+            }
+
+            long[][] ranges = {{0, 0}, {0, 10}, {9995, 10005}, {25000, 55000}, {content.length() - 3, content.length() + 10}};
+            for (long[] range : ranges) {
+                try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                    Huffman.decompress(path, byteArrayOutputStream, range[0], range[1]);
+                    assertEquals("Decompressed range is equal to original range",
+                            content.substring((int) range[0], (int) Math.min(range[1], content.length())),
+                            new String(byteArrayOutputStream.toByteArray()));
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void compressionBinary() throws Exception {
+        //Skewed bytes with every value present, including byte sequences that aren't valid UTF-8
+        byte[] content = new byte[100000];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (i < 256 ? i : random.nextInt(1 + random.nextInt(256)));
+        Options options = new Options().setBinary(true).setBlockSize(30000);
+        Path path = Files.createTempFile("huffman", ".compressed");
+        byte[] data;
+
+        try {
+            try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+                Huffman.compress(byteArrayInputStream, byteArrayOutputStream, options);
+                data = byteArrayOutputStream.toByteArray();
+                Files.write(path, data);
+            }
+
+            try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+                Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+                assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+            }
+
+            try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                Huffman.decompress(path, byteArrayOutputStream, new Options().setThreads(3));
+                assertArrayEquals("Decompressed file data is equal to original data", content, byteArrayOutputStream.toByteArray());
+            }
+
+            try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                Huffman.decompress(path, byteArrayOutputStream, 29990, 60010);
+                assertArrayEquals("Decompressed range is equal to original range",
+                        Arrays.copyOfRange(content, 29990, 60010), byteArrayOutputStream.toByteArray());
+            }
+
+            try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                Files.write(path, content);
+                Huffman.compress(path, byteArrayOutputStream, options);
+                assertArrayEquals("Compressed file data is equal to compressed stream data", data, byteArrayOutputStream.toByteArray());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void compressionInterleaved() throws Exception {
+        //Block sizes that don't divide by four and a last block too small to interleave
+        byte[] content = new byte[70001];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + random.nextInt(1 + random.nextInt(26)));
+        String text = new String(content, "US-ASCII");
+        Path path = Files.createTempFile("huffman", ".compressed");
+
+        try {
+            for (boolean binary : new boolean[]{true, false}) {
+                Options options = new Options().setBinary(binary).setBlockSize(30001).setInterleaved(true);
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                Huffman.compress(new ByteArrayInputStream(content), compressed, options);
+                Files.write(path, compressed.toByteArray());
+
+                try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                    Huffman.decompress(new ByteArrayInputStream(compressed.toByteArray()), byteArrayOutputStream);
+                    assertEquals("Decompressed data is equal to original data", text, byteArrayOutputStream.toString("US-ASCII"));
+                }
+
+                try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                    Huffman.decompress(path, byteArrayOutputStream, new Options().setThreads(2));
+                    assertEquals("Decompressed file data is equal to original data", text, byteArrayOutputStream.toString("US-ASCII"));
+                }
+
+                try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                    Huffman.decompress(path, byteArrayOutputStream, 29000, 61000);
+                    assertEquals("Decompressed range is equal to original range", text.substring(29000, 61000),
+                            byteArrayOutputStream.toString("US-ASCII"));
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void compressionStored() throws Exception {
+        //Random bytes are stored and a run of a single byte only holds the byte
+        byte[] content = new byte[70000];
+        new Random(42).nextBytes(content);
+        Arrays.fill(content, 60000, content.length, (byte) 'a');
+        Path path = Files.createTempFile("huffman", ".compressed");
+
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            Huffman.compress(new ByteArrayInputStream(content), compressed,
+                    new Options().setBinary(true).setBlockSize(30000).setInterleaved(true));
+            Files.write(path, compressed.toByteArray());
+            assertTrue("Stored data should barely grow", compressed.size() < 60000 + 96);
+
+            try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                Huffman.decompress(new ByteArrayInputStream(compressed.toByteArray()), byteArrayOutputStream);
+                assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+            }
+
+            try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                Huffman.decompress(path, byteArrayOutputStream, new Options().setThreads(2));
+                assertArrayEquals("Decompressed file data is equal to original data", content, byteArrayOutputStream.toByteArray());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void compressionRun() throws Exception {
+        //Blocks of a single character only hold the character
+        char[] characters = new char[5000];
+        Arrays.fill(characters, 'e');
+        String text = new String(characters);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Huffman.compress(new ByteArrayInputStream(text.getBytes("US-ASCII")), compressed, new Options().setBlockSize(1000));
+        assertTrue("Runs should only hold the character and the block index", compressed.size() < 96);
+
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+            Huffman.decompress(new ByteArrayInputStream(compressed.toByteArray()), byteArrayOutputStream);
+            assertEquals("Decompressed data is equal to original data", text, byteArrayOutputStream.toString("US-ASCII"));
+        }
+    }
+
+    @Test
+    public void compressionContexts() throws Exception {
+        //Log lines where each character mostly depends on the character before it
+        String[] levels = {"INFO", "WARN", "DEBUG", "ERROR"};
+        String[] messages = {"request completed", "connection closed", "cache miss for key", "retrying request"};
+        StringBuilder stringBuilder = new StringBuilder();
+        Random random = new Random(42);
+        while (stringBuilder.length() < 100000) {
+            stringBuilder.append("2017-11-").append(10 + random.nextInt(20)).append(' ').append(levels[random.nextInt(4)])
+                    .append(' ').append(messages[random.nextInt(4)]).append(" id=").append(random.nextInt(100000)).append('\n');
+        }
+        byte[] content = stringBuilder.toString().getBytes("US-ASCII");
+        Path path = Files.createTempFile("huffman", ".compressed");
+
+        try {
+            for (boolean binary : new boolean[]{true, false}) {
+                ByteArrayOutputStream single = new ByteArrayOutputStream();
+                Huffman.compress(new ByteArrayInputStream(content), single, new Options().setBinary(binary).setBlockSize(30000));
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                Huffman.compress(new ByteArrayInputStream(content), compressed,
+                        new Options().setBinary(binary).setBlockSize(30000).setContexts(true));
+                Files.write(path, compressed.toByteArray());
+                assertTrue("Contexts should make the data smaller", compressed.size() < single.size() * 9 / 10);
+
+                try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                    Huffman.decompress(new ByteArrayInputStream(compressed.toByteArray()), byteArrayOutputStream);
+                    assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+                }
+
+                try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                    Huffman.decompress(path, byteArrayOutputStream, new Options().setThreads(2));
+                    assertArrayEquals("Decompressed file data is equal to original data", content, byteArrayOutputStream.toByteArray());
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void compressionProfiles() throws Exception {
+        //Mostly spaces, which a Huffman code can't give less than a bit
+        byte[] content = new byte[100000];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (random.nextInt(10) > 0 ? ' ' : 'a' + random.nextInt(8));
+        Path path = Files.createTempFile("huffman", ".compressed");
+
+        try {
+            for (boolean binary : new boolean[]{true, false}) {
+                ByteArrayOutputStream speed = new ByteArrayOutputStream();
+                Huffman.compress(new ByteArrayInputStream(content), speed, new Options().setBinary(binary).setBlockSize(30000));
+                for (Options.Profile profile : new Options.Profile[]{Options.Profile.BALANCED, Options.Profile.SIZE}) {
+                    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                    Huffman.compress(new ByteArrayInputStream(content), compressed,
+                            new Options().setBinary(binary).setBlockSize(30000).setProfile(profile));
+                    Files.write(path, compressed.toByteArray());
+                    assertTrue("tANS blocks should make the data smaller", compressed.size() < speed.size() * 9 / 10);
+
+                    try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                        Huffman.decompress(new ByteArrayInputStream(compressed.toByteArray()), byteArrayOutputStream);
+                        assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+                    }
+
+                    try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                        Huffman.decompress(path, byteArrayOutputStream, new Options().setThreads(2));
+                        assertArrayEquals("Decompressed file data is equal to original data", content, byteArrayOutputStream.toByteArray());
+                    }
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void compressionLevels() throws Exception {
+        //Letters with a rare character below them and one above them that the sample misses
+        byte[] content = new byte[200000];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (random.nextInt(6) == 0 ? ' ' : 'a' + random.nextInt(26));
+        content[100000] = '!';
+        content[150000] = '~';
+
+        for (boolean binary : new boolean[]{true, false}) {
+            for (boolean interleaved : new boolean[]{false, true}) {
+                ByteArrayOutputStream max = new ByteArrayOutputStream();
+                Huffman.compress(new ByteArrayInputStream(content), max,
+                        new Options().setBinary(binary).setInterleaved(interleaved));
+                ByteArrayOutputStream fast = new ByteArrayOutputStream();
+                Huffman.compress(new ByteArrayInputStream(content), fast,
+                        new Options().setBinary(binary).setInterleaved(interleaved).setLevel(Options.Level.FAST));
+                assertTrue("Sampling should barely change the size", fast.size() < max.size() * 51 / 50);
+
+                try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                    Huffman.decompress(new ByteArrayInputStream(fast.toByteArray()), byteArrayOutputStream);
+                    assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void checksums() throws Exception {
+        byte[] content = new byte[70000];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + random.nextInt(1 + random.nextInt(26)));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Huffman.compress(new ByteArrayInputStream(content), compressed, new Options().setBinary(true).setBlockSize(30000));
+        byte[] data = compressed.toByteArray();
+        Path path = Files.createTempFile("huffman", ".compressed");
+
+        try {
+            Files.write(path, data);
+            Huffman.verify(path);
+
+            //A flipped bit in the second block is found by verifying and decompressing the file or stream
+            data[data.length / 2] ^= 4;
+            Files.write(path, data);
+            assertFails("Checksum mismatch in block 1.", () -> Huffman.verify(path));
+            assertFails("Checksum mismatch in block 1.", () -> Huffman.decompress(path, new ByteArrayOutputStream(), new Options()));
+            assertFails("Checksum mismatch in block 1.", () -> Huffman.decompress(new ByteArrayInputStream(data), new ByteArrayOutputStream()));
+
+            //Data without checksums can't be verified
+            compressed.reset();
+            Huffman.compress(new ByteArrayInputStream(content), compressed, new Options());
+            Files.write(path, compressed.toByteArray());
+            assertFails("Compressed data version 1 has no checksums.", () -> Huffman.verify(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void compressionAdaptive() throws Exception {
+        //Byte distribution changes halfway so the rebuilt tables differ
+        byte[] content = new byte[50000];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (i < 25000 ? 'a' + random.nextInt(4) : random.nextInt(256));
+        Options options = new Options().setAdaptiveInterval(4096);
+        Path path = Files.createTempFile("huffman", ".compressed");
+        byte[] data;
+
+        try {
+            try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content);
+                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+                Huffman.compress(byteArrayInputStream, byteArrayOutputStream, options);
+                data = byteArrayOutputStream.toByteArray();
+                Files.write(path, data);
+            }
+
+            try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+                Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+                assertArrayEquals("Decompressed data is equal to original data", content, byteArrayOutputStream.toByteArray());
+            }
+
+            try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+                Huffman.decompress(path, byteArrayOutputStream, new Options());
+                assertArrayEquals("Decompressed file data is equal to original data", content, byteArrayOutputStream.toByteArray());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void compressionLongCodes() throws Exception {
+        //Fibonacci frequencies create codes longer than the root of the decode table
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0, a = 1, b = 1; i < 22; i++, b = a + b, a = b - a) {
+            for (int j = 0; j < a; j++) stringBuilder.append((char) ('a' + i));
+        }
+        String content = stringBuilder.toString();
+
+        for (Options options : new Options[]{new Options(), new Options().setMaxCodeLength(12),
+                new Options().setChecked(true), new Options().setChecked(true).setMaxCodeLength(8)}) {
+            byte[] data;
+
+            try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(content.getBytes());
+                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+                Huffman.compress(byteArrayInputStream, byteArrayOutputStream, options);
+                data = byteArrayOutputStream.toByteArray();
+            }
+
+            try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data);
+                 ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+                Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+                assertEquals("Decompressed data is equal to original data", content, new String(byteArrayOutputStream.toByteArray()));
+            }
+        }
+    }
+
+    @Test
+    public void decompressionDeepTree() throws Exception {
+        //Trees written before code lengths were limited can be too deep for a decode table
+        long[] frequencies = new long[128];
+        long a = 1;
+        long b = 1;
+        for (int i = 0; i < 62; i++, b = a + b, a = b - a) frequencies['A' + i] = a;
+        TreeNode tree = new TreeNode(frequencies);
+        Map<Character, Collection<Boolean>> codes = new HashMap<>();
+        tree.toMap(codes, new BitQueue());
+
+        //Write tree, character count, compressed data size and the data followed by the end bit
+        String content = "ABACAB~}A";
+        BitQueue bits = new BitQueue();
+        for (char character : content.toCharArray()) bits.addAll(codes.get(character));
+        byte[] data = bits.toByteArray();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        tree.write(compressed);
+        compressed.write(ByteBuffer.allocate(12).putLong(content.length()).putInt(data.length).array());
+        compressed.write(data);
+
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(compressed.toByteArray());
+             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+
+            Huffman.decompress(byteArrayInputStream, byteArrayOutputStream);
+            assertEquals("Decompressed data is equal to original data", content, new String(byteArrayOutputStream.toByteArray()));
+        }
+    }
+
     @Test
     public void compressionSingleCharacter() throws Exception {
         try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream("A".getBytes());
@@ -58,4 +591,43 @@ public class HuffmanTest {
             Huffman.compress(byteArrayInputStream, byteArrayOutputStream);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void blockFailureKeepsCause() throws Exception {
+        IllegalStateException failure = new IllegalStateException();
+        Blocks.Source source = new Blocks.Source() {
+            private boolean read;
+
+            @Override
+            public Blocks.Block read(int blockSize) {
+                if (read) return null;
+                read = true;
+                return new Blocks.Block(1, () -> {
+                    throw failure;
+                });
+            }
+        };
+        try {
+            Blocks.compress(8, source, new ByteArrayOutputStream(), new Options().setThreads(2));
+        } catch (Huffman.CompressionException e) {
+            assertEquals("Exception message", failure.toString(), e.getMessage());
+            assertEquals("Exception cause", failure, e.getCause());
+            return;
+        }
+        throw new AssertionError("Expected a compression exception");
+    }
+
+    private static void assertFails(String message, Compression compression) {
+        try {
+            compression.run();
+        } catch (Huffman.CompressionException e) {
+            assertEquals("Exception message", message, e.getMessage());
+            return;
+        }
+        throw new AssertionError("Expected: " + message);
+    }
+
+    private interface Compression {
+        void run() throws Huffman.CompressionException;
+    }
+}
@@ -0,0 +1,73 @@
+package com.seapip.thomas.huffman;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MainTest {
+
+    @Test
+    public void invalidArguments() {
+        String[][] commands = {
+                {"-t", "abc", "compress", "a.txt"},
+                {"-t", "0", "compress", "a.txt"},
+                {"--level", "bogus", "compress", "a.txt"},
+                {"compress", "a.txt", "--block-size"},
+                {"compress"},
+        };
+        String[] errors = {"-t: For input string: \"abc\"", "-t: Thread count needs to be at least one.",
+                "--level: Expected one of [fast, max].", "--block-size: Missing value.", "Usage:"};
+        for (int i = 0; i < commands.length; i++) {
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            assertEquals("Invalid arguments status", 1, Main.run(commands[i], Paths.get(""), new PrintStream(new ByteArrayOutputStream()),
+                    new PrintStream(err, true)));
+            assertTrue("Error is reported with the usage", new String(err.toByteArray()).startsWith(errors[i]));
+            assertTrue("Usage is printed", new String(err.toByteArray()).contains("Usage:"));
+        }
+    }
+
+    @Test
+    public void unknownCommand() throws Exception {
+        Path input = Files.createTempFile("huffman", ".txt");
+        try {
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            assertEquals("Unknown command status", 1, Main.run(new String[]{"bogus", input.toString()}, Paths.get(""),
+                    new PrintStream(new ByteArrayOutputStream()), new PrintStream(err, true)));
+            assertTrue("Unknown command is reported", new String(err.toByteArray()).startsWith("bogus: Unknown command."));
+        } finally {
+            Files.delete(input);
+        }
+    }
+
+    @Test
+    public void checked() throws Exception {
+        Path directory = Files.createTempDirectory("huffman");
+        Path input = directory.resolve("input.txt");
+        Files.write(input, "Eerie eyes seen near lake.".getBytes());
+        try {
+            PrintStream out = new PrintStream(new ByteArrayOutputStream());
+            assertEquals("Compress status", 0, Main.run(new String[]{"compress", "input.txt", "canonical"}, directory, out, out));
+            assertEquals("Compress status", 0, Main.run(new String[]{"--checked", "compress", "input.txt", "checked"},
+                    directory, out, out));
+            assertEquals("A single canonical block is the default", 34, Files.size(directory.resolve("canonical")));
+            assertEquals("Checksummed blocks are written when asked for", 62, Files.size(directory.resolve("checked")));
+
+            assertEquals("Verify status", 0, Main.run(new String[]{"verify", "checked"}, directory, out, out));
+            assertEquals("Decompress status", 0, Main.run(new String[]{"decompress", "checked", "output.txt"}, directory, out, out));
+            assertEquals("Decompressed data is equal to original data", "Eerie eyes seen near lake.",
+                    new String(Files.readAllBytes(directory.resolve("output.txt"))));
+        } finally {
+            for (String name : new String[]{"input.txt", "canonical", "checked", "output.txt"}) {
+                Files.deleteIfExists(directory.resolve(name));
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.seapip.thomas.huffman.huffman;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveEncoderTest {
+
+    @Test
+    public void flush() throws Exception {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        AdaptiveEncoder encoder = new AdaptiveEncoder(byteArrayOutputStream, 4, 24);
+        encoder.write("Eerie eyes".getBytes("UTF-8"), 0, 10);
+        encoder.flush();
+        byte[] flushed = byteArrayOutputStream.toByteArray();
+        encoder.write(" seen near lake.".getBytes("UTF-8"), 0, 16);
+        encoder.finish();
+
+        //Everything before the flush is decoded from the data written before the flush
+        byte[] buffer = new byte[64];
+        AdaptiveDecoder decoder = new AdaptiveDecoder(new ByteArrayInputStream(flushed));
+        int read = decoder.read(buffer, 0, buffer.length);
+        assertEquals("Bytes before the flush are decoded", "Eerie eyes", new String(buffer, 0, read, "UTF-8"));
+
+        decoder = new AdaptiveDecoder(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+        StringBuilder decoded = new StringBuilder();
+        while ((read = decoder.read(buffer, 0, buffer.length)) != -1) decoded.append(new String(buffer, 0, read, "UTF-8"));
+        assertEquals("Decoded data is equal to original data", "Eerie eyes seen near lake.", decoded.toString());
+    }
+}
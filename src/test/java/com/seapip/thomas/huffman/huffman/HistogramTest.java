@@ -0,0 +1,53 @@
+package com.seapip.thomas.huffman.huffman;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class HistogramTest {
+
+    @Test
+    public void bytes() {
+        //A length that isn't a multiple of eight and an offset so the tail is counted one byte at a time
+        byte[] bytes = new byte[1003];
+        new Random(42).nextBytes(bytes);
+        long[] expected = new long[256];
+        for (int i = 3; i < bytes.length; i++) expected[bytes[i] & 0xFF]++;
+
+        long[] frequencies = new long[256];
+        Histogram histogram = new Histogram();
+        histogram.count(ByteBuffer.wrap(bytes, 3, bytes.length - 3), frequencies);
+        assertArrayEquals("Byte counts are equal to counting one at a time", expected, frequencies);
+
+        histogram.count(ByteBuffer.wrap(bytes, 3, bytes.length - 3), frequencies);
+        for (int i = 0; i < expected.length; i++) expected[i] *= 2;
+        assertArrayEquals("Counts are added to the frequencies", expected, frequencies);
+    }
+
+    @Test
+    public void characters() {
+        char[] characters = "Eerie eyes \u20AC seen near \u00E9 lake.\uD83D\uDE00".toCharArray();
+        long[] expected = new long[Character.MAX_VALUE + 1];
+        for (char character : characters) expected[character]++;
+
+        long[] frequencies = new long[Character.MAX_VALUE + 1];
+        new Histogram().count(characters, 0, characters.length, frequencies);
+        assertArrayEquals("Character counts are equal to counting one at a time", expected, frequencies);
+    }
+
+    @Test
+    public void parallel() throws Exception {
+        byte[] bytes = new byte[9 * 1024 * 1024 + 5];
+        Random random = new Random(42);
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) random.nextInt(1 + random.nextInt(256));
+        long[] expected = new long[256];
+        new Histogram().count(ByteBuffer.wrap(bytes), expected);
+
+        long[] frequencies = new long[256];
+        Histogram.count(ByteBuffer.wrap(bytes), frequencies, 3);
+        assertArrayEquals("Parallel counts are equal to counts on a single thread", expected, frequencies);
+    }
+}
@@ -0,0 +1,78 @@
+package com.seapip.thomas.huffman.huffman;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HuffmanTreeTest {
+
+    @Test
+    public void optimalLengths() {
+        Random random = new Random(3);
+        for (int run = 0; run < 50; run++) {
+            long[] frequencies = new long[300];
+            for (int i = 0; i < frequencies.length; i++) frequencies[i] = random.nextInt(4) == 0 ? 0 : random.nextInt(1 << (run % 20 + 1));
+            int[] lengths = HuffmanTree.create(frequencies).getLengths();
+            assertEquals("Encoded size should equal the optimal encoded size",
+                    size(frequencies, PackageMerge.lengths(frequencies, 31)), size(frequencies, lengths));
+        }
+    }
+
+    @Test
+    public void writeAndRead() throws Exception {
+        long[] frequencies = new long[200];
+        Random random = new Random(5);
+        for (int i = 0; i < frequencies.length; i++) frequencies[i] = random.nextInt(1000);
+        int[] lengths = PackageMerge.lengths(frequencies, 15);
+        long[] codes = new CanonicalCode(lengths).getCodes();
+
+        //The tree written from the codes is the same as the tree written from its nodes
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        HuffmanTree.write(codes, lengths, written);
+        ByteArrayOutputStream nodes = new ByteArrayOutputStream();
+        new TreeNode(codes, lengths).write(nodes);
+        assertArrayEquals("Tree should match the tree written from nodes", nodes.toByteArray(), written.toByteArray());
+
+        HuffmanTree tree = HuffmanTree.read(new ByteArrayInputStream(written.toByteArray()));
+        assertArrayEquals("Read tree should have the written code lengths", lengths, tree.getLengths());
+    }
+
+    @Test
+    public void singleCharacter() throws Exception {
+        long[] frequencies = new long['B'];
+        frequencies['A'] = 10;
+        HuffmanTree tree = HuffmanTree.create(frequencies);
+        assertEquals("Single character should have a 1 bit code", 1, tree.getLengths()['A']);
+        assertEquals("Single character is the left child", ~'A', tree.getChild(tree.getRoot(), false));
+        assertEquals("Root has no right child", HuffmanTree.NONE, tree.getChild(tree.getRoot(), true));
+    }
+
+    @Test
+    public void deepTree() throws Exception {
+        //Fibonacci frequencies make a tree deeper than a decode table supports
+        long[] frequencies = new long[128];
+        long a = 1;
+        long b = 1;
+        for (int i = 0; i < 62; i++, b = a + b, a = b - a) frequencies[i] = a;
+        HuffmanTree tree = HuffmanTree.create(frequencies);
+        assertEquals("Huffman codes should be 61 bits long", 61, tree.getLengths()[0]);
+        assertNull("Tree is too deep for a decode table", tree.createDecodeTable());
+
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        tree.toTreeNode().write(written);
+        HuffmanTree read = HuffmanTree.read(new ByteArrayInputStream(written.toByteArray()));
+        assertArrayEquals("Read tree should have the written code lengths", tree.getLengths(), read.getLengths());
+    }
+
+    private static long size(long[] frequencies, int[] lengths) {
+        long size = 0;
+        for (int i = 0; i < lengths.length; i++) size += frequencies[i] * lengths[i];
+        return size;
+    }
+}
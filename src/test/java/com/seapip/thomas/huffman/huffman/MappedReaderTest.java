@@ -0,0 +1,52 @@
+package com.seapip.thomas.huffman.huffman;
+
+import org.junit.Test;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappedReaderTest {
+
+    @Test
+    public void multiByteCharacters() throws Exception {
+        String content = "Eerie \u00E9yes \u20AC seen near \uD83D\uDE00 lake.";
+        assertEquals("Characters read one at a time are equal to the original text", content, read(content, 1));
+        assertEquals("Characters read at once are equal to the original text", content, read(content, 1024));
+    }
+
+    @Test
+    public void offset() throws Exception {
+        String content = "Eerie eyes seen near lake.";
+        Path path = Files.createTempFile("huffman", ".txt");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Files.write(path, content.getBytes("UTF-8"));
+            char[] buffer = new char[64];
+            int read = new MappedReader(channel, 6, Charset.forName("UTF-8")).read(buffer, 0, buffer.length);
+            assertEquals("Characters after the offset are read", "eyes seen near lake.", new String(buffer, 0, read));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static String read(String content, int length) throws Exception {
+        Path path = Files.createTempFile("huffman", ".txt");
+        try {
+            Files.write(path, content.getBytes("UTF-8"));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedReader reader = new MappedReader(channel, 0, Charset.forName("UTF-8"));
+                StringBuilder stringBuilder = new StringBuilder();
+                char[] buffer = new char[length];
+                int read;
+                while ((read = reader.read(buffer, 0, length)) != -1) stringBuilder.append(buffer, 0, read);
+                return stringBuilder.toString();
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.seapip.thomas.huffman.huffman;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackageMergeTest {
+
+    @Test
+    public void fibonacciLengths() {
+        //Fibonacci frequencies make the Huffman tree as deep as the number of characters
+        long[] frequencies = fibonacci(60);
+        assertEquals("Huffman codes should be 59 bits long", 59, max(lengths(new TreeNode(frequencies))));
+
+        for (int maxLength : new int[]{6, 15, 24, 31}) {
+            int[] lengths = PackageMerge.lengths(frequencies, maxLength);
+            assertEquals("Longest code should be " + maxLength + " bits", maxLength, max(lengths));
+            assertEquals("Codes should use all available codes", 1L << 31, space(lengths));
+        }
+    }
+
+    @Test
+    public void optimalLengths() {
+        //Without a binding maximum the lengths are as short as the lengths of the Huffman tree
+        long[] frequencies = fibonacci(20);
+        frequencies['x'] = 1000;
+        frequencies['y'] = 3;
+        int[] lengths = PackageMerge.lengths(frequencies, 31);
+        assertEquals("Encoded size should equal the Huffman tree's encoded size",
+                size(frequencies, lengths(new TreeNode(frequencies))), size(frequencies, lengths));
+
+        //A binding maximum costs more bits but never more than a flat code
+        int[] limited = PackageMerge.lengths(frequencies, 5);
+        assertTrue("Limited codes should be larger", size(frequencies, limited) > size(frequencies, lengths));
+        assertTrue("Limited codes should be smaller than flat codes", size(frequencies, limited) < 5 * total(frequencies));
+    }
+
+    @Test
+    public void tooSmallMaximum() {
+        long[] frequencies = fibonacci(40);
+        assertEquals("Maximum should be raised to fit 40 characters", 6, max(PackageMerge.lengths(frequencies, 2)));
+    }
+
+    @Test
+    public void singleCharacter() {
+        long[] frequencies = new long[128];
+        frequencies['A'] = 10;
+        assertEquals("Single character should have a 1 bit code", 1, PackageMerge.lengths(frequencies, 15)['A']);
+    }
+
+    private static long[] fibonacci(int count) {
+        long[] frequencies = new long[128];
+        long a = 1;
+        long b = 1;
+        for (int i = 0; i < count; i++, b = a + b, a = b - a) frequencies[i] = a;
+        return frequencies;
+    }
+
+    private static int[] lengths(TreeNode tree) {
+        int[] lengths = new int[128];
+        tree.toCodes(new long[128], lengths, 0, 0);
+        return lengths;
+    }
+
+    private static int max(int[] lengths) {
+        int max = 0;
+        for (int length : lengths) max = Math.max(max, length);
+        return max;
+    }
+
+    private static long space(int[] lengths) {
+        long space = 0;
+        for (int length : lengths) if (length > 0) space += 1L << (31 - length);
+        return space;
+    }
+
+    private static long size(long[] frequencies, int[] lengths) {
+        long size = 0;
+        for (int i = 0; i < frequencies.length; i++) size += frequencies[i] * lengths[i];
+        return size;
+    }
+
+    private static long total(long[] frequencies) {
+        long total = 0;
+        for (long frequency : frequencies) total += frequency;
+        return total;
+    }
+}